@@ -0,0 +1,68 @@
+package com.quantum.controller;
+
+import com.quantum.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/exports")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    @Autowired
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/restaurants/{restaurantId}/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @PathVariable UUID restaurantId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") ExportService.Format format) {
+        return stream("orders", format, from, to,
+                out -> exportService.exportOrders(restaurantId, from, to, format, out));
+    }
+
+    @GetMapping("/restaurants/{restaurantId}/payments")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @PathVariable UUID restaurantId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") ExportService.Format format) {
+        return stream("payments", format, from, to,
+                out -> exportService.exportPayments(restaurantId, from, to, format, out));
+    }
+
+    @GetMapping("/restaurants/{restaurantId}/stock-transactions")
+    public ResponseEntity<StreamingResponseBody> exportStockTransactions(
+            @PathVariable UUID restaurantId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") ExportService.Format format) {
+        return stream("stock-transactions", format, from, to,
+                out -> exportService.exportStockTransactions(restaurantId, from, to, format, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name, ExportService.Format format,
+                                                         LocalDateTime from, LocalDateTime to,
+                                                         StreamingResponseBody body) {
+        // Reject bad ranges before the response is committed
+        exportService.validateRange(from, to);
+        boolean csv = format == ExportService.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + name + (csv ? ".csv" : ".ndjson") + "\"")
+                .body(body);
+    }
+}
@@ -1,7 +1,9 @@
 package com.quantum.controller;
 
+import com.quantum.dto.DeductionQueueStats;
 import com.quantum.model.InventoryItem;
 import com.quantum.model.StockTransaction;
+import com.quantum.service.InventoryDeductionService;
 import com.quantum.service.InventoryItemService;
 import com.quantum.service.StockTransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,11 +21,20 @@ public class InventoryController {
 
     private final StockTransactionService stockTransactionService;
 
+    private final InventoryDeductionService inventoryDeductionService;
+
     @Autowired
     public InventoryController(InventoryItemService inventoryItemService,
-                               StockTransactionService stockTransactionService) {
+                               StockTransactionService stockTransactionService,
+                               InventoryDeductionService inventoryDeductionService) {
         this.inventoryItemService = inventoryItemService;
         this.stockTransactionService = stockTransactionService;
+        this.inventoryDeductionService = inventoryDeductionService;
+    }
+
+    @GetMapping("/deduction-queue")
+    public ResponseEntity<DeductionQueueStats> getDeductionQueueStats() {
+        return ResponseEntity.ok(inventoryDeductionService.getQueueStats());
     }
 
     @PostMapping("/{restaurantId}")
@@ -0,0 +1,67 @@
+package com.quantum.controller;
+
+import com.quantum.dto.StationTickets;
+import com.quantum.service.KitchenFeedService;
+import com.quantum.service.KitchenStationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/kitchen")
+public class KitchenFeedController {
+
+    private static final long MAX_WAIT_SECONDS = 60;
+
+    private final KitchenFeedService kitchenFeedService;
+    private final KitchenStationService kitchenStationService;
+
+    @Autowired
+    public KitchenFeedController(KitchenFeedService kitchenFeedService, KitchenStationService kitchenStationService) {
+        this.kitchenFeedService = kitchenFeedService;
+        this.kitchenStationService = kitchenStationService;
+    }
+
+    @GetMapping(value = "/restaurants/{restaurantId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderEvents(
+            @PathVariable UUID restaurantId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return kitchenFeedService.subscribe(restaurantId, lastEventId);
+    }
+
+    /**
+     * Open tickets of a station. Without a version the current tickets are returned at once; with the
+     * version of the previous response the request waits up to waitSeconds for the station to change.
+     */
+    @GetMapping("/restaurants/{restaurantId}/stations/{station}/tickets")
+    public DeferredResult<StationTickets> getStationTickets(
+            @PathVariable UUID restaurantId,
+            @PathVariable String station,
+            @RequestParam(required = false) Long version,
+            @RequestParam(defaultValue = "25") long waitSeconds) {
+        if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS) {
+            throw new IllegalArgumentException("Wait must be between 0 and " + MAX_WAIT_SECONDS + " seconds.");
+        }
+        if (version == null) {
+            DeferredResult<StationTickets> result = new DeferredResult<>();
+            result.setResult(kitchenStationService.getTickets(restaurantId, station));
+            return result;
+        }
+        return kitchenStationService.pollTickets(restaurantId, station, version, waitSeconds * 1000);
+    }
+
+    @PostMapping("/restaurants/{restaurantId}/stations/{station}/tickets/{orderItemId}/bump")
+    public ResponseEntity<Void> bumpTicket(
+            @PathVariable UUID restaurantId,
+            @PathVariable String station,
+            @PathVariable UUID orderItemId,
+            @RequestParam(required = false) UUID chefId) {
+        kitchenStationService.bump(restaurantId, station, orderItemId, chefId);
+        return ResponseEntity.noContent().build();
+    }
+}
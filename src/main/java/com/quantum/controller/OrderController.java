@@ -1,11 +1,27 @@
 package com.quantum.controller;
 
+import com.quantum.dto.BulkOrderResult;
+import com.quantum.dto.BulkStatusRequest;
+import com.quantum.dto.BulkStatusResult;
+import com.quantum.dto.OfflineOrder;
+import com.quantum.dto.OrderDetail;
+import com.quantum.dto.OrderIntakeRequest;
+import com.quantum.dto.OrderIntakeResult;
+import com.quantum.dto.OrderJournalStats;
+import com.quantum.dto.OrderPage;
+import com.quantum.dto.OrderSearch;
+import com.quantum.dto.OrderSummary;
 import com.quantum.model.Order;
+import com.quantum.service.BulkOrderIngestService;
+import com.quantum.service.IdempotencyService;
+import com.quantum.service.OrderIntakeService;
 import com.quantum.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,10 +30,17 @@ import java.util.UUID;
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final OrderIntakeService orderIntakeService;
+    private final BulkOrderIngestService bulkOrderIngestService;
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService,
+                           OrderIntakeService orderIntakeService, BulkOrderIngestService bulkOrderIngestService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
+        this.orderIntakeService = orderIntakeService;
+        this.bulkOrderIngestService = bulkOrderIngestService;
     }
 
     @PostMapping("/restaurants/{restaurantId}/tables/{tableId}/waiters/{waiterId}")
@@ -25,18 +48,94 @@ public class OrderController {
             @PathVariable UUID restaurantId,
             @PathVariable int tableId,
             @PathVariable UUID waiterId,
-            @RequestBody Order order) {
-        return ResponseEntity.ok(orderService.createOrder(restaurantId, tableId, waiterId, order));
+            @RequestBody Order order,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute("orders:" + restaurantId, idempotencyKey,
+                List.of(tableId, waiterId, order),
+                () -> orderService.createOrder(restaurantId, tableId, waiterId, order)));
+    }
+
+    @PostMapping("/restaurants/{restaurantId}/bulk")
+    public ResponseEntity<List<BulkOrderResult>> ingestOfflineOrders(@PathVariable UUID restaurantId,
+                                                                     @RequestBody List<OfflineOrder> orders) {
+        return ResponseEntity.ok(bulkOrderIngestService.ingest(restaurantId, orders));
+    }
+
+    @PostMapping("/intake/restaurants/{restaurantId}/tables/{tableId}/waiters/{waiterId}")
+    public ResponseEntity<OrderIntakeResult> submitIntakeOrder(
+            @PathVariable UUID restaurantId,
+            @PathVariable int tableId,
+            @PathVariable UUID waiterId,
+            @RequestBody OrderIntakeRequest request) {
+        OrderIntakeResult result = orderIntakeService.submit(restaurantId, tableId, waiterId, request);
+        return result.status() == OrderIntakeResult.Status.PENDING
+                ? ResponseEntity.accepted().body(result)
+                : ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/intake/{clientOrderId}")
+    public ResponseEntity<OrderIntakeResult> getIntakeOrder(@PathVariable String clientOrderId) {
+        return ResponseEntity.ok(orderIntakeService.getResult(clientOrderId));
+    }
+
+    @GetMapping("/intake-journal")
+    public ResponseEntity<OrderJournalStats> getIntakeJournalStats() {
+        return ResponseEntity.ok(orderIntakeService.getJournalStats());
     }
 
     @GetMapping("/restaurants/{restaurantId}")
-    public ResponseEntity<List<Order>> getOrdersByRestaurant(@PathVariable UUID restaurantId) {
-        return ResponseEntity.ok(orderService.getOrdersByRestaurant(restaurantId));
+    public ResponseEntity<List<OrderSummary>> getOrdersByRestaurant(@PathVariable UUID restaurantId) {
+        return ResponseEntity.ok(orderService.getOrderSummariesByRestaurant(restaurantId));
+    }
+
+    @GetMapping("/restaurants/{restaurantId}/page")
+    public ResponseEntity<OrderPage> getOrderPage(
+            @PathVariable UUID restaurantId,
+            @RequestParam(required = false) Order.Status status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer tableId,
+            @RequestParam(required = false) UUID waiterId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(orderService.getOrderPage(restaurantId, status, from, to, tableId, waiterId, cursor, size));
+    }
+
+    @GetMapping("/restaurants/{restaurantId}/search")
+    public ResponseEntity<OrderPage> searchOrders(
+            @PathVariable UUID restaurantId,
+            @RequestParam(required = false) Order.Status status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer tableId,
+            @RequestParam(required = false) UUID waiterId,
+            @RequestParam(required = false) Double minTotal,
+            @RequestParam(required = false) Double maxTotal,
+            @RequestParam(required = false) List<UUID> menuItemId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        OrderSearch search = new OrderSearch(status, from, to, tableId, waiterId, minTotal, maxTotal, menuItemId);
+        return ResponseEntity.ok(orderService.searchOrders(restaurantId, search, cursor, size));
+    }
+
+    @GetMapping("/restaurants/{restaurantId}/open")
+    public ResponseEntity<List<OrderSummary>> getOpenOrdersByRestaurant(@PathVariable UUID restaurantId) {
+        return ResponseEntity.ok(orderService.getOpenOrdersByRestaurant(restaurantId));
+    }
+
+    @GetMapping("/tables/{tableId}/open")
+    public ResponseEntity<List<OrderSummary>> getOpenOrdersByTable(@PathVariable int tableId) {
+        return ResponseEntity.ok(orderService.getOpenOrdersByTable(tableId));
+    }
+
+    @GetMapping("/waiters/{waiterId}/open")
+    public ResponseEntity<List<OrderSummary>> getOpenOrdersByWaiter(@PathVariable UUID waiterId) {
+        return ResponseEntity.ok(orderService.getOpenOrdersByWaiter(waiterId));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Order> getOrderById(@PathVariable UUID id) {
-        return ResponseEntity.ok(orderService.getOrderById(id));
+    public ResponseEntity<OrderDetail> getOrderById(@PathVariable UUID id) {
+        return ResponseEntity.ok(orderService.getOrderDetail(id));
     }
 
     @PutMapping("/{id}/status")
@@ -44,6 +143,11 @@ public class OrderController {
         return ResponseEntity.ok(orderService.updateOrderStatus(id, status));
     }
 
+    @PutMapping("/status")
+    public ResponseEntity<List<BulkStatusResult>> updateOrderStatuses(@RequestBody BulkStatusRequest request) {
+        return ResponseEntity.ok(orderService.updateOrderStatuses(request.orderIds(), request.status()));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrder(@PathVariable UUID id) {
         orderService.deleteOrder(id);
@@ -1,6 +1,9 @@
 package com.quantum.controller;
 
+import com.quantum.dto.OrderItemRequest;
+import com.quantum.dto.OrderItemView;
 import com.quantum.model.OrderItem;
+import com.quantum.service.IdempotencyService;
 import com.quantum.service.OrderItemService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -14,18 +17,33 @@ import java.util.UUID;
 public class OrderItemController {
 
     private final OrderItemService orderItemService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public OrderItemController(OrderItemService orderItemService) {
+    public OrderItemController(OrderItemService orderItemService, IdempotencyService idempotencyService) {
         this.orderItemService = orderItemService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping("/orders/{orderId}/menu-items/{menuItemId}")
     public ResponseEntity<OrderItem> addOrderItem(
             @PathVariable UUID orderId,
             @PathVariable UUID menuItemId,
-            @RequestParam int quantity) {
-        return ResponseEntity.ok(orderItemService.addOrderItem(orderId, menuItemId, quantity));
+            @RequestParam int quantity,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute("order-items:" + orderId, idempotencyKey,
+                List.of(menuItemId, quantity),
+                () -> orderItemService.addOrderItem(orderId, menuItemId, quantity)));
+    }
+
+    @PostMapping("/orders/{orderId}/bulk")
+    public ResponseEntity<List<OrderItemView>> addOrderItems(
+            @PathVariable UUID orderId,
+            @RequestBody List<OrderItemRequest> items,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute("order-items-bulk:" + orderId, idempotencyKey,
+                items,
+                () -> orderItemService.addOrderItems(orderId, items)));
     }
 
     @GetMapping("/orders/{orderId}")
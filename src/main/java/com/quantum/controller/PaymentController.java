@@ -1,6 +1,10 @@
 package com.quantum.controller;
 
+import com.quantum.dto.PaymentResult;
+import com.quantum.dto.SplitPaymentRequest;
 import com.quantum.model.Payment;
+import com.quantum.service.IdempotencyService;
+import com.quantum.service.PaymentResultProcessor;
 import com.quantum.service.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -15,18 +19,47 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+    private final PaymentResultProcessor paymentResultProcessor;
 
     @Autowired
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, IdempotencyService idempotencyService,
+                             PaymentResultProcessor paymentResultProcessor) {
         this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
+        this.paymentResultProcessor = paymentResultProcessor;
     }
 
     @PostMapping("/orders/{orderId}/split")
     public ResponseEntity<Payment> createSplitPayment(
             @PathVariable UUID orderId,
             @RequestParam double amount,
-            @RequestParam Payment.PaymentMethod paymentMethod) {
-        return ResponseEntity.ok(paymentService.createPayment(orderId, amount, paymentMethod));
+            @RequestParam Payment.PaymentMethod paymentMethod,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute("payments:" + orderId, idempotencyKey,
+                List.of(amount, paymentMethod),
+                () -> paymentService.createPayment(orderId, amount, paymentMethod)));
+    }
+
+    @PostMapping("/orders/{orderId}/split-bill")
+    public ResponseEntity<List<Payment>> createSplitBill(
+            @PathVariable UUID orderId,
+            @RequestBody SplitPaymentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        // Own scope: a key of a single payment must not replay here, nor the other way round
+        return ResponseEntity.ok(idempotencyService.execute("payments-split:" + orderId, idempotencyKey,
+                request,
+                () -> paymentService.createSplitPayments(orderId, request.legs())));
+    }
+
+    /**
+     * Webhook of the payment gateway. Results are stored before answering and applied in batches
+     * shortly after, hence 202.
+     */
+    @PostMapping("/gateway/results")
+    public ResponseEntity<Void> acceptGatewayResults(@RequestBody List<PaymentResult> results) {
+        paymentResultProcessor.accept(results);
+        return ResponseEntity.accepted().build();
     }
 
     @GetMapping("/orders/{orderId}")
@@ -1,6 +1,8 @@
 package com.quantum.controller;
 
+import com.quantum.dto.ActiveTableOrder;
 import com.quantum.model.Table;
+import com.quantum.service.ActiveOrderIndex;
 import com.quantum.service.TableService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -14,10 +16,12 @@ import java.util.UUID;
 public class TableController {
 
     private final TableService tableService;
+    private final ActiveOrderIndex activeOrderIndex;
 
     @Autowired
-    public TableController(TableService tableService) {
+    public TableController(TableService tableService, ActiveOrderIndex activeOrderIndex) {
         this.tableService = tableService;
+        this.activeOrderIndex = activeOrderIndex;
     }
 
     @PostMapping("/layouts/{layoutId}")
@@ -35,6 +39,15 @@ public class TableController {
         return ResponseEntity.ok(tableService.getTableById(id));
     }
 
+    @GetMapping("/{id}/active-order")
+    public ResponseEntity<ActiveTableOrder> getActiveOrder(@PathVariable int id) {
+        UUID orderId = activeOrderIndex.getActiveOrderId(id);
+        if (orderId == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new ActiveTableOrder(id, orderId));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Table> updateTable(@PathVariable int id, @RequestBody Table updatedTable) {
         return ResponseEntity.ok(tableService.updateTable(id, updatedTable));
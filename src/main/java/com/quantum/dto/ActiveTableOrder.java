@@ -0,0 +1,6 @@
+package com.quantum.dto;
+
+import java.util.UUID;
+
+public record ActiveTableOrder(int tableId, UUID orderId) {
+}
@@ -0,0 +1,14 @@
+package com.quantum.dto;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one order in a bulk ingest. orderId is set for created orders and for duplicates of an
+ * order taken in before; message explains rejections and failures.
+ */
+public record BulkOrderResult(String clientOrderId, Outcome outcome, UUID orderId, String message) {
+
+    public enum Outcome {
+        CREATED, DUPLICATE, REJECTED
+    }
+}
@@ -0,0 +1,9 @@
+package com.quantum.dto;
+
+import com.quantum.model.Order;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BulkStatusRequest(List<UUID> orderIds, Order.Status status) {
+}
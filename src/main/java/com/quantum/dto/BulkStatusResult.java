@@ -0,0 +1,15 @@
+package com.quantum.dto;
+
+import com.quantum.model.Order;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one order in a bulk status update. previousStatus is null when the order was not found.
+ */
+public record BulkStatusResult(UUID orderId, Outcome outcome, Order.Status previousStatus, String message) {
+
+    public enum Outcome {
+        UPDATED, UNCHANGED, NOT_FOUND, INVALID_TRANSITION, CONFLICT
+    }
+}
@@ -0,0 +1,7 @@
+package com.quantum.dto;
+
+/**
+ * Lag of the asynchronous inventory deduction queue. oldestPendingSeconds is null when nothing is pending.
+ */
+public record DeductionQueueStats(boolean async, long pending, long failed, Long oldestPendingSeconds) {
+}
@@ -0,0 +1,11 @@
+package com.quantum.dto;
+
+import java.util.List;
+
+/**
+ * A flat row of a bulk export, written either as one NDJSON object or as one CSV line.
+ */
+public interface ExportRow {
+
+    List<Object> csvValues();
+}
@@ -0,0 +1,11 @@
+package com.quantum.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One order item waiting at a kitchen station. sequence numbers the tickets of a station in routing order.
+ */
+public record KitchenTicket(long sequence, UUID orderItemId, UUID orderId, Integer tableId, String menuItemName,
+                            int quantity, String station, LocalDateTime createdAt) {
+}
@@ -0,0 +1,16 @@
+package com.quantum.dto;
+
+import com.quantum.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A complete order captured by a client while offline. createdAt is the client's time of ordering,
+ * clientOrderId identifies the order across upload retries and status is the status the order had
+ * reached by the upload (PENDING when omitted).
+ */
+public record OfflineOrder(String clientOrderId, int tableId, UUID waiterId, LocalDateTime createdAt,
+                           Order.Status status, List<OrderItemRequest> items) {
+}
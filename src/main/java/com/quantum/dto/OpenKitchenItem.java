@@ -0,0 +1,11 @@
+package com.quantum.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An item of an open order as needed to rebuild the kitchen station queues.
+ */
+public record OpenKitchenItem(UUID orderItemId, UUID orderId, UUID restaurantId, Integer tableId,
+                              String menuItemName, String station, int quantity, LocalDateTime orderCreatedAt) {
+}
@@ -0,0 +1,9 @@
+package com.quantum.dto;
+
+import java.util.List;
+
+/**
+ * Order detail view: the order header plus its items, loaded with exactly two queries.
+ */
+public record OrderDetail(OrderSummary order, List<OrderItemView> items) {
+}
@@ -0,0 +1,48 @@
+package com.quantum.dto;
+
+import com.quantum.model.Order;
+import com.quantum.model.OrderItem;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Change to an order that kitchen screens care about. Published by the order services and
+ * delivered to the kitchen feed once the surrounding transaction has committed.
+ */
+public record OrderEvent(Type type, UUID restaurantId, UUID orderId, Integer tableId, Order.Status status,
+                         UUID orderItemId, String menuItemName, String station, Integer quantity,
+                         LocalDateTime occurredAt) {
+
+    public enum Type {
+        ORDER_CREATED, ITEM_ADDED, STATUS_CHANGED
+    }
+
+    public static OrderEvent orderCreated(Order order) {
+        return of(Type.ORDER_CREATED, order, null);
+    }
+
+    public static OrderEvent itemAdded(Order order, OrderItem orderItem) {
+        return of(Type.ITEM_ADDED, order, orderItem);
+    }
+
+    public static OrderEvent statusChanged(Order order) {
+        return of(Type.STATUS_CHANGED, order, null);
+    }
+
+    public static OrderEvent statusChanged(UUID restaurantId, UUID orderId, Integer tableId, Order.Status status) {
+        return new OrderEvent(Type.STATUS_CHANGED, restaurantId, orderId, tableId, status,
+                null, null, null, null, LocalDateTime.now());
+    }
+
+    private static OrderEvent of(Type type, Order order, OrderItem orderItem) {
+        UUID restaurantId = order.getRestaurant() == null ? null : order.getRestaurant().getId();
+        Integer tableId = order.getTable() == null ? null : order.getTable().getId();
+        return new OrderEvent(type, restaurantId, order.getId(), tableId, order.getStatus(),
+                orderItem == null ? null : orderItem.getId(),
+                orderItem == null || orderItem.getMenuItem() == null ? null : orderItem.getMenuItem().getName(),
+                orderItem == null || orderItem.getMenuItem() == null ? null : orderItem.getMenuItem().getStation(),
+                orderItem == null ? null : orderItem.getQuantity(),
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,9 @@
+package com.quantum.dto;
+
+import java.util.List;
+
+/**
+ * Several order events from one operation, delivered to listeners in a single call.
+ */
+public record OrderEventBatch(List<OrderEvent> events) {
+}
@@ -0,0 +1,21 @@
+package com.quantum.dto;
+
+import com.quantum.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public record OrderExportRow(UUID id, UUID restaurantId, Integer tableId, UUID waiterId, double totalAmount,
+                             double paidAmount, Order.Status status, LocalDateTime createdAt,
+                             LocalDateTime updatedAt) implements ExportRow {
+
+    public static final List<String> CSV_HEADER = List.of(
+            "id", "restaurantId", "tableId", "waiterId", "totalAmount", "paidAmount", "status", "createdAt", "updatedAt");
+
+    @Override
+    public List<Object> csvValues() {
+        return Arrays.asList(id, restaurantId, tableId, waiterId, totalAmount, paidAmount, status, createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,10 @@
+package com.quantum.dto;
+
+import java.util.List;
+
+/**
+ * An order taken in through the intake. clientOrderId is chosen by the client (e.g. a UUID generated
+ * by the POS) and makes retries of the same order safe.
+ */
+public record OrderIntakeRequest(String clientOrderId, List<OrderItemRequest> items) {
+}
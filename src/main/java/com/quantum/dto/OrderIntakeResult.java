@@ -0,0 +1,16 @@
+package com.quantum.dto;
+
+import java.util.UUID;
+
+/**
+ * Where an intake order stands. PENDING orders are journaled but not in the database yet; orderId is
+ * set once APPLIED and error once REJECTED.
+ */
+public record OrderIntakeResult(String clientOrderId, Status status, UUID orderId, String error) {
+
+    public enum Status {
+        PENDING,
+        APPLIED,
+        REJECTED
+    }
+}
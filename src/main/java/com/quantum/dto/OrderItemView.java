@@ -0,0 +1,6 @@
+package com.quantum.dto;
+
+import java.util.UUID;
+
+public record OrderItemView(UUID id, UUID menuItemId, String menuItemName, int quantity, double price) {
+}
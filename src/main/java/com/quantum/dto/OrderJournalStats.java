@@ -0,0 +1,9 @@
+package com.quantum.dto;
+
+/**
+ * Depth of the order intake journal. oldestPendingSeconds is null when nothing is pending; applied and
+ * rejected count the journaled orders drained since startup.
+ */
+public record OrderJournalStats(boolean enabled, long pending, long pendingBytes, long capacityBytes,
+                                long applied, long rejected, Long oldestPendingSeconds) {
+}
@@ -0,0 +1,9 @@
+package com.quantum.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated order listing. nextCursor is null on the last page.
+ */
+public record OrderPage(List<OrderSummary> orders, String nextCursor) {
+}
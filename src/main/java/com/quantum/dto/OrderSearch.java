@@ -0,0 +1,20 @@
+package com.quantum.dto;
+
+import com.quantum.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Filters of an order history search. Every field is optional; menuItemIds matches orders that
+ * contain all of the listed menu items.
+ */
+public record OrderSearch(Order.Status status, LocalDateTime from, LocalDateTime to, Integer tableId, UUID waiterId,
+                          Double minTotal, Double maxTotal, List<UUID> menuItemIds) {
+
+    public static OrderSearch of(Order.Status status, LocalDateTime from, LocalDateTime to, Integer tableId,
+                                 UUID waiterId) {
+        return new OrderSearch(status, from, to, tableId, waiterId, null, null, null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.quantum.dto;
+
+import com.quantum.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The columns of an order needed to validate and announce a status change, without loading the entity.
+ */
+public record OrderStatusRow(UUID id, UUID restaurantId, Integer tableId, Order.Status status,
+                             LocalDateTime createdAt) {
+}
@@ -0,0 +1,15 @@
+package com.quantum.dto;
+
+import com.quantum.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Flat read model of an order for list and detail views, loaded with one query instead of
+ * the eager Restaurant, Table and Employee graphs hanging off the Order entity.
+ */
+public record OrderSummary(UUID id, UUID restaurantId, Integer tableId, Integer tableNumber, UUID waiterId,
+                           String waiterName, double totalAmount, double paidAmount, Order.Status status,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {
+}
@@ -0,0 +1,20 @@
+package com.quantum.dto;
+
+import com.quantum.model.Payment;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public record PaymentExportRow(UUID id, UUID orderId, double amount, Payment.PaymentMethod paymentMethod,
+                               Payment.PaymentStatus paymentStatus, LocalDateTime paymentDate) implements ExportRow {
+
+    public static final List<String> CSV_HEADER = List.of(
+            "id", "orderId", "amount", "paymentMethod", "paymentStatus", "paymentDate");
+
+    @Override
+    public List<Object> csvValues() {
+        return Arrays.asList(id, orderId, amount, paymentMethod, paymentStatus, paymentDate);
+    }
+}
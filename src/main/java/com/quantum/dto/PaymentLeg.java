@@ -0,0 +1,9 @@
+package com.quantum.dto;
+
+import com.quantum.model.Payment;
+
+/**
+ * One part of a split bill: the amount paid with one payment method.
+ */
+public record PaymentLeg(double amount, Payment.PaymentMethod paymentMethod) {
+}
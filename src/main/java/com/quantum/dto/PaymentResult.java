@@ -0,0 +1,15 @@
+package com.quantum.dto;
+
+import com.quantum.model.Payment;
+
+import java.util.UUID;
+
+/**
+ * Outcome of a submitted payment as reported by the payment gateway.
+ *
+ * @param status COMPLETED or FAILED.
+ * @param reference The gateway's reference of the transaction, optional.
+ * @param failureReason Why the payment failed, optional.
+ */
+public record PaymentResult(UUID paymentId, Payment.PaymentStatus status, String reference, String failureReason) {
+}
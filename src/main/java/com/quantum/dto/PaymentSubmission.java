@@ -0,0 +1,11 @@
+package com.quantum.dto;
+
+import com.quantum.model.Payment;
+
+import java.util.UUID;
+
+/**
+ * A payment handed to the payment gateway for processing; the payment id identifies it at the gateway.
+ */
+public record PaymentSubmission(UUID paymentId, UUID orderId, double amount, Payment.PaymentMethod paymentMethod) {
+}
@@ -0,0 +1,9 @@
+package com.quantum.dto;
+
+import java.util.UUID;
+
+/**
+ * One ingredient row of a menu item's recipe, read without loading Ingredient entities.
+ */
+public record RecipeLine(UUID menuItemId, UUID inventoryItemId, double quantity) {
+}
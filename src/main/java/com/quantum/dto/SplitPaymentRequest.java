@@ -0,0 +1,6 @@
+package com.quantum.dto;
+
+import java.util.List;
+
+public record SplitPaymentRequest(List<PaymentLeg> legs) {
+}
@@ -0,0 +1,10 @@
+package com.quantum.dto;
+
+import java.util.List;
+
+/**
+ * Snapshot of a kitchen station's open tickets, oldest first. version changes with every ticket routed
+ * to or bumped from the station; a station screen long-polls with the version it last received.
+ */
+public record StationTickets(String station, long version, List<KitchenTicket> tickets) {
+}
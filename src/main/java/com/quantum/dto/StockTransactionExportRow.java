@@ -0,0 +1,18 @@
+package com.quantum.dto;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public record StockTransactionExportRow(UUID id, UUID inventoryItemId, String inventoryItemName, double quantity,
+                                        String type, LocalDateTime date, String note) implements ExportRow {
+
+    public static final List<String> CSV_HEADER = List.of(
+            "id", "inventoryItemId", "inventoryItemName", "quantity", "type", "date", "note");
+
+    @Override
+    public List<Object> csvValues() {
+        return Arrays.asList(id, inventoryItemId, inventoryItemName, quantity, type, date, note);
+    }
+}
@@ -1,9 +1,11 @@
 package com.quantum.model;
 
+import com.quantum.service.RecipeCacheInvalidator;
 import jakarta.persistence.*;
 import java.util.UUID;
 
 @Entity
+@EntityListeners(RecipeCacheInvalidator.class)
 public class Ingredient {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
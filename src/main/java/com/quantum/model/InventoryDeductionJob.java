@@ -0,0 +1,106 @@
+package com.quantum.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@jakarta.persistence.Table(name = "inventory_deduction_job")
+public class InventoryDeductionJob {
+
+    // Pooled: each node takes blocks of 50 ids, so ids only order the jobs of one transaction; jobs of
+    // different transactions are ordered by the xact_id column the database fills in (V33)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_deduction_job_seq")
+    @SequenceGenerator(name = "inventory_deduction_job_seq", sequenceName = "inventory_deduction_job_seq", allocationSize = 50)
+    private Long id;
+
+    private UUID orderId;
+    private UUID inventoryItemId;
+    private double quantity;
+    private String note;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime processedAt;
+
+    public enum Status {
+        PENDING,
+        FAILED
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public UUID getInventoryItemId() {
+        return inventoryItemId;
+    }
+
+    public void setInventoryItemId(UUID inventoryItemId) {
+        this.inventoryItemId = inventoryItemId;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(double quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+}
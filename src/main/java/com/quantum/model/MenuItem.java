@@ -25,6 +25,9 @@ public class MenuItem {
     private double price;
     private boolean isAvailable;
 
+    // Kitchen station preparing this item, null for the default station
+    private String station;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -42,6 +45,14 @@ public class MenuItem {
         this.imageUrl = imageUrl;
     }
 
+    public String getStation() {
+        return station;
+    }
+
+    public void setStation(String station) {
+        this.station = station;
+    }
+
     public Menu getMenu() {
         return menu;
     }
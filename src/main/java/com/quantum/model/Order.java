@@ -3,7 +3,11 @@ package com.quantum.model;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @jakarta.persistence.Table(name = "orders")
@@ -23,6 +27,9 @@ public class Order {
     @ManyToOne
     private Employee waiter;
 
+    // Short per-restaurant, per-business-day number kitchens call the order by
+    private Integer ticketNumber;
+
     private double totalAmount;
     private double paidAmount;
 
@@ -32,13 +39,39 @@ public class Order {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    @Version
+    private long version;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private List<OrderItem> orderItems = new ArrayList<>();//avoid NPE
 
     public enum Status {
         PENDING,
         COMPLETED,
-        CANCELED
+        CANCELED;
+
+        // Allowed transitions; a status without outgoing transitions is terminal
+        private static final Map<Status, Set<Status>> TRANSITIONS = new EnumMap<>(Status.class);
+
+        static {
+            TRANSITIONS.put(PENDING, EnumSet.of(COMPLETED, CANCELED));
+            TRANSITIONS.put(COMPLETED, EnumSet.noneOf(Status.class));
+            TRANSITIONS.put(CANCELED, EnumSet.noneOf(Status.class));
+        }
+
+        public boolean canTransitionTo(Status next) {
+            return TRANSITIONS.get(this).contains(next);
+        }
+
+        public boolean isTerminal() {
+            return TRANSITIONS.get(this).isEmpty();
+        }
+
+        // Not a status update anyone can request: the system reopens an order that a payment completed
+        // when the gateway then declines that payment, so the balance can be paid another way
+        public boolean canReopenTo(Status next) {
+            return this == COMPLETED && next == PENDING;
+        }
     }
 
 
@@ -82,6 +115,14 @@ public class Order {
         this.totalAmount = totalAmount;
     }
 
+    public Integer getTicketNumber() {
+        return ticketNumber;
+    }
+
+    public void setTicketNumber(Integer ticketNumber) {
+        this.ticketNumber = ticketNumber;
+    }
+
     public double getPaidAmount() {
         return paidAmount;
     }
@@ -114,6 +155,14 @@ public class Order {
         this.updatedAt = updatedAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public List<OrderItem> getOrderItems() {
         return orderItems;
     }
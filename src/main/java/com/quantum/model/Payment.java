@@ -28,6 +28,10 @@ public class Payment {
 
     private LocalDateTime paymentDate;
 
+    private String gatewayReference;
+
+    private String failureReason;
+
     public enum PaymentMethod {
         CASH, CARD
     }
@@ -76,6 +80,22 @@ public class Payment {
         this.paymentDate = paymentDate;
     }
 
+    public String getGatewayReference() {
+        return gatewayReference;
+    }
+
+    public void setGatewayReference(String gatewayReference) {
+        this.gatewayReference = gatewayReference;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
     public UUID getId() {
         return id;
     }
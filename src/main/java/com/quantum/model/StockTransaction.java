@@ -15,10 +15,13 @@ public class StockTransaction {
     private InventoryItem inventoryItem;
 
     private double quantity;
-    private String type; // PURCHASE, USAGE, ADJUSTMENT
+    private String type; // PURCHASE, USAGE, ADJUSTMENT, REVERSAL
     private LocalDateTime date;
     private String note;
 
+    // The order this usage (or its reversal) belongs to, null for purchases and adjustments
+    private UUID orderId;
+
     public UUID getId() {
         return id;
     }
@@ -35,6 +38,14 @@ public class StockTransaction {
         this.note = note;
     }
 
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
     public LocalDateTime getDate() {
         return date;
     }
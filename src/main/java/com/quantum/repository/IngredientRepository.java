@@ -0,0 +1,20 @@
+package com.quantum.repository;
+
+import com.quantum.dto.RecipeLine;
+import com.quantum.model.Ingredient;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface IngredientRepository extends JpaRepository<Ingredient, UUID> {
+
+    @Query("SELECT new com.quantum.dto.RecipeLine(i.menuItem.id, i.inventoryItem.id, i.quantity) " +
+            "FROM Ingredient i WHERE i.menuItem.id IN :menuItemIds")
+    List<RecipeLine> findRecipeLines(@Param("menuItemIds") Collection<UUID> menuItemIds);
+}
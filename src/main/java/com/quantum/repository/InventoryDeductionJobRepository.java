@@ -0,0 +1,48 @@
+package com.quantum.repository;
+
+import com.quantum.model.InventoryDeductionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface InventoryDeductionJobRepository extends JpaRepository<InventoryDeductionJob, Long> {
+
+    /**
+     * Transaction-scoped advisory lock on a worker partition, so only one worker across all nodes
+     * drains a partition at a time and an item's stock is never deducted by two workers at once.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLockPartition(@Param("key") long key);
+
+    /**
+     * Pending jobs of one partition in the order they were recorded: by recording transaction, then by
+     * id within it. Only jobs of transactions older than every transaction still running are taken, so
+     * no job that commits later can belong before them. Inventory items are spread over partitions by
+     * hash (widened to bigint, as abs of the smallest int overflows). The rows stay locked until the
+     * batch commits, so canceling an order waits for a batch that is applying its jobs.
+     */
+    @Query(value = "SELECT * FROM inventory_deduction_job WHERE status = 'PENDING' " +
+            "AND mod(abs(CAST(hashtext(CAST(inventory_item_id AS TEXT)) AS BIGINT)), :partitions) = :partition " +
+            "AND xact_id < pg_snapshot_xmin(pg_current_snapshot()) " +
+            "ORDER BY xact_id, id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<InventoryDeductionJob> findPendingBatch(@Param("partitions") int partitions,
+                                                 @Param("partition") int partition,
+                                                 @Param("limit") int limit);
+
+    /**
+     * Drop the remaining (pending or failed) jobs of orders, e.g. because they were canceled.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM inventory_deduction_job WHERE order_id = ANY(:orderIds)", nativeQuery = true)
+    int deleteByOrderIds(@Param("orderIds") UUID[] orderIds);
+
+    long countByStatus(InventoryDeductionJob.Status status);
+
+    @Query("SELECT MIN(j.createdAt) FROM InventoryDeductionJob j WHERE j.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") InventoryDeductionJob.Status status);
+}
@@ -2,11 +2,49 @@ package com.quantum.repository;
 
 import com.quantum.model.InventoryItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
-public interface InventoryItemRepository extends JpaRepository<InventoryItem, UUID> {
+public interface InventoryItemRepository extends JpaRepository<InventoryItem, UUID>, InventoryItemRepositoryCustom {
     List<InventoryItem> findByRestaurantId(UUID restaurantId);
-}
 
+    @Query("SELECT i.quantity FROM InventoryItem i WHERE i.id = :itemId")
+    Optional<Double> findQuantityById(@Param("itemId") UUID itemId);
+
+    /**
+     * Take stock off an item when, and only when, it has enough. The check and the decrement are one
+     * statement, so concurrent usages of the same item can neither lose an update nor oversell it.
+     *
+     * @return 1 when the stock was taken, 0 when the item does not exist or has too little stock.
+     */
+    @Modifying
+    @Query("UPDATE InventoryItem i SET i.quantity = i.quantity - :quantity, i.updatedAt = :now " +
+            "WHERE i.id = :itemId AND i.quantity >= :quantity")
+    int useQuantity(@Param("itemId") UUID itemId, @Param("quantity") double quantity, @Param("now") LocalDateTime now);
+
+    /**
+     * @return 1 when the stock was added, 0 when the item does not exist.
+     */
+    @Modifying
+    @Query("UPDATE InventoryItem i SET i.quantity = i.quantity + :quantity, i.updatedAt = :now WHERE i.id = :itemId")
+    int addQuantity(@Param("itemId") UUID itemId, @Param("quantity") double quantity, @Param("now") LocalDateTime now);
+
+    /**
+     * Set the stock of an item if it is still the expected quantity (compare-and-set).
+     *
+     * @return 1 when the stock was set, 0 when the item does not exist or its stock changed meanwhile.
+     */
+    @Modifying
+    @Query("UPDATE InventoryItem i SET i.quantity = :newQuantity, i.updatedAt = :now " +
+            "WHERE i.id = :itemId AND i.quantity = :expectedQuantity")
+    int replaceQuantity(@Param("itemId") UUID itemId,
+                        @Param("expectedQuantity") double expectedQuantity,
+                        @Param("newQuantity") double newQuantity,
+                        @Param("now") LocalDateTime now);
+}
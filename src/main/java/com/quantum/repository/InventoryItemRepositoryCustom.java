@@ -0,0 +1,15 @@
+package com.quantum.repository;
+
+import com.quantum.model.InventoryItem;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface InventoryItemRepositoryCustom {
+
+    /**
+     * The item as it is in the database now, also when the persistence context already holds it from
+     * before a bulk update (which bypasses the persistence context).
+     */
+    Optional<InventoryItem> findCurrentById(UUID itemId);
+}
@@ -0,0 +1,23 @@
+package com.quantum.repository;
+
+import com.quantum.model.InventoryItem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Optional;
+import java.util.UUID;
+
+class InventoryItemRepositoryImpl implements InventoryItemRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<InventoryItem> findCurrentById(UUID itemId) {
+        InventoryItem item = entityManager.find(InventoryItem.class, itemId);
+        if (item != null) {
+            entityManager.refresh(item);
+        }
+        return Optional.ofNullable(item);
+    }
+}
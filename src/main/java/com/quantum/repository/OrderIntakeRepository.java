@@ -0,0 +1,7 @@
+package com.quantum.repository;
+
+import com.quantum.model.OrderIntake;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OrderIntakeRepository extends JpaRepository<OrderIntake, String> {
+}
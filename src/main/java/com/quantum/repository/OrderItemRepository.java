@@ -1,7 +1,11 @@
 package com.quantum.repository;
 
+import com.quantum.dto.OpenKitchenItem;
+import com.quantum.dto.OrderItemView;
 import com.quantum.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +14,17 @@ import java.util.UUID;
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, UUID> {
     List<OrderItem> findByOrderId(UUID orderId);
-}
 
+    @Query("SELECT new com.quantum.dto.OrderItemView(oi.id, m.id, m.name, oi.quantity, oi.price) " +
+            "FROM OrderItem oi LEFT JOIN oi.menuItem m WHERE oi.order.id = :orderId")
+    List<OrderItemView> findViewsByOrderId(@Param("orderId") UUID orderId);
 
+    /**
+     * Items of all open orders, oldest order first, driven by the partial index over open orders.
+     */
+    @Query("SELECT new com.quantum.dto.OpenKitchenItem(oi.id, o.id, o.restaurant.id, t.id, m.name, m.station, " +
+            "oi.quantity, o.createdAt) " +
+            "FROM OrderItem oi JOIN oi.order o LEFT JOIN o.table t LEFT JOIN oi.menuItem m " +
+            "WHERE o.status = com.quantum.model.Order.Status.PENDING ORDER BY o.createdAt, oi.id")
+    List<OpenKitchenItem> findOpenKitchenItems();
+}
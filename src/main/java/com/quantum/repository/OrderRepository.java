@@ -1,15 +1,139 @@
 package com.quantum.repository;
 
+import com.quantum.dto.ActiveTableOrder;
+import com.quantum.dto.OrderExportRow;
+import com.quantum.dto.OrderStatusRow;
+import com.quantum.dto.OrderSummary;
 import com.quantum.model.Order;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, UUID> {
+public interface OrderRepository extends JpaRepository<Order, UUID>, JpaSpecificationExecutor<Order>,
+        OrderRepositoryCustom {
     List<Order> findByRestaurantId(UUID restaurantId);
     List<Order> findByTableId(int tableId);
     List<Order> findByWaiterId(UUID waiterId);
+
+    @Query("SELECT new com.quantum.dto.OrderSummary(o.id, o.restaurant.id, t.id, t.tableNumber, w.id, w.name, " +
+            "o.totalAmount, o.paidAmount, o.status, o.createdAt, o.updatedAt) " +
+            "FROM Order o LEFT JOIN o.table t LEFT JOIN o.waiter w WHERE o.id = :orderId")
+    Optional<OrderSummary> findSummaryById(@Param("orderId") UUID orderId);
+
+    @Query("SELECT new com.quantum.dto.OrderSummary(o.id, o.restaurant.id, t.id, t.tableNumber, w.id, w.name, " +
+            "o.totalAmount, o.paidAmount, o.status, o.createdAt, o.updatedAt) " +
+            "FROM Order o LEFT JOIN o.table t LEFT JOIN o.waiter w WHERE o.restaurant.id = :restaurantId " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesByRestaurantId(@Param("restaurantId") UUID restaurantId);
+
+    // Open-order lookups. The status literal must match the predicate of the partial indexes in V23.
+    @Query("SELECT new com.quantum.dto.OrderSummary(o.id, o.restaurant.id, t.id, t.tableNumber, w.id, w.name, " +
+            "o.totalAmount, o.paidAmount, o.status, o.createdAt, o.updatedAt) " +
+            "FROM Order o LEFT JOIN o.table t LEFT JOIN o.waiter w " +
+            "WHERE o.restaurant.id = :restaurantId AND o.status = com.quantum.model.Order.Status.PENDING " +
+            "ORDER BY o.createdAt, o.id")
+    List<OrderSummary> findOpenSummariesByRestaurantId(@Param("restaurantId") UUID restaurantId);
+
+    @Query("SELECT new com.quantum.dto.OrderSummary(o.id, o.restaurant.id, t.id, t.tableNumber, w.id, w.name, " +
+            "o.totalAmount, o.paidAmount, o.status, o.createdAt, o.updatedAt) " +
+            "FROM Order o JOIN o.table t LEFT JOIN o.waiter w " +
+            "WHERE t.id = :tableId AND o.status = com.quantum.model.Order.Status.PENDING " +
+            "ORDER BY o.createdAt, o.id")
+    List<OrderSummary> findOpenSummariesByTableId(@Param("tableId") int tableId);
+
+    @Query("SELECT new com.quantum.dto.OrderSummary(o.id, o.restaurant.id, t.id, t.tableNumber, w.id, w.name, " +
+            "o.totalAmount, o.paidAmount, o.status, o.createdAt, o.updatedAt) " +
+            "FROM Order o LEFT JOIN o.table t JOIN o.waiter w " +
+            "WHERE w.id = :waiterId AND o.status = com.quantum.model.Order.Status.PENDING " +
+            "ORDER BY o.createdAt, o.id")
+    List<OrderSummary> findOpenSummariesByWaiterId(@Param("waiterId") UUID waiterId);
+
+    @Query("SELECT new com.quantum.dto.ActiveTableOrder(t.id, o.id) FROM Order o JOIN o.table t " +
+            "WHERE o.status = com.quantum.model.Order.Status.PENDING ORDER BY o.createdAt, o.id")
+    List<ActiveTableOrder> findActiveTableOrders();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.quantum.dto.OrderExportRow(o.id, o.restaurant.id, o.table.id, o.waiter.id, o.totalAmount, " +
+            "o.paidAmount, o.status, o.createdAt, o.updatedAt) FROM Order o " +
+            "WHERE o.restaurant.id = :restaurantId AND o.createdAt >= :from AND o.createdAt < :to " +
+            "ORDER BY o.createdAt, o.id")
+    Stream<OrderExportRow> streamExportRows(@Param("restaurantId") UUID restaurantId,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.quantum.dto.OrderStatusRow(o.id, o.restaurant.id, t.id, o.status, o.createdAt) " +
+            "FROM Order o LEFT JOIN o.table t WHERE o.id IN :orderIds")
+    List<OrderStatusRow> findStatusRows(@Param("orderIds") Collection<UUID> orderIds);
+
+    /**
+     * Set-based status change of several orders in one statement. Only rows still in one of the
+     * expected source statuses are changed, so a concurrent change is never overwritten.
+     * Bumps the version like any other update. createdFrom..createdTo must span the orders' created_at,
+     * so only the monthly partitions holding them are scanned.
+     *
+     * @return The ids of the updated orders.
+     */
+    @Query(value = "UPDATE orders SET status = :status, updated_at = :updatedAt, version = version + 1 " +
+            "WHERE id = ANY(:orderIds) AND created_at BETWEEN :createdFrom AND :createdTo " +
+            "AND status IN (:fromStatuses) RETURNING id", nativeQuery = true)
+    List<UUID> updateStatuses(@Param("orderIds") UUID[] orderIds,
+                              @Param("createdFrom") LocalDateTime createdFrom,
+                              @Param("createdTo") LocalDateTime createdTo,
+                              @Param("fromStatuses") Collection<String> fromStatuses,
+                              @Param("status") String status,
+                              @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Atomically add to an order's total in the database, without a read-modify-write of the entity.
+     * Bumps the version so concurrent entity updates of the same order detect the change. The order's
+     * createdAt (the partition key) confines the update to its monthly partition.
+     *
+     * @return The number of updated rows (0 when the order does not exist).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.totalAmount = o.totalAmount + :amount, o.updatedAt = :updatedAt, " +
+            "o.version = o.version + 1 WHERE o.id = :orderId AND o.createdAt = :createdAt")
+    int incrementTotalAmount(@Param("orderId") UUID orderId,
+                             @Param("createdAt") LocalDateTime createdAt,
+                             @Param("amount") double amount,
+                             @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Atomically book a payment on an order: the paid amount only grows when the payment fits in the
+     * remaining balance, and an order in one of the completable statuses becomes COMPLETED in the same
+     * statement once fully paid. Concurrent payments can therefore never overpay, without a row lock
+     * across a read and a write. Bumps the version like any other update.
+     *
+     * Payments only know the order id, so this cannot prune partitions: like findById it probes the
+     * (id, created_at) primary key index of every attached orders partition, one index descent each as
+     * id leads the key. The number of attached partitions, logged by PartitionMaintenanceService, is
+     * the cost factor, and partitioning.retention-months bounds it.
+     *
+     * @return 1 when the payment was booked, 0 when the order does not exist or the payment does not fit.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.paidAmount = o.paidAmount + :amount, " +
+            "o.status = CASE WHEN o.paidAmount + :amount >= o.totalAmount AND o.status IN :completable " +
+            "THEN :completed ELSE o.status END, " +
+            "o.updatedAt = :updatedAt, o.version = o.version + 1 " +
+            "WHERE o.id = :orderId AND o.paidAmount + :amount <= o.totalAmount")
+    int applyPayment(@Param("orderId") UUID orderId,
+                     @Param("amount") double amount,
+                     @Param("completable") Collection<Order.Status> completable,
+                     @Param("completed") Order.Status completed,
+                     @Param("updatedAt") LocalDateTime updatedAt);
 }
@@ -0,0 +1,16 @@
+package com.quantum.repository;
+
+import com.quantum.dto.OrderSummary;
+import com.quantum.model.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * Single-query projection of the orders matching a specification, without loading Order entities.
+     */
+    List<OrderSummary> findSummaries(Specification<Order> spec, Sort sort, int limit);
+}
@@ -0,0 +1,46 @@
+package com.quantum.repository;
+
+import com.quantum.dto.OrderSummary;
+import com.quantum.model.Employee;
+import com.quantum.model.Order;
+import com.quantum.model.Table;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummary> findSummaries(Specification<Order> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummary> query = cb.createQuery(OrderSummary.class);
+        Root<Order> root = query.from(Order.class);
+        Join<Order, Table> table = root.join("table", JoinType.LEFT);
+        Join<Order, Employee> waiter = root.join("waiter", JoinType.LEFT);
+
+        query.select(cb.construct(OrderSummary.class,
+                root.get("id"), root.get("restaurant").get("id"), table.get("id"), table.get("tableNumber"),
+                waiter.get("id"), waiter.get("name"), root.get("totalAmount"), root.get("paidAmount"),
+                root.get("status"), root.get("createdAt"), root.get("updatedAt")));
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.quantum.repository;
+
+import com.quantum.model.Order;
+import com.quantum.model.OrderItem;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reusable filters for Order queries. Each factory returns null when its filter is not set,
+ * which Specification composition ignores.
+ */
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> hasRestaurant(UUID restaurantId) {
+        return (root, query, cb) -> cb.equal(root.get("restaurant").get("id"), restaurantId);
+    }
+
+    public static Specification<Order> hasStatus(Order.Status status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Order> hasTable(Integer tableId) {
+        return tableId == null ? null : (root, query, cb) -> cb.equal(root.get("table").get("id"), tableId);
+    }
+
+    public static Specification<Order> hasWaiter(UUID waiterId) {
+        return waiterId == null ? null : (root, query, cb) -> cb.equal(root.get("waiter").get("id"), waiterId);
+    }
+
+    public static Specification<Order> createdFrom(LocalDateTime from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<LocalDateTime>get("createdAt"), from);
+    }
+
+    public static Specification<Order> createdBefore(LocalDateTime to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThan(root.<LocalDateTime>get("createdAt"), to);
+    }
+
+    public static Specification<Order> totalFrom(Double minTotal) {
+        return minTotal == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<Double>get("totalAmount"), minTotal);
+    }
+
+    public static Specification<Order> totalTo(Double maxTotal) {
+        return maxTotal == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.<Double>get("totalAmount"), maxTotal);
+    }
+
+    /**
+     * Orders containing every one of the menu items, as one EXISTS per item on order_items.
+     */
+    public static Specification<Order> containsMenuItems(Collection<UUID> menuItemIds) {
+        if (menuItemIds == null || menuItemIds.isEmpty()) {
+            return null;
+        }
+        List<UUID> distinctIds = List.copyOf(new LinkedHashSet<>(menuItemIds));
+        return (root, query, cb) -> {
+            Predicate[] predicates = new Predicate[distinctIds.size()];
+            for (int i = 0; i < predicates.length; i++) {
+                Subquery<Integer> subquery = query.subquery(Integer.class);
+                Root<OrderItem> orderItem = subquery.from(OrderItem.class);
+                subquery.select(cb.literal(1)).where(
+                        cb.equal(orderItem.get("menuItem").get("id"), distinctIds.get(i)),
+                        cb.equal(orderItem.get("order").get("id"), root.get("id")));
+                predicates[i] = cb.exists(subquery);
+            }
+            return cb.and(predicates);
+        };
+    }
+
+    /**
+     * Keyset predicate for pages ordered by (createdAt DESC, id DESC): rows strictly after the cursor.
+     * The redundant createdAt bound lets Postgres prune the monthly partitions newer than the cursor,
+     * which it cannot derive from the OR alone.
+     */
+    public static Specification<Order> after(LocalDateTime createdAt, UUID id) {
+        if (createdAt == null || id == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.<LocalDateTime>get("createdAt"), createdAt),
+                cb.or(
+                        cb.lessThan(root.<LocalDateTime>get("createdAt"), createdAt),
+                        cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.<UUID>get("id"), id))));
+    }
+}
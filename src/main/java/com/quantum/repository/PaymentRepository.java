@@ -1,13 +1,37 @@
 package com.quantum.repository;
 
+import com.quantum.dto.PaymentExportRow;
+import com.quantum.dto.PaymentSubmission;
 import com.quantum.model.Payment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     List<Payment> findByOrderId(UUID orderId);
+
+    @Query("SELECT new com.quantum.dto.PaymentSubmission(p.id, p.order.id, p.amount, p.paymentMethod) " +
+            "FROM Payment p WHERE p.paymentStatus = :status AND p.paymentMethod <> :excludedMethod " +
+            "ORDER BY p.paymentDate")
+    List<PaymentSubmission> findSubmissionsByStatus(@Param("status") Payment.PaymentStatus status,
+                                                    @Param("excludedMethod") Payment.PaymentMethod excludedMethod);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.quantum.dto.PaymentExportRow(p.id, p.order.id, p.amount, p.paymentMethod, " +
+            "p.paymentStatus, p.paymentDate) FROM Payment p " +
+            "WHERE p.order.restaurant.id = :restaurantId AND p.paymentDate >= :from AND p.paymentDate < :to " +
+            "ORDER BY p.paymentDate, p.id")
+    Stream<PaymentExportRow> streamExportRows(@Param("restaurantId") UUID restaurantId,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to);
 }
@@ -1,11 +1,53 @@
 package com.quantum.repository;
 
+import com.quantum.dto.StockTransactionExportRow;
 import com.quantum.model.StockTransaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface StockTransactionRepository extends JpaRepository<StockTransaction, UUID> {
     List<StockTransaction> findByInventoryItemId(UUID inventoryItemId);
+
+    /**
+     * Set-based reversal of the stock used for orders: the net USAGE and REVERSAL quantity of each
+     * (order, item) that is still negative is booked as a REVERSAL row, and each item gets the sum of
+     * its reversals back in one grouped update. The since bound prunes the older monthly partitions.
+     *
+     * @return The ids of the updated inventory items.
+     */
+    @Query(value = "WITH net AS (" +
+            "  SELECT order_id, inventory_item_id, -SUM(quantity) AS quantity FROM stock_transaction " +
+            "  WHERE order_id = ANY(:orderIds) AND date >= :since AND type IN ('USAGE', 'REVERSAL') " +
+            "  GROUP BY order_id, inventory_item_id HAVING SUM(quantity) < 0" +
+            "), reversal AS (" +
+            "  INSERT INTO stock_transaction (id, inventory_item_id, quantity, type, date, note, order_id) " +
+            "  SELECT gen_random_uuid(), inventory_item_id, quantity, 'REVERSAL', :now, " +
+            "         :note || ' ID: ' || order_id, order_id FROM net " +
+            "  RETURNING inventory_item_id, quantity" +
+            ") " +
+            "UPDATE inventory_item i SET quantity = i.quantity + r.quantity, updated_at = :now " +
+            "FROM (SELECT inventory_item_id, SUM(quantity) AS quantity FROM reversal GROUP BY inventory_item_id) r " +
+            "WHERE i.id = r.inventory_item_id RETURNING i.id", nativeQuery = true)
+    List<UUID> reverseOrderUsage(@Param("orderIds") UUID[] orderIds,
+                                 @Param("since") LocalDateTime since,
+                                 @Param("now") LocalDateTime now,
+                                 @Param("note") String note);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.quantum.dto.StockTransactionExportRow(t.id, i.id, i.name, t.quantity, t.type, t.date, " +
+            "t.note) FROM StockTransaction t JOIN t.inventoryItem i " +
+            "WHERE i.restaurant.id = :restaurantId AND t.date >= :from AND t.date < :to " +
+            "ORDER BY t.date, t.id")
+    Stream<StockTransactionExportRow> streamExportRows(@Param("restaurantId") UUID restaurantId,
+                                                       @Param("from") LocalDateTime from,
+                                                       @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,136 @@
+package com.quantum.service;
+
+import com.quantum.dto.ActiveTableOrder;
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.dto.OrderSummary;
+import com.quantum.model.Order;
+import com.quantum.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index from table id to the table's active (open) order, answering "what is open on
+ * table N" without touching the database. Built from the open orders at startup and kept current
+ * from the committed order events: a created order becomes its table's active order, completing or
+ * canceling it clears the entry (falling back to an older open order of the table, if any), and a
+ * reopened order becomes active again unless the table has another open order by now.
+ */
+@Service
+public class ActiveOrderIndex {
+
+    private final OrderRepository orderRepository;
+    private final IntUuidMap activeOrders = new IntUuidMap(256);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public ActiveOrderIndex(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * @return The id of the table's active order, or null when the table has none.
+     */
+    public UUID getActiveOrderId(int tableId) {
+        lock.readLock().lock();
+        try {
+            return activeOrders.get(tableId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Oldest first, so the newest open order of a table wins
+        List<ActiveTableOrder> openOrders = orderRepository.findActiveTableOrders();
+        lock.writeLock().lock();
+        try {
+            activeOrders.clear();
+            for (ActiveTableOrder openOrder : openOrders) {
+                activeOrders.put(openOrder.tableId(), openOrder.orderId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderEvent event) {
+        apply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvents(OrderEventBatch batch) {
+        batch.events().forEach(this::apply);
+    }
+
+    private void apply(OrderEvent event) {
+        if (event.tableId() == null || event.orderId() == null || event.status() == null) {
+            return;
+        }
+        int tableId = event.tableId();
+        if (event.type() == OrderEvent.Type.ORDER_CREATED && !event.status().isTerminal()) {
+            lock.writeLock().lock();
+            try {
+                activeOrders.put(tableId, event.orderId());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else if (event.type() == OrderEvent.Type.STATUS_CHANGED && event.status().isTerminal()) {
+            boolean removed;
+            lock.writeLock().lock();
+            try {
+                removed = activeOrders.remove(tableId, event.orderId());
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (removed) {
+                restoreOlderOpenOrder(tableId);
+            }
+        } else if (event.type() == OrderEvent.Type.STATUS_CHANGED) {
+            lock.writeLock().lock();
+            try {
+                if (activeOrders.get(tableId) == null) {
+                    activeOrders.put(tableId, event.orderId());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Rare: a table with several open orders lost its newest one
+    private void restoreOlderOpenOrder(int tableId) {
+        List<OrderSummary> openOrders = orderRepository.findOpenSummariesByTableId(tableId);
+        if (openOrders.isEmpty()) {
+            return;
+        }
+        UUID newest = openOrders.get(openOrders.size() - 1).id();
+        lock.writeLock().lock();
+        try {
+            if (activeOrders.get(tableId) == null) {
+                activeOrders.put(tableId, newest);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return activeOrders.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
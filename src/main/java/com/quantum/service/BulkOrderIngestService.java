@@ -0,0 +1,375 @@
+package com.quantum.service;
+
+import com.quantum.dto.BulkOrderResult;
+import com.quantum.dto.OfflineOrder;
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.dto.OrderItemRequest;
+import com.quantum.model.Employee;
+import com.quantum.model.MenuItem;
+import com.quantum.model.Order;
+import com.quantum.model.OrderIntake;
+import com.quantum.model.OrderItem;
+import com.quantum.model.Restaurant;
+import com.quantum.model.Table;
+import com.quantum.repository.EmployeeRepository;
+import com.quantum.repository.MenuItemRepository;
+import com.quantum.repository.OrderIntakeRepository;
+import com.quantum.repository.RestaurantRepository;
+import com.quantum.repository.TableRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ingest of orders captured offline, e.g. by tablets while the restaurant had no connection, and
+ * uploaded together. References are resolved with one query per kind, the orders, their items and
+ * their order_intake rows are written as JDBC batches in one transaction, and the stock usage of all
+ * orders is applied with a single load and update of each inventory item.
+ *
+ * Invalid orders are rejected up front, and client order ids taken in before (by an earlier upload or
+ * by the order intake) are reported as duplicates. If the batch write still fails, e.g. because a
+ * concurrent upload carried the same order, the orders are written again one transaction each, so one
+ * bad order never rolls back the others. The orders were handled offline, so no ticket numbers are
+ * assigned and stock that cannot cover them is logged instead of failing them.
+ *
+ * Orders are written with the status they had reached offline. Only the ones still open are announced
+ * (and so reach the kitchen and the active order index); canceled ones use no stock.
+ */
+@Service
+public class BulkOrderIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkOrderIngestService.class);
+
+    static final int MAX_ORDERS = 1000;
+    // Client clocks drift, order times further ahead than this are refused
+    static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(5);
+    private static final int BATCH_SIZE = 500;
+
+    static final String INSERT_INTAKE_SQL = "INSERT INTO order_intake (client_order_id, restaurant_id, order_id, " +
+            "status, accepted_at, processed_at) VALUES (?, ?, ?, 'APPLIED', ?, ?)";
+    static final String INSERT_ORDER_SQL = "INSERT INTO orders (id, restaurant_id, table_id, waiter_id, " +
+            "total_amount, paid_amount, status, created_at, updated_at, version) " +
+            "VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?, 0)";
+    static final String INSERT_ITEM_SQL = "INSERT INTO order_items (id, order_id, menu_item_id, quantity, price, " +
+            "created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final RestaurantRepository restaurantRepository;
+    private final TableRepository tableRepository;
+    private final EmployeeRepository employeeRepository;
+    private final MenuItemRepository menuItemRepository;
+    private final OrderIntakeRepository intakeRepository;
+    private final RecipeCache recipeCache;
+    private final InventoryDeductionService inventoryDeductionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations transactionOperations;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+
+    @Autowired
+    public BulkOrderIngestService(RestaurantRepository restaurantRepository,
+                                  TableRepository tableRepository,
+                                  EmployeeRepository employeeRepository,
+                                  MenuItemRepository menuItemRepository,
+                                  OrderIntakeRepository intakeRepository,
+                                  RecipeCache recipeCache,
+                                  InventoryDeductionService inventoryDeductionService,
+                                  JdbcTemplate jdbcTemplate,
+                                  TransactionOperations transactionOperations,
+                                  ApplicationEventPublisher eventPublisher) {
+        this(restaurantRepository, tableRepository, employeeRepository, menuItemRepository, intakeRepository,
+                recipeCache, inventoryDeductionService, jdbcTemplate, transactionOperations, eventPublisher,
+                Clock.systemDefaultZone());
+    }
+
+    BulkOrderIngestService(RestaurantRepository restaurantRepository, TableRepository tableRepository,
+                           EmployeeRepository employeeRepository, MenuItemRepository menuItemRepository,
+                           OrderIntakeRepository intakeRepository, RecipeCache recipeCache,
+                           InventoryDeductionService inventoryDeductionService, JdbcTemplate jdbcTemplate,
+                           TransactionOperations transactionOperations, ApplicationEventPublisher eventPublisher,
+                           Clock clock) {
+        this.restaurantRepository = restaurantRepository;
+        this.tableRepository = tableRepository;
+        this.employeeRepository = employeeRepository;
+        this.menuItemRepository = menuItemRepository;
+        this.intakeRepository = intakeRepository;
+        this.recipeCache = recipeCache;
+        this.inventoryDeductionService = inventoryDeductionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionOperations = transactionOperations;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+    }
+
+    /**
+     * Create a restaurant's offline orders.
+     *
+     * @param restaurantId The restaurant the orders were taken in.
+     * @param orders The orders, at most MAX_ORDERS.
+     * @return One result per order, in request order.
+     */
+    public List<BulkOrderResult> ingest(UUID restaurantId, List<OfflineOrder> orders) {
+        if (orders == null || orders.isEmpty()) {
+            throw new IllegalArgumentException("At least one order is required.");
+        }
+        if (orders.size() > MAX_ORDERS) {
+            throw new IllegalArgumentException("At most " + MAX_ORDERS + " orders can be ingested at once.");
+        }
+        Restaurant restaurant = restaurantRepository.findById(restaurantId)
+                .orElseThrow(() -> new EntityNotFoundException("Restaurant not found with ID: " + restaurantId));
+
+        Set<Integer> tableIds = new HashSet<>();
+        Set<UUID> waiterIds = new HashSet<>();
+        Set<UUID> menuItemIds = new HashSet<>();
+        Set<String> clientOrderIds = new HashSet<>();
+        for (OfflineOrder order : orders) {
+            tableIds.add(order.tableId());
+            if (order.waiterId() != null) {
+                waiterIds.add(order.waiterId());
+            }
+            if (order.clientOrderId() != null) {
+                clientOrderIds.add(order.clientOrderId());
+            }
+            if (order.items() != null) {
+                for (OrderItemRequest item : order.items()) {
+                    if (item.menuItemId() != null) {
+                        menuItemIds.add(item.menuItemId());
+                    }
+                }
+            }
+        }
+        // References of other restaurants are left out, so orders naming them are rejected as not found
+        Map<Integer, Table> tables = new HashMap<>();
+        for (Table table : tableRepository.findAllById(tableIds)) {
+            if (isOf(restaurantId, table.getFloor().getLayout().getRestaurant())) {
+                tables.put(table.getId(), table);
+            }
+        }
+        Map<UUID, Employee> waiters = new HashMap<>();
+        for (Employee waiter : employeeRepository.findAllById(waiterIds)) {
+            if (isOf(restaurantId, waiter.getRestaurant())) {
+                waiters.put(waiter.getId(), waiter);
+            }
+        }
+        Map<UUID, MenuItem> menuItems = new HashMap<>();
+        for (MenuItem menuItem : menuItemRepository.findAllById(menuItemIds)) {
+            if (menuItem.getMenu() != null && isOf(restaurantId, menuItem.getMenu().getRestaurant())) {
+                menuItems.put(menuItem.getId(), menuItem);
+            }
+        }
+        Map<String, OrderIntake> takenIn = new HashMap<>();
+        intakeRepository.findAllById(clientOrderIds).forEach(intake -> takenIn.put(intake.getClientOrderId(), intake));
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        BulkOrderResult[] results = new BulkOrderResult[orders.size()];
+        List<PreparedOrder> prepared = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < orders.size(); i++) {
+            OfflineOrder order = orders.get(i);
+            String error = validate(order, tables, waiters, menuItems, now);
+            if (error != null) {
+                results[i] = new BulkOrderResult(order.clientOrderId(), BulkOrderResult.Outcome.REJECTED, null, error);
+            } else if (takenIn.containsKey(order.clientOrderId())) {
+                results[i] = duplicate(takenIn.get(order.clientOrderId()));
+            } else if (!seen.add(order.clientOrderId())) {
+                results[i] = new BulkOrderResult(order.clientOrderId(), BulkOrderResult.Outcome.DUPLICATE, null,
+                        "Client order ID repeated in this upload.");
+            } else {
+                prepared.add(prepare(i, order, restaurant, tables.get(order.tableId()), waiters.get(order.waiterId()),
+                        menuItems, now));
+            }
+        }
+        if (prepared.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        recipeCache.preload(menuItems.keySet());
+        try {
+            transactionOperations.executeWithoutResult(status -> write(prepared, now));
+            for (PreparedOrder order : prepared) {
+                results[order.index()] = created(order);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Bulk ingest of {} orders for restaurant {} failed, writing them one by one: {}",
+                    prepared.size(), restaurantId, e.getMessage());
+            for (PreparedOrder order : prepared) {
+                results[order.index()] = writeAlone(order, now);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private BulkOrderResult writeAlone(PreparedOrder order, LocalDateTime now) {
+        try {
+            transactionOperations.executeWithoutResult(status -> write(List.of(order), now));
+            return created(order);
+        } catch (DataAccessException e) {
+            OrderIntake existing = intakeRepository.findById(order.source().clientOrderId()).orElse(null);
+            if (existing != null) {
+                return duplicate(existing);
+            }
+            log.warn("Offline order {} could not be written", order.source().clientOrderId(), e);
+            return new BulkOrderResult(order.source().clientOrderId(), BulkOrderResult.Outcome.REJECTED, null,
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    // Insert the orders with their items and intake rows, deduct their stock and announce the open ones after commit
+    private void write(List<PreparedOrder> orders, LocalDateTime now) {
+        Timestamp processedAt = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(INSERT_INTAKE_SQL, orders, BATCH_SIZE, (statement, prepared) -> {
+            statement.setString(1, prepared.source().clientOrderId());
+            statement.setObject(2, prepared.order().getRestaurant().getId());
+            statement.setObject(3, prepared.order().getId());
+            statement.setTimestamp(4, Timestamp.valueOf(prepared.order().getCreatedAt()));
+            statement.setTimestamp(5, processedAt);
+        });
+        jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, orders, BATCH_SIZE, (statement, prepared) -> {
+            Order order = prepared.order();
+            statement.setObject(1, order.getId());
+            statement.setObject(2, order.getRestaurant().getId());
+            statement.setInt(3, order.getTable().getId());
+            statement.setObject(4, order.getWaiter().getId());
+            statement.setDouble(5, order.getTotalAmount());
+            statement.setString(6, order.getStatus().name());
+            statement.setTimestamp(7, Timestamp.valueOf(order.getCreatedAt()));
+            statement.setTimestamp(8, processedAt);
+        });
+
+        List<OrderItem> items = new ArrayList<>();
+        List<StockTransactionService.StockUsage> usages = new ArrayList<>();
+        List<OrderEvent> events = new ArrayList<>();
+        for (PreparedOrder prepared : orders) {
+            Order order = prepared.order();
+            items.addAll(order.getOrderItems());
+            if (order.getStatus() != Order.Status.CANCELED) {
+                for (StockTransactionService.StockUsage usage
+                        : recipeCache.stockUsage(order.getOrderItems(), "Used for order ID: " + order.getId())) {
+                    usages.add(usage.forOrder(order.getId()));
+                }
+            }
+            // Completed and canceled orders are history; the kitchen must not start on them
+            if (!order.getStatus().isTerminal()) {
+                events.add(OrderEvent.orderCreated(order));
+                for (OrderItem item : order.getOrderItems()) {
+                    events.add(OrderEvent.itemAdded(order, item));
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items, BATCH_SIZE, (statement, item) -> {
+            statement.setObject(1, item.getId());
+            statement.setObject(2, item.getOrder().getId());
+            statement.setObject(3, item.getMenuItem().getId());
+            statement.setInt(4, item.getQuantity());
+            statement.setDouble(5, item.getPrice());
+            statement.setTimestamp(6, Timestamp.valueOf(item.getOrder().getCreatedAt()));
+        });
+
+        inventoryDeductionService.deductAccepted(usages);
+        if (!events.isEmpty()) {
+            eventPublisher.publishEvent(new OrderEventBatch(events));
+        }
+    }
+
+    private static String validate(OfflineOrder order, Map<Integer, Table> tables, Map<UUID, Employee> waiters,
+                                   Map<UUID, MenuItem> menuItems, LocalDateTime now) {
+        if (order.clientOrderId() == null || order.clientOrderId().isBlank()) {
+            return "A client order ID is required.";
+        }
+        if (order.clientOrderId().length() > OrderIntakeService.MAX_CLIENT_ORDER_ID_LENGTH) {
+            return "Client order ID must not be longer than " + OrderIntakeService.MAX_CLIENT_ORDER_ID_LENGTH
+                    + " characters.";
+        }
+        if (order.createdAt() == null) {
+            return "Order time is required.";
+        }
+        if (order.createdAt().isAfter(now.plus(MAX_CLOCK_SKEW))) {
+            return "Order time must not be in the future.";
+        }
+        if (!tables.containsKey(order.tableId())) {
+            return "Table not found with ID: " + order.tableId();
+        }
+        if (order.waiterId() == null || !waiters.containsKey(order.waiterId())) {
+            return "Waiter not found with ID: " + order.waiterId();
+        }
+        if (order.items() == null || order.items().isEmpty()) {
+            return "At least one order item is required.";
+        }
+        for (OrderItemRequest item : order.items()) {
+            if (item.menuItemId() == null || !menuItems.containsKey(item.menuItemId())) {
+                return "MenuItem not found with ID: " + item.menuItemId();
+            }
+            if (item.quantity() <= 0) {
+                return "Quantity must be greater than zero.";
+            }
+        }
+        return null;
+    }
+
+    private static PreparedOrder prepare(int index, OfflineOrder source, Restaurant restaurant, Table table,
+                                         Employee waiter, Map<UUID, MenuItem> menuItems, LocalDateTime now) {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setRestaurant(restaurant);
+        order.setTable(table);
+        order.setWaiter(waiter);
+        order.setPaidAmount(0.0);
+        order.setStatus(source.status() == null ? Order.Status.PENDING : source.status());
+        order.setCreatedAt(source.createdAt());
+        order.setUpdatedAt(now);
+
+        double total = 0;
+        for (OrderItemRequest request : source.items()) {
+            MenuItem menuItem = menuItems.get(request.menuItemId());
+            OrderItem item = new OrderItem();
+            item.setId(UUID.randomUUID());
+            item.setOrder(order);
+            item.setMenuItem(menuItem);
+            item.setQuantity(request.quantity());
+            item.setPrice(menuItem.getPrice());
+            order.getOrderItems().add(item);
+            total += request.quantity() * menuItem.getPrice();
+        }
+        order.setTotalAmount(total);
+        return new PreparedOrder(index, source, order);
+    }
+
+    private static boolean isOf(UUID restaurantId, Restaurant restaurant) {
+        return restaurant != null && restaurantId.equals(restaurant.getId());
+    }
+
+    private static BulkOrderResult created(PreparedOrder order) {
+        return new BulkOrderResult(order.source().clientOrderId(), BulkOrderResult.Outcome.CREATED,
+                order.order().getId(), null);
+    }
+
+    private static BulkOrderResult duplicate(OrderIntake intake) {
+        return new BulkOrderResult(intake.getClientOrderId(), BulkOrderResult.Outcome.DUPLICATE, intake.getOrderId(),
+                intake.getStatus() == OrderIntake.Status.REJECTED ? intake.getError() : null);
+    }
+
+    /**
+     * A validated order ready to be written: its position in the request, the request and the order built from it.
+     */
+    private record PreparedOrder(int index, OfflineOrder source, Order order) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.quantum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quantum.dto.ExportRow;
+import com.quantum.dto.OrderExportRow;
+import com.quantum.dto.PaymentExportRow;
+import com.quantum.dto.StockTransactionExportRow;
+import com.quantum.repository.OrderRepository;
+import com.quantum.repository.PaymentRepository;
+import com.quantum.repository.StockTransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Streams a restaurant's history for a date range straight from a database cursor to the response.
+ * Rows are flat projections read with a fixed fetch size, so memory use does not grow with the export.
+ */
+@Service
+public class ExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+    private final StockTransactionRepository stockTransactionRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExportService(OrderRepository orderRepository,
+                         PaymentRepository paymentRepository,
+                         StockTransactionRepository stockTransactionRepository,
+                         ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.paymentRepository = paymentRepository;
+        this.stockTransactionRepository = stockTransactionRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void exportOrders(UUID restaurantId, LocalDateTime from, LocalDateTime to, Format format,
+                             OutputStream out) throws IOException {
+        validateRange(from, to);
+        try (Stream<OrderExportRow> rows = orderRepository.streamExportRows(restaurantId, from, to)) {
+            write(rows, OrderExportRow.CSV_HEADER, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportPayments(UUID restaurantId, LocalDateTime from, LocalDateTime to, Format format,
+                               OutputStream out) throws IOException {
+        validateRange(from, to);
+        try (Stream<PaymentExportRow> rows = paymentRepository.streamExportRows(restaurantId, from, to)) {
+            write(rows, PaymentExportRow.CSV_HEADER, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportStockTransactions(UUID restaurantId, LocalDateTime from, LocalDateTime to, Format format,
+                                        OutputStream out) throws IOException {
+        validateRange(from, to);
+        try (Stream<StockTransactionExportRow> rows = stockTransactionRepository.streamExportRows(restaurantId, from, to)) {
+            write(rows, StockTransactionExportRow.CSV_HEADER, format, out);
+        }
+    }
+
+    public void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Export range start must be before its end.");
+        }
+    }
+
+    private void write(Stream<? extends ExportRow> rows, List<String> header, Format format,
+                       OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writeCsvLine(writer, header);
+        }
+
+        Iterator<? extends ExportRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            ExportRow row = iterator.next();
+            if (format == Format.CSV) {
+                writeCsvLine(writer, row.csvValues());
+            } else {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeCsvLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                writer.write(escapeCsv(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,158 @@
+package com.quantum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, expiring store of responses keyed by client supplied Idempotency-Key headers.
+ * The first request with a key runs the action; retries with the same key get the stored
+ * response, and concurrent duplicates wait for the in-flight execution instead of running it again.
+ * A key sent again with a different request is rejected (422) instead of replaying the other response.
+ */
+@Service
+public class IdempotencyService {
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries;
+
+    @Autowired
+    public IdempotencyService(ObjectMapper objectMapper,
+                              @Value("${idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${idempotency.ttl-minutes:1440}") long ttlMinutes) {
+        this(objectMapper, maxEntries, Duration.ofMinutes(ttlMinutes), System::currentTimeMillis);
+    }
+
+    IdempotencyService(ObjectMapper objectMapper, int maxEntries, Duration ttl, LongSupplier clock) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= IdempotencyService.this.maxEntries && !isExpired(eldest.getValue())) {
+                    return false;
+                }
+                // Evict the oldest completed entry. In-flight ones stay, or a duplicate arriving now would
+                // run the action a second time; while all are in flight the store grows past maxEntries.
+                Iterator<Entry> iterator = values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().response.isDone()) {
+                        iterator.remove();
+                        break;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Run the action once per (scope, key). Without a key the action simply runs.
+     * Failed executions are not stored, so the client can retry them with the same key.
+     *
+     * @param scope The operation the key belongs to (e.g., "orders").
+     * @param key The Idempotency-Key header value, may be null.
+     * @param request The request parameters and body; a replay must carry an equal request.
+     * @param action The action producing the response.
+     * @return The response of the first successful execution for this key.
+     * @throws IdempotencyKeyReuseException When the key was used for a different request.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, String key, Object request, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+
+        String cacheKey = scope + ":" + key;
+        byte[] requestHash = hash(request);
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(cacheKey);
+            if (entry == null || isExpired(entry)) {
+                entry = new Entry(clock.getAsLong(), requestHash);
+                entries.put(cacheKey, entry);
+                owner = true;
+            } else if (!Arrays.equals(entry.requestHash, requestHash)) {
+                throw new IdempotencyKeyReuseException(key);
+            }
+        }
+
+        if (!owner) {
+            return (T) await(entry);
+        }
+
+        try {
+            T result = action.get();
+            entry.response.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            synchronized (entries) {
+                entries.remove(cacheKey, entry);
+            }
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Object await(Entry entry) {
+        try {
+            return entry.response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    // SHA-256 of the request as JSON, so equal requests match however they were deserialized
+    private byte[] hash(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Request cannot be fingerprinted for idempotency.", e);
+        }
+    }
+
+    // In-flight entries never expire, duplicates keep waiting on them
+    private boolean isExpired(Entry entry) {
+        return entry.response.isDone() && clock.getAsLong() - entry.createdAt >= ttlMillis;
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+        private final long createdAt;
+        private final byte[] requestHash;
+
+        private Entry(long createdAt, byte[] requestHash) {
+            this.createdAt = createdAt;
+            this.requestHash = requestHash;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.quantum.service;
+
+import java.util.UUID;
+
+/**
+ * Open-addressing hash map from primitive int keys to UUIDs (linear probing, backward-shift deletion),
+ * so lookups by an int id neither box the key nor allocate. Not thread-safe.
+ */
+final class IntUuidMap {
+
+    private int[] keys;
+    // A null value marks a free slot
+    private UUID[] values;
+    private int size;
+
+    IntUuidMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new UUID[capacity];
+    }
+
+    UUID get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    UUID put(int key, UUID value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null.");
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                UUID previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Remove the entry of key only while it still maps to expected.
+     */
+    boolean remove(int key, UUID expected) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                if (!values[slot].equals(expected)) {
+                    return false;
+                }
+                removeAt(slot);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        keys = new int[keys.length];
+        values = new UUID[values.length];
+        size = 0;
+    }
+
+    // Shift later entries of the probe chain back into the hole so lookups never stop early
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int ideal = slot(keys[next], mask);
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        UUID[] oldValues = values;
+        keys = new int[capacity];
+        values = new UUID[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,243 @@
+package com.quantum.service;
+
+import com.quantum.dto.DeductionQueueStats;
+import com.quantum.model.InventoryDeductionJob;
+import com.quantum.repository.InventoryDeductionJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deducts the ingredients of new orders from inventory. In the default synchronous mode the stock is
+ * used inside the order transaction. In asynchronous mode (inventory.deduction.async=true) the usage
+ * lines are only recorded as jobs in the order transaction, so order placement no longer waits on (or
+ * contends for) inventory rows; a pool of workers drains the jobs in batches afterwards.
+ *
+ * Inventory items are hashed onto one partition per worker and each partition is drained by one
+ * worker at a time, under a Postgres advisory lock, even with several application nodes. Each
+ * item's jobs are applied in the order they were recorded: a worker takes jobs by recording
+ * transaction and id, and only once every older transaction has ended. When an item runs out, its
+ * usages are still served in that order; those that no longer fit are kept as FAILED. A long-running
+ * transaction anywhere in the database holds back the jobs recorded after it started.
+ */
+@Service
+public class InventoryDeductionService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryDeductionService.class);
+
+    // Namespace for the partition advisory locks, keeps them apart from any other advisory lock user
+    private static final long PARTITION_LOCK_BASE = 0x51A7_0000L;
+
+    private final InventoryDeductionJobRepository jobRepository;
+    private final StockTransactionService stockTransactionService;
+    private final TransactionOperations transactionOperations;
+    private final boolean async;
+    private final int workers;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final boolean virtualThreads;
+
+    private ScheduledExecutorService executor;
+
+    public InventoryDeductionService(InventoryDeductionJobRepository jobRepository,
+                                     StockTransactionService stockTransactionService,
+                                     TransactionOperations transactionOperations,
+                                     @Value("${inventory.deduction.async:false}") boolean async,
+                                     @Value("${inventory.deduction.workers:4}") int workers,
+                                     @Value("${inventory.deduction.batch-size:200}") int batchSize,
+                                     @Value("${inventory.deduction.poll-interval-millis:200}") long pollIntervalMillis,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.jobRepository = jobRepository;
+        this.stockTransactionService = stockTransactionService;
+        this.transactionOperations = transactionOperations;
+        this.async = async;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Deduct the usage lines of an order. Must run inside the order transaction: in asynchronous mode
+     * the jobs commit or roll back together with the order.
+     *
+     * @param orderId The order the stock is used for.
+     * @param usages The usage lines, in order.
+     */
+    public void deduct(UUID orderId, List<StockTransactionService.StockUsage> usages) {
+        if (usages.isEmpty()) {
+            return;
+        }
+        List<StockTransactionService.StockUsage> orderUsages = usages.stream().map(usage -> usage.forOrder(orderId)).toList();
+        if (!async) {
+            stockTransactionService.useStockBatch(orderUsages);
+            return;
+        }
+        jobRepository.saveAll(jobs(orderUsages));
+    }
+
+    /**
+     * Deduct the usage lines of orders that have already been served, e.g. captured offline, inside
+     * the caller's transaction. Unlike deduct, stock that cannot cover a line does not fail the orders:
+     * the line is skipped and logged (in asynchronous mode the worker keeps it as a FAILED job).
+     *
+     * @param usages The usage lines, each carrying its order id, in order.
+     */
+    public void deductAccepted(List<StockTransactionService.StockUsage> usages) {
+        if (usages.isEmpty()) {
+            return;
+        }
+        if (async) {
+            jobRepository.saveAll(jobs(usages));
+            return;
+        }
+        List<String> errors = stockTransactionService.tryUseStockBatch(usages);
+        for (int i = 0; i < errors.size(); i++) {
+            if (errors.get(i) != null) {
+                StockTransactionService.StockUsage usage = usages.get(i);
+                log.warn("Stock usage of item {} for order {} skipped: {}", usage.itemId(), usage.orderId(), errors.get(i));
+            }
+        }
+    }
+
+    private List<InventoryDeductionJob> jobs(List<StockTransactionService.StockUsage> usages) {
+        LocalDateTime now = LocalDateTime.now();
+        List<InventoryDeductionJob> jobs = new ArrayList<>(usages.size());
+        for (StockTransactionService.StockUsage usage : usages) {
+            InventoryDeductionJob job = new InventoryDeductionJob();
+            job.setOrderId(usage.orderId());
+            job.setInventoryItemId(usage.itemId());
+            job.setQuantity(usage.quantity());
+            job.setNote(usage.note());
+            job.setStatus(InventoryDeductionJob.Status.PENDING);
+            job.setCreatedAt(now);
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    /**
+     * Give back the stock deducted for canceled orders, inside the cancel transaction. Jobs not applied
+     * yet are dropped first (waiting for a batch that is applying them to commit), then the applied
+     * usage is reversed from the ledger.
+     *
+     * @param orderIds The canceled orders.
+     * @param since The creation time of the oldest of the orders.
+     */
+    public void reverse(Collection<UUID> orderIds, LocalDateTime since) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        if (async) {
+            jobRepository.deleteByOrderIds(orderIds.toArray(new UUID[0]));
+        }
+        stockTransactionService.reverseOrderUsage(orderIds, since);
+    }
+
+    /**
+     * Apply the oldest pending jobs of one partition in a single transaction. Applied jobs are deleted
+     * (their ledger rows are the record); jobs that can no longer be applied, e.g. because the stock ran
+     * out in the meantime, are kept as FAILED with the reason.
+     *
+     * @return The number of jobs processed, 0 when the partition is empty or drained by another node.
+     */
+    int drainPartition(int partition) {
+        Integer processed = transactionOperations.execute(status -> {
+            if (!jobRepository.tryLockPartition(PARTITION_LOCK_BASE + partition)) {
+                return 0;
+            }
+            List<InventoryDeductionJob> jobs = jobRepository.findPendingBatch(workers, partition, batchSize);
+            if (jobs.isEmpty()) {
+                return 0;
+            }
+
+            List<StockTransactionService.StockUsage> usages = new ArrayList<>(jobs.size());
+            for (InventoryDeductionJob job : jobs) {
+                usages.add(new StockTransactionService.StockUsage(job.getInventoryItemId(), job.getQuantity(),
+                        job.getNote(), job.getOrderId()));
+            }
+            List<String> errors = stockTransactionService.tryUseStockBatch(usages);
+
+            LocalDateTime now = LocalDateTime.now();
+            List<InventoryDeductionJob> applied = new ArrayList<>(jobs.size());
+            for (int i = 0; i < jobs.size(); i++) {
+                InventoryDeductionJob job = jobs.get(i);
+                String error = errors.get(i);
+                if (error == null) {
+                    applied.add(job);
+                } else {
+                    log.warn("Inventory deduction job {} of order {} failed: {}", job.getId(), job.getOrderId(), error);
+                    job.setStatus(InventoryDeductionJob.Status.FAILED);
+                    job.setError(error);
+                    job.setProcessedAt(now);
+                }
+            }
+            jobRepository.deleteAllInBatch(applied);
+            return jobs.size();
+        });
+        return processed == null ? 0 : processed;
+    }
+
+    public DeductionQueueStats getQueueStats() {
+        LocalDateTime oldestPending = jobRepository.findOldestCreatedAt(InventoryDeductionJob.Status.PENDING);
+        Long lagSeconds = oldestPending == null
+                ? null
+                : Math.max(0, Duration.between(oldestPending, LocalDateTime.now()).toSeconds());
+        return new DeductionQueueStats(
+                async,
+                jobRepository.countByStatus(InventoryDeductionJob.Status.PENDING),
+                jobRepository.countByStatus(InventoryDeductionJob.Status.FAILED),
+                lagSeconds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWorkers() {
+        if (!async) {
+            return;
+        }
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("inventory-deduction-", 1).factory()
+                : Thread.ofPlatform().name("inventory-deduction-", 1).daemon(true).factory();
+        executor = Executors.newScheduledThreadPool(workers, threadFactory);
+        for (int partition = 0; partition < workers; partition++) {
+            int workerPartition = partition;
+            executor.scheduleWithFixedDelay(() -> drainWhileBusy(workerPartition),
+                    pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stopWorkers() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    // Keep draining full batches back to back, only wait for the next poll once the partition is idle
+    private void drainWhileBusy(int partition) {
+        try {
+            while (!Thread.currentThread().isInterrupted() && drainPartition(partition) == batchSize) {
+                // next batch
+            }
+        } catch (RuntimeException e) {
+            // Leave the jobs pending and retry on the next poll; an exception would cancel the schedule
+            log.error("Inventory deduction worker for partition {} failed", partition, e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.quantum.service;
+
+import com.quantum.dto.OrderItemRequest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An order accepted into the intake journal, with its compact binary form (the journal record payload).
+ */
+record JournaledOrder(String clientOrderId, UUID restaurantId, int tableId, UUID waiterId,
+                      long acceptedAtMillis, List<OrderItemRequest> items) {
+
+    private static final int ITEM_SIZE = 16 + 4;
+
+    byte[] encode() {
+        byte[] key = clientOrderId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + key.length + 16 + 4 + 16 + 8 + 4 + items.size() * ITEM_SIZE);
+        buffer.putInt(key.length).put(key);
+        putUuid(buffer, restaurantId);
+        buffer.putInt(tableId);
+        putUuid(buffer, waiterId);
+        buffer.putLong(acceptedAtMillis);
+        buffer.putInt(items.size());
+        for (OrderItemRequest item : items) {
+            putUuid(buffer, item.menuItemId());
+            buffer.putInt(item.quantity());
+        }
+        return buffer.array();
+    }
+
+    static JournaledOrder decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte[] key = new byte[buffer.getInt()];
+        buffer.get(key);
+        UUID restaurantId = getUuid(buffer);
+        int tableId = buffer.getInt();
+        UUID waiterId = getUuid(buffer);
+        long acceptedAtMillis = buffer.getLong();
+        int itemCount = buffer.getInt();
+        List<OrderItemRequest> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new OrderItemRequest(getUuid(buffer), buffer.getInt()));
+        }
+        return new JournaledOrder(new String(key, StandardCharsets.UTF_8), restaurantId, tableId, waiterId,
+                acceptedAtMillis, items);
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID id) {
+        buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
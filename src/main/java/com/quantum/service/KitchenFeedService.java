@@ -0,0 +1,256 @@
+package com.quantum.service;
+
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-restaurant Server-Sent Events feed of order events for kitchen screens.
+ * Each restaurant keeps its recent events in a bounded ring buffer, so a client reconnecting with
+ * Last-Event-ID gets only what it missed. Event ids are "{epoch}-{sequence}"; when the requested id
+ * is from an earlier run or already overwritten the client gets a RESYNC event and should reload.
+ *
+ * Publishing only buffers the event: sends happen on a virtual thread per subscriber delivery, so a slow
+ * or stalled client never holds up the thread that committed the order, nor the other subscribers.
+ */
+@Service
+public class KitchenFeedService {
+
+    static final String RESYNC_EVENT = "RESYNC";
+
+    private final int bufferSize;
+    private final long emitterTimeoutMillis;
+    private final long epoch = System.currentTimeMillis();
+    private final Map<UUID, Feed> feeds = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+
+    @Autowired
+    public KitchenFeedService(@Value("${kitchen-feed.buffer-size:256}") int bufferSize,
+                              @Value("${kitchen-feed.emitter-timeout-minutes:30}") long emitterTimeoutMinutes) {
+        this(bufferSize, emitterTimeoutMinutes,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kitchen-feed-", 0).factory()));
+    }
+
+    KitchenFeedService(int bufferSize, long emitterTimeoutMinutes, ExecutorService sender) {
+        this.bufferSize = bufferSize;
+        this.emitterTimeoutMillis = Duration.ofMinutes(emitterTimeoutMinutes).toMillis();
+        this.sender = sender;
+    }
+
+    /**
+     * Open a feed for a restaurant, replaying the buffered events after lastEventId.
+     *
+     * @param restaurantId The restaurant whose orders to follow.
+     * @param lastEventId The Last-Event-ID sent by a reconnecting client, may be null.
+     * @return The emitter streaming the events.
+     */
+    public SseEmitter subscribe(UUID restaurantId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Feed feed = feeds.computeIfAbsent(restaurantId, id -> new Feed(bufferSize));
+        Subscriber subscriber = new Subscriber(emitter);
+
+        emitter.onCompletion(() -> feed.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> feed.subscribers.remove(subscriber));
+        emitter.onError(e -> feed.subscribers.remove(subscriber));
+
+        synchronized (feed) {
+            // New clients start at the head; reconnecting ones from their last event (checked in catchUp)
+            subscriber.lastSequence = lastEventId == null ? feed.nextSequence - 1 : parseSequence(lastEventId);
+            if (subscriber.lastSequence >= feed.nextSequence) {
+                subscriber.lastSequence = -1;
+            }
+            feed.subscribers.add(subscriber);
+        }
+        subscriber.requestCatchUp(feed);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderEvent event) {
+        if (event.restaurantId() == null) {
+            return;
+        }
+        notifySubscribers(append(event));
+    }
+
+    /**
+     * Buffer a batch of events, then catch up each affected restaurant's subscribers once.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvents(OrderEventBatch batch) {
+        Map<UUID, Feed> touched = new LinkedHashMap<>();
+        for (OrderEvent event : batch.events()) {
+            if (event.restaurantId() != null) {
+                touched.put(event.restaurantId(), append(event));
+            }
+        }
+        touched.values().forEach(this::notifySubscribers);
+    }
+
+    private Feed append(OrderEvent event) {
+        Feed feed = feeds.computeIfAbsent(event.restaurantId(), id -> new Feed(bufferSize));
+        synchronized (feed) {
+            feed.append(event);
+        }
+        return feed;
+    }
+
+    private void notifySubscribers(Feed feed) {
+        for (Subscriber subscriber : feed.subscribers) {
+            subscriber.requestCatchUp(feed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    List<SequencedEvent> bufferedEvents(UUID restaurantId) {
+        Feed feed = feeds.get(restaurantId);
+        if (feed == null) {
+            return List.of();
+        }
+        synchronized (feed) {
+            return feed.since(feed.oldestSequence() - 1);
+        }
+    }
+
+    private long parseSequence(String lastEventId) {
+        int separator = lastEventId.indexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(Long.toString(epoch))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    record SequencedEvent(long sequence, OrderEvent event) {
+    }
+
+    private static final class Feed {
+        private final SequencedEvent[] ring;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private long nextSequence = 1;
+
+        private Feed(int capacity) {
+            this.ring = new SequencedEvent[capacity];
+        }
+
+        private SequencedEvent append(OrderEvent event) {
+            SequencedEvent sequenced = new SequencedEvent(nextSequence, event);
+            ring[(int) (nextSequence % ring.length)] = sequenced;
+            nextSequence++;
+            return sequenced;
+        }
+
+        private long oldestSequence() {
+            return Math.max(1, nextSequence - ring.length);
+        }
+
+        private List<SequencedEvent> since(long lastSequence) {
+            List<SequencedEvent> events = new ArrayList<>();
+            for (long sequence = Math.max(lastSequence + 1, oldestSequence()); sequence < nextSequence; sequence++) {
+                events.add(ring[(int) (sequence % ring.length)]);
+            }
+            return events;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        // Not a monitor: sends block on the network and must not pin a virtual thread's carrier
+        private final ReentrantLock sendLock = new ReentrantLock();
+        // Set while a delivery is queued and has not started reading the buffer yet
+        private final AtomicBoolean catchUpQueued = new AtomicBoolean();
+        private long lastSequence;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queue a catch-up on the sender, unless one is queued already: it will read the buffer up to
+         * whatever was appended by the time it runs, so bursts of events cost one delivery.
+         */
+        private void requestCatchUp(Feed feed) {
+            if (catchUpQueued.getAndSet(true)) {
+                return;
+            }
+            try {
+                sender.execute(() -> {
+                    catchUpQueued.set(false);
+                    if (!catchUp(feed)) {
+                        feed.subscribers.remove(this);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                feed.subscribers.remove(this);
+                emitter.complete();
+            }
+        }
+
+        /**
+         * Send every buffered event after the last one this subscriber received, in sequence order.
+         * Two deliveries of a subscriber can overlap, the lock keeps its events ordered and unique.
+         */
+        private boolean catchUp(Feed feed) {
+            sendLock.lock();
+            try {
+                List<SequencedEvent> events;
+                long resyncSequence = -1;
+                synchronized (feed) {
+                    if (lastSequence < feed.oldestSequence() - 1) {
+                        resyncSequence = feed.nextSequence - 1;
+                        lastSequence = resyncSequence;
+                    }
+                    events = feed.since(lastSequence);
+                }
+                if (resyncSequence >= 0) {
+                    emitter.send(SseEmitter.event().id(eventId(resyncSequence)).name(RESYNC_EVENT).data(RESYNC_EVENT));
+                }
+                for (SequencedEvent event : events) {
+                    emitter.send(SseEmitter.event()
+                            .id(eventId(event.sequence()))
+                            .name(event.event().type().name())
+                            .data(event.event()));
+                    lastSequence = event.sequence();
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+                return false;
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+}
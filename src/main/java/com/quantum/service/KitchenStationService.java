@@ -0,0 +1,346 @@
+package com.quantum.service;
+
+import com.quantum.dto.KitchenTicket;
+import com.quantum.dto.OpenKitchenItem;
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.dto.StationTickets;
+import com.quantum.model.Employee;
+import com.quantum.model.Order;
+import com.quantum.repository.EmployeeRepository;
+import com.quantum.repository.OrderItemRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes every added order item to the ticket queue of the kitchen station preparing it (the menu
+ * item's station, or the default station), so each station only sees its own work instead of
+ * filtering every order.
+ *
+ * Each (restaurant, station) has a lock-free multi-producer queue of tickets plus an index by order
+ * item: bumping a ticket is a single map removal, the bump is persisted by a background flush and the
+ * bumped ticket leaves the queue lazily. Every change bumps the station's version; station screens
+ * long-poll with the last version they received and get a fresh snapshot once it moves on. At startup
+ * the queues are rebuilt from the items of open orders that were not bumped yet.
+ */
+@Service
+public class KitchenStationService {
+
+    private static final Logger log = LoggerFactory.getLogger(KitchenStationService.class);
+
+    private static final String INSERT_BUMP_SQL =
+            "INSERT INTO kitchen_ticket_bump (order_item_id, restaurant_id, station, bumped_by, bumped_at) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT (order_item_id) DO NOTHING";
+
+    private final OrderItemRepository orderItemRepository;
+    private final EmployeeRepository employeeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final String defaultStation;
+    private final int flushBatchSize;
+    private final Map<StationKey, Station> stations = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Bump> pendingBumps = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public KitchenStationService(OrderItemRepository orderItemRepository,
+                                 EmployeeRepository employeeRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${kitchen.routing.default-station:main}") String defaultStation,
+                                 @Value("${kitchen.routing.flush-batch-size:500}") int flushBatchSize) {
+        this.orderItemRepository = orderItemRepository;
+        this.employeeRepository = employeeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultStation = normalize(defaultStation);
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderEvent event) {
+        apply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvents(OrderEventBatch batch) {
+        batch.events().forEach(this::apply);
+    }
+
+    /**
+     * The open tickets of a station, oldest first.
+     */
+    public StationTickets getTickets(UUID restaurantId, String station) {
+        StationKey key = new StationKey(restaurantId, normalize(station));
+        Station queue = stations.get(key);
+        return queue == null ? new StationTickets(key.station(), 0, List.of()) : queue.snapshot(key.station());
+    }
+
+    /**
+     * Long-poll for the open tickets of a station: answered at once when the station changed since
+     * knownVersion (or knownVersion is from an earlier run), otherwise at its next change, or with the
+     * unchanged snapshot after waitMillis. A station that has no tickets yet is not created by polling
+     * it: the poll gets the empty snapshot after waitMillis, or at once when knownVersion is not 0.
+     */
+    public DeferredResult<StationTickets> pollTickets(UUID restaurantId, String station, long knownVersion,
+                                                      long waitMillis) {
+        StationKey key = new StationKey(restaurantId, normalize(station));
+        Station queue = stations.get(key);
+        DeferredResult<StationTickets> result = new DeferredResult<>(waitMillis);
+        if (queue == null) {
+            StationTickets empty = new StationTickets(key.station(), 0, List.of());
+            result.onTimeout(() -> result.setResult(empty));
+            if (knownVersion != 0) {
+                result.setResult(empty);
+            }
+            return result;
+        }
+        result.onTimeout(() -> result.setResult(queue.snapshot(key.station())));
+        if (queue.version.get() != knownVersion) {
+            result.setResult(queue.snapshot(key.station()));
+            return result;
+        }
+        Waiter waiter = new Waiter(key.station(), result);
+        queue.waiters.add(waiter);
+        result.onCompletion(() -> queue.waiters.remove(waiter));
+        // A change between the check and the registration would not wake this waiter
+        if (queue.version.get() != knownVersion) {
+            result.setResult(queue.snapshot(key.station()));
+        }
+        return result;
+    }
+
+    /**
+     * Mark a ticket done. Takes it off the station at once; the bump is written by the next flush.
+     *
+     * @param chefId The chef bumping the ticket, optional; must be a CHEF of the restaurant.
+     */
+    public void bump(UUID restaurantId, String station, UUID orderItemId, UUID chefId) {
+        if (chefId != null) {
+            checkChef(restaurantId, chefId);
+        }
+        StationKey key = new StationKey(restaurantId, normalize(station));
+        Station queue = stations.get(key);
+        Ticket ticket = queue == null ? null : queue.open.remove(orderItemId);
+        if (ticket == null) {
+            throw new EntityNotFoundException("Open ticket not found for order item ID: " + orderItemId);
+        }
+        ticket.bumped = true;
+        queue.changed();
+        pendingBumps.add(new Bump(orderItemId, restaurantId, key.station(), chefId, LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${kitchen.routing.flush-interval-millis:500}")
+    public void flushBumps() {
+        writePendingBumps();
+        stations.values().forEach(Station::purgeBumped);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        writePendingBumps();
+    }
+
+    /**
+     * Write the bumps pending so far as JDBC batches. A batch that fails is queued again for the next flush.
+     *
+     * @return The number of bumps written.
+     */
+    int writePendingBumps() {
+        List<Bump> bumps = new ArrayList<>();
+        Bump bump;
+        while ((bump = pendingBumps.poll()) != null) {
+            bumps.add(bump);
+        }
+        int written = 0;
+        for (int from = 0; from < bumps.size(); from += flushBatchSize) {
+            List<Bump> batch = bumps.subList(from, Math.min(bumps.size(), from + flushBatchSize));
+            try {
+                jdbcTemplate.batchUpdate(INSERT_BUMP_SQL, batch, batch.size(), (statement, pending) -> {
+                    statement.setObject(1, pending.orderItemId());
+                    statement.setObject(2, pending.restaurantId());
+                    statement.setString(3, pending.station());
+                    statement.setObject(4, pending.chefId());
+                    statement.setTimestamp(5, Timestamp.valueOf(pending.bumpedAt()));
+                });
+                written += batch.size();
+            } catch (DataAccessException e) {
+                log.error("Writing {} kitchen ticket bumps failed, retrying on the next flush", batch.size(), e);
+                pendingBumps.addAll(batch);
+            }
+        }
+        return written;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<OpenKitchenItem> items = orderItemRepository.findOpenKitchenItems();
+        if (items.isEmpty()) {
+            return;
+        }
+        Set<UUID> bumped = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT order_item_id FROM kitchen_ticket_bump WHERE bumped_at >= ?", UUID.class,
+                Timestamp.valueOf(items.get(0).orderCreatedAt())));
+        int routed = 0;
+        for (OpenKitchenItem item : items) {
+            if (!bumped.contains(item.orderItemId())) {
+                route(item.restaurantId(), item.station(), item.orderItemId(), item.orderId(), item.tableId(),
+                        item.menuItemName(), item.quantity(), item.orderCreatedAt());
+                routed++;
+            }
+        }
+        log.info("Rebuilt {} open kitchen tickets", routed);
+    }
+
+    int pendingBumpCount() {
+        return pendingBumps.size();
+    }
+
+    int stationCount() {
+        return stations.size();
+    }
+
+    private void apply(OrderEvent event) {
+        if (event.restaurantId() == null) {
+            return;
+        }
+        if (event.type() == OrderEvent.Type.ITEM_ADDED && event.orderItemId() != null) {
+            route(event.restaurantId(), event.station(), event.orderItemId(), event.orderId(), event.tableId(),
+                    event.menuItemName(), event.quantity() == null ? 0 : event.quantity(), event.occurredAt());
+        } else if (event.type() == OrderEvent.Type.STATUS_CHANGED
+                && event.status() != null && event.status().isTerminal()) {
+            dropOrder(event.restaurantId(), event.orderId());
+        }
+    }
+
+    private void route(UUID restaurantId, String menuItemStation, UUID orderItemId, UUID orderId, Integer tableId,
+                       String menuItemName, int quantity, LocalDateTime createdAt) {
+        String stationName = menuItemStation == null || menuItemStation.isBlank()
+                ? defaultStation
+                : normalize(menuItemStation);
+        Station queue = station(new StationKey(restaurantId, stationName));
+        Ticket ticket = new Ticket(new KitchenTicket(queue.sequence.incrementAndGet(), orderItemId, orderId, tableId,
+                menuItemName, quantity, stationName, createdAt));
+        // The same item may arrive from the startup rebuild and a late event
+        if (queue.open.putIfAbsent(orderItemId, ticket) != null) {
+            return;
+        }
+        queue.tickets.add(ticket);
+        queue.changed();
+    }
+
+    // Tickets of a closed (completed or canceled) order are taken off without a bump, as the rebuild
+    // only restores those of open orders
+    private void dropOrder(UUID restaurantId, UUID orderId) {
+        for (Map.Entry<StationKey, Station> entry : stations.entrySet()) {
+            if (!entry.getKey().restaurantId().equals(restaurantId)) {
+                continue;
+            }
+            Station queue = entry.getValue();
+            boolean dropped = false;
+            for (Ticket ticket : queue.open.values()) {
+                if (ticket.view.orderId().equals(orderId) && queue.open.remove(ticket.view.orderItemId(), ticket)) {
+                    ticket.bumped = true;
+                    dropped = true;
+                }
+            }
+            if (dropped) {
+                queue.changed();
+            }
+        }
+    }
+
+    private void checkChef(UUID restaurantId, UUID chefId) {
+        Employee chef = employeeRepository.findById(chefId)
+                .orElseThrow(() -> new EntityNotFoundException("Employee not found with ID: " + chefId));
+        if (chef.getRole() != Employee.Role.CHEF || chef.getRestaurant() == null
+                || !restaurantId.equals(chef.getRestaurant().getId())) {
+            throw new IllegalArgumentException("Only chefs of the restaurant can bump kitchen tickets.");
+        }
+    }
+
+    private Station station(StationKey key) {
+        return stations.computeIfAbsent(key, k -> new Station());
+    }
+
+    private static String normalize(String station) {
+        return station.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record StationKey(UUID restaurantId, String station) {
+    }
+
+    private record Waiter(String station, DeferredResult<StationTickets> result) {
+    }
+
+    private record Bump(UUID orderItemId, UUID restaurantId, String station, UUID chefId, LocalDateTime bumpedAt) {
+    }
+
+    private static final class Ticket {
+        private final KitchenTicket view;
+        private volatile boolean bumped;
+
+        private Ticket(KitchenTicket view) {
+            this.view = view;
+        }
+    }
+
+    private static final class Station {
+        private final AtomicLong sequence = new AtomicLong();
+        // Incremented after every change is applied, so a snapshot taken at version v misses nothing after v
+        private final AtomicLong version = new AtomicLong();
+        // Routing order; bumped tickets stay until the next read or flush skips them
+        private final ConcurrentLinkedQueue<Ticket> tickets = new ConcurrentLinkedQueue<>();
+        // Open tickets by order item, the bump path
+        private final Map<UUID, Ticket> open = new ConcurrentHashMap<>();
+        private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+        private StationTickets snapshot(String station) {
+            long currentVersion = version.get();
+            List<KitchenTicket> result = new ArrayList<>();
+            for (Iterator<Ticket> it = tickets.iterator(); it.hasNext(); ) {
+                Ticket ticket = it.next();
+                if (ticket.bumped) {
+                    it.remove();
+                } else {
+                    result.add(ticket.view);
+                }
+            }
+            return new StationTickets(station, currentVersion, result);
+        }
+
+        private void changed() {
+            version.incrementAndGet();
+            Waiter waiter;
+            while ((waiter = waiters.poll()) != null) {
+                waiter.result().setResult(snapshot(waiter.station()));
+            }
+        }
+
+        private void purgeBumped() {
+            tickets.removeIf(ticket -> ticket.bumped);
+        }
+    }
+}
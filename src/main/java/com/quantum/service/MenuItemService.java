@@ -21,13 +21,16 @@ public class MenuItemService {
 
     private final MenuItemRepository menuItemRepository;
     private final MenuRepository menuRepository;
+    private final RecipeCache recipeCache;
 
     private static final String IMAGE_UPLOAD_DIR = "/var/www/html/images/"; //  this directory path means that any image saved here can be accessed at http://yourdomain.com/images/
 
     @Autowired
-    public MenuItemService(MenuItemRepository menuItemRepository, MenuRepository menuRepository) {
+    public MenuItemService(MenuItemRepository menuItemRepository, MenuRepository menuRepository,
+                           RecipeCache recipeCache) {
         this.menuItemRepository = menuItemRepository;
         this.menuRepository = menuRepository;
+        this.recipeCache = recipeCache;
     }
 
     @Transactional
@@ -56,14 +59,18 @@ public class MenuItemService {
         existingMenuItem.setDescription(updatedMenuItem.getDescription());
         existingMenuItem.setPrice(updatedMenuItem.getPrice());
         existingMenuItem.setAvailable(updatedMenuItem.isAvailable());
+        existingMenuItem.setStation(updatedMenuItem.getStation());
         existingMenuItem.setUpdatedAt(LocalDateTime.now());
-        return menuItemRepository.save(existingMenuItem);
+        MenuItem savedMenuItem = menuItemRepository.save(existingMenuItem);
+        recipeCache.invalidate(menuItemId);
+        return savedMenuItem;
     }
 
     public void deleteMenuItem(UUID menuItemId) {
         MenuItem menuItem = menuItemRepository.findById(menuItemId)
                 .orElseThrow(() -> new EntityNotFoundException("MenuItem not found with ID: " + menuItemId));
         menuItemRepository.delete(menuItem);
+        recipeCache.invalidate(menuItemId);
     }
 
     public String uploadImage(UUID menuItemId, MultipartFile file) throws IOException {
@@ -0,0 +1,56 @@
+package com.quantum.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a read-modify-write of versioned entities in its own transaction and retries it a bounded
+ * number of times when another transaction updated the same row first (or any other transient
+ * concurrency failure). Contention is resolved without holding row locks across the read and the write.
+ */
+@Component
+public class OptimisticLockRetry {
+
+    private final TransactionOperations transactionOperations;
+    private final int maxAttempts;
+
+    public OptimisticLockRetry(TransactionOperations transactionOperations,
+                               @Value("${optimistic-lock.max-attempts:5}") int maxAttempts) {
+        this.transactionOperations = transactionOperations;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        // Inside a caller's transaction a failed attempt has already marked it rollback-only, so run once
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionOperations.execute(status -> action.get());
+            } catch (ConcurrencyFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 10L * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying an optimistic lock conflict", e);
+        }
+    }
+}
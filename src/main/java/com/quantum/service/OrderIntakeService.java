@@ -0,0 +1,365 @@
+package com.quantum.service;
+
+import com.quantum.dto.OrderIntakeRequest;
+import com.quantum.dto.OrderIntakeResult;
+import com.quantum.dto.OrderItemRequest;
+import com.quantum.dto.OrderJournalStats;
+import com.quantum.model.MenuItem;
+import com.quantum.model.Order;
+import com.quantum.model.OrderIntake;
+import com.quantum.model.OrderItem;
+import com.quantum.repository.OrderIntakeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Order intake keyed by a client order id. By default an intake order is created right away, like
+ * OrderController does. With orders.intake-journal.enabled the order is only appended to a local
+ * write-ahead journal (see {@link OrderJournal}) and acknowledged once that is on disk, so taking
+ * orders keeps working while the database is slow or briefly down; a single drainer replays the
+ * journal into the database in order.
+ *
+ * Every client order id gets an order_intake row in the transaction that creates its order, so a
+ * replay after a crash, or a client retry, never creates an order twice. Orders the database refuses
+ * for good (unknown table, menu item, ...) are recorded as REJECTED and skipped; any other failure is
+ * retried on the next drain. When the journal is full the order is created directly instead.
+ */
+@Service
+public class OrderIntakeService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    static final int MAX_CLIENT_ORDER_ID_LENGTH = 100;
+
+    private final OrderService orderService;
+    private final OrderItemService orderItemService;
+    private final OrderIntakeRepository intakeRepository;
+    private final RecipeCache recipeCache;
+    private final InventoryDeductionService inventoryDeductionService;
+    private final TransactionOperations transactionOperations;
+    private final boolean enabled;
+    private final Path journalPath;
+    private final int journalSizeBytes;
+    private final long fsyncIntervalMillis;
+    private final long drainIntervalMillis;
+    private final int batchSize;
+    private final boolean virtualThreads;
+    private final Clock clock;
+
+    // Journaled client order ids not applied yet, to answer status lookups and retries without the database
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile OrderJournal journal;
+    private ScheduledExecutorService drainer;
+
+    @Autowired
+    public OrderIntakeService(OrderService orderService,
+                              OrderItemService orderItemService,
+                              OrderIntakeRepository intakeRepository,
+                              RecipeCache recipeCache,
+                              InventoryDeductionService inventoryDeductionService,
+                              TransactionOperations transactionOperations,
+                              @Value("${orders.intake-journal.enabled:false}") boolean enabled,
+                              @Value("${orders.intake-journal.path:./data/order-intake.journal}") String journalPath,
+                              @Value("${orders.intake-journal.size-mb:64}") int journalSizeMb,
+                              @Value("${orders.intake-journal.fsync-interval-millis:2}") long fsyncIntervalMillis,
+                              @Value("${orders.intake-journal.drain-interval-millis:200}") long drainIntervalMillis,
+                              @Value("${orders.intake-journal.batch-size:100}") int batchSize,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this(orderService, orderItemService, intakeRepository, recipeCache, inventoryDeductionService,
+                transactionOperations, enabled, Path.of(journalPath),
+                journalSizeMb * 1024 * 1024, fsyncIntervalMillis, drainIntervalMillis, batchSize, virtualThreads,
+                Clock.systemDefaultZone());
+    }
+
+    OrderIntakeService(OrderService orderService, OrderItemService orderItemService,
+                       OrderIntakeRepository intakeRepository, RecipeCache recipeCache,
+                       InventoryDeductionService inventoryDeductionService, TransactionOperations transactionOperations,
+                       boolean enabled, Path journalPath, int journalSizeBytes, long fsyncIntervalMillis,
+                       long drainIntervalMillis, int batchSize, boolean virtualThreads, Clock clock) {
+        this.orderService = orderService;
+        this.orderItemService = orderItemService;
+        this.intakeRepository = intakeRepository;
+        this.recipeCache = recipeCache;
+        this.inventoryDeductionService = inventoryDeductionService;
+        this.transactionOperations = transactionOperations;
+        this.enabled = enabled;
+        this.journalPath = journalPath;
+        this.journalSizeBytes = journalSizeBytes;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.drainIntervalMillis = drainIntervalMillis;
+        this.batchSize = batchSize;
+        this.virtualThreads = virtualThreads;
+        this.clock = clock;
+    }
+
+    /**
+     * Open the journal and recover the orders accepted before a crash or shutdown; they are replayed
+     * once the drainer starts.
+     */
+    @PostConstruct
+    public void openJournal() {
+        if (!enabled) {
+            return;
+        }
+        ThreadFactory flusherFactory = Thread.ofPlatform().name("order-journal-flusher").daemon(true).factory();
+        OrderJournal opened = OrderJournal.open(journalPath, journalSizeBytes, fsyncIntervalMillis, flusherFactory);
+        List<OrderJournal.Entry> recovered = opened.readPending(Integer.MAX_VALUE);
+        for (OrderJournal.Entry entry : recovered) {
+            pending.put(JournaledOrder.decode(entry.payload()).clientOrderId(), entry.sequence());
+        }
+        if (!recovered.isEmpty()) {
+            log.info("Recovered {} unapplied orders from the intake journal {}", recovered.size(), journalPath);
+        }
+        journal = opened;
+    }
+
+    /**
+     * Take an order in. Submitting the same client order id again never creates another order: it
+     * returns the state of the first submission, or PENDING when the journal takes the retry in (the
+     * retry then resolves to the first outcome once drained).
+     *
+     * @return PENDING when the order was journaled, else the outcome of creating it.
+     */
+    public OrderIntakeResult submit(UUID restaurantId, int tableId, UUID waiterId, OrderIntakeRequest request) {
+        if (request == null || request.clientOrderId() == null || request.clientOrderId().isBlank()) {
+            throw new IllegalArgumentException("A client order ID is required.");
+        }
+        if (request.clientOrderId().length() > MAX_CLIENT_ORDER_ID_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Client order ID must not be longer than " + MAX_CLIENT_ORDER_ID_LENGTH + " characters.");
+        }
+        List<OrderItemRequest> items = request.items() == null ? List.of() : request.items();
+        for (OrderItemRequest item : items) {
+            if (item.menuItemId() == null) {
+                throw new IllegalArgumentException("Menu item ID is required.");
+            }
+            if (item.quantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than zero.");
+            }
+        }
+
+        String clientOrderId = request.clientOrderId();
+        JournaledOrder order = new JournaledOrder(clientOrderId, restaurantId, tableId, waiterId,
+                clock.millis(), List.copyOf(items));
+        OrderJournal current = journal;
+        if (current == null) {
+            return applyDirectly(order);
+        }
+
+        // Claim the id, so a concurrent retry cannot journal it a second time
+        if (pending.putIfAbsent(clientOrderId, -1L) != null) {
+            return pendingResult(clientOrderId);
+        }
+        // No order_intake lookup here: the submission must not wait on the database. A retry of an
+        // order applied before is journaled again and recognized by the drainer (see apply).
+        try {
+            long sequence;
+            try {
+                sequence = current.append(order.encode());
+            } catch (IllegalStateException e) {
+                log.warn("Order intake journal unavailable, creating order {} directly: {}", clientOrderId, e.getMessage());
+                OrderIntakeResult result = applyDirectly(order);
+                pending.remove(clientOrderId);
+                return result;
+            }
+            pending.replace(clientOrderId, -1L, sequence);
+            return pendingResult(clientOrderId);
+        } catch (RuntimeException e) {
+            pending.remove(clientOrderId, -1L);
+            throw e;
+        }
+    }
+
+    public OrderIntakeResult getResult(String clientOrderId) {
+        if (pending.containsKey(clientOrderId)) {
+            return pendingResult(clientOrderId);
+        }
+        return intakeRepository.findById(clientOrderId)
+                .map(this::toResult)
+                .orElseThrow(() -> new EntityNotFoundException("Intake order not found with client order ID: " + clientOrderId));
+    }
+
+    public OrderJournalStats getJournalStats() {
+        OrderJournal current = journal;
+        if (current == null) {
+            return new OrderJournalStats(false, 0, 0, 0, applied.get(), rejected.get(), null);
+        }
+        List<OrderJournal.Entry> oldest = current.readPending(1);
+        Long lagSeconds = oldest.isEmpty()
+                ? null
+                : Math.max(0, (clock.millis() - JournaledOrder.decode(oldest.get(0).payload()).acceptedAtMillis()) / 1000);
+        return new OrderJournalStats(true, current.depth(), current.pendingBytes(), current.capacity(),
+                applied.get(), rejected.get(), lagSeconds);
+    }
+
+    /**
+     * Replay the oldest journaled orders. Stops at the first order failing for a reason that may pass
+     * (e.g. the database being unreachable), which stays first in line for the next drain.
+     *
+     * @return The number of journal records consumed.
+     */
+    int drainBatch() {
+        OrderJournal current = journal;
+        if (current == null) {
+            return 0;
+        }
+        int consumed = 0;
+        for (OrderJournal.Entry entry : current.readPending(batchSize)) {
+            JournaledOrder order = JournaledOrder.decode(entry.payload());
+            try {
+                apply(order);
+                applied.incrementAndGet();
+            } catch (EntityNotFoundException | IllegalArgumentException | DataIntegrityViolationException e) {
+                log.warn("Journaled order {} rejected: {}", order.clientOrderId(), e.getMessage());
+                reject(order, e.getMessage());
+                rejected.incrementAndGet();
+            }
+            current.markApplied(entry);
+            pending.remove(order.clientOrderId());
+            consumed++;
+        }
+        return consumed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDrainer() {
+        if (journal == null) {
+            return;
+        }
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("order-journal-drainer").factory()
+                : Thread.ofPlatform().name("order-journal-drainer").daemon(true).factory();
+        drainer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        drainer.scheduleWithFixedDelay(this::drainWhileBusy, 0, drainIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void closeJournal() {
+        if (drainer != null) {
+            drainer.shutdown();
+            try {
+                drainer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // Keep draining full batches back to back, only wait for the next poll once the journal is empty
+    private void drainWhileBusy() {
+        try {
+            while (!Thread.currentThread().isInterrupted() && drainBatch() == batchSize) {
+                // next batch
+            }
+        } catch (RuntimeException e) {
+            // Keep the order journaled and retry on the next poll; an exception would cancel the schedule
+            log.error("Order intake journal drain failed", e);
+        }
+    }
+
+    private OrderIntakeResult applyDirectly(JournaledOrder order) {
+        try {
+            return apply(order);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent submission of the same id won the insert
+            return intakeRepository.findById(order.clientOrderId()).map(this::toResult).orElseThrow(() -> e);
+        }
+    }
+
+    // Create the order and its intake row in one transaction, unless the id was taken in before
+    private OrderIntakeResult apply(JournaledOrder order) {
+        return transactionOperations.execute(status -> {
+            OrderIntake existing = intakeRepository.findById(order.clientOrderId()).orElse(null);
+            if (existing != null) {
+                return toResult(existing);
+            }
+            Order created = orderService.createOrder(order.restaurantId(), order.tableId(), order.waiterId(), new Order());
+            if (!order.items().isEmpty()) {
+                orderItemService.addOrderItems(created.getId(), order.items());
+                // The items are added after creation, so createOrder did not deduct their stock
+                inventoryDeductionService.deduct(created.getId(), recipeCache.stockUsage(
+                        orderItems(order.items()), "Used for order ID: " + created.getId()));
+            }
+            OrderIntake intake = intake(order, OrderIntake.Status.APPLIED);
+            intake.setOrderId(created.getId());
+            return toResult(intakeRepository.save(intake));
+        });
+    }
+
+    // Only the menu item id and quantity are read by the recipe cache
+    private static List<OrderItem> orderItems(List<OrderItemRequest> requests) {
+        List<OrderItem> orderItems = new ArrayList<>(requests.size());
+        for (OrderItemRequest request : requests) {
+            MenuItem menuItem = new MenuItem();
+            menuItem.setId(request.menuItemId());
+            OrderItem orderItem = new OrderItem();
+            orderItem.setMenuItem(menuItem);
+            orderItem.setQuantity(request.quantity());
+            orderItems.add(orderItem);
+        }
+        return orderItems;
+    }
+
+    private void reject(JournaledOrder order, String error) {
+        transactionOperations.executeWithoutResult(status -> {
+            if (intakeRepository.existsById(order.clientOrderId())) {
+                return;
+            }
+            OrderIntake intake = intake(order, OrderIntake.Status.REJECTED);
+            intake.setError(error);
+            intakeRepository.save(intake);
+        });
+    }
+
+    private OrderIntake intake(JournaledOrder order, OrderIntake.Status status) {
+        OrderIntake intake = new OrderIntake();
+        intake.setClientOrderId(order.clientOrderId());
+        intake.setRestaurantId(order.restaurantId());
+        intake.setStatus(status);
+        intake.setAcceptedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(order.acceptedAtMillis()), clock.getZone()));
+        intake.setProcessedAt(LocalDateTime.now(clock));
+        return intake;
+    }
+
+    private OrderIntakeResult toResult(OrderIntake intake) {
+        OrderIntakeResult.Status status = intake.getStatus() == OrderIntake.Status.APPLIED
+                ? OrderIntakeResult.Status.APPLIED
+                : OrderIntakeResult.Status.REJECTED;
+        return new OrderIntakeResult(intake.getClientOrderId(), status, intake.getOrderId(), intake.getError());
+    }
+
+    private static OrderIntakeResult pendingResult(String clientOrderId) {
+        return new OrderIntakeResult(clientOrderId, OrderIntakeResult.Status.PENDING, null, null);
+    }
+}
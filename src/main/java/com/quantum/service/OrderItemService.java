@@ -1,5 +1,8 @@
 package com.quantum.service;
 
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderItemRequest;
+import com.quantum.dto.OrderItemView;
 import com.quantum.model.MenuItem;
 import com.quantum.model.Order;
 import com.quantum.model.OrderItem;
@@ -8,11 +11,17 @@ import com.quantum.repository.OrderItemRepository;
 import com.quantum.repository.OrderRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -21,35 +30,108 @@ public class OrderItemService {
     private final OrderItemRepository orderItemRepository;
     private final OrderRepository orderRepository;
     private final MenuItemRepository menuItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OptimisticLockRetry optimisticLockRetry;
 
     @Autowired
     public OrderItemService(OrderItemRepository orderItemRepository,
                             OrderRepository orderRepository,
-                            MenuItemRepository menuItemRepository) {
+                            MenuItemRepository menuItemRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            OptimisticLockRetry optimisticLockRetry) {
         this.orderItemRepository = orderItemRepository;
         this.orderRepository = orderRepository;
         this.menuItemRepository = menuItemRepository;
+        this.eventPublisher = eventPublisher;
+        this.optimisticLockRetry = optimisticLockRetry;
     }
 
-    @Transactional
+    /**
+     * Add an item to an order and bump its total. Runs as its own transaction, retried when a
+     * concurrent update of the same order wins the optimistic lock.
+     */
     public OrderItem addOrderItem(UUID orderId, UUID menuItemId, int quantity) {
+        return optimisticLockRetry.execute(() -> {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + orderId));
+            MenuItem menuItem = menuItemRepository.findById(menuItemId)
+                    .orElseThrow(() -> new EntityNotFoundException("MenuItem not found with ID: " + menuItemId));
+
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setMenuItem(menuItem);
+            orderItem.setQuantity(quantity);
+            orderItem.setPrice(menuItem.getPrice());
+
+            // Update order total amount
+            double totalItemPrice = quantity * menuItem.getPrice();
+            order.setTotalAmount(order.getTotalAmount() + totalItemPrice);
+            orderRepository.save(order);
+
+            OrderItem savedOrderItem = orderItemRepository.save(orderItem);
+            eventPublisher.publishEvent(OrderEvent.itemAdded(order, savedOrderItem));
+            return savedOrderItem;
+        });
+    }
+
+    /**
+     * Add a whole round of items to an order at once. Menu items are resolved in one query,
+     * the order items are inserted as a batch and the order total is bumped with a single
+     * atomic increment instead of one order save per item.
+     *
+     * @param orderId The UUID of the order.
+     * @param requests The (menuItemId, quantity) pairs to add.
+     * @return The added items.
+     */
+    @Transactional
+    public List<OrderItemView> addOrderItems(UUID orderId, List<OrderItemRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one order item is required.");
+        }
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + orderId));
-        MenuItem menuItem = menuItemRepository.findById(menuItemId)
-                .orElseThrow(() -> new EntityNotFoundException("MenuItem not found with ID: " + menuItemId));
 
-        OrderItem orderItem = new OrderItem();
-        orderItem.setOrder(order);
-        orderItem.setMenuItem(menuItem);
-        orderItem.setQuantity(quantity);
-        orderItem.setPrice(menuItem.getPrice());
+        Set<UUID> menuItemIds = new HashSet<>();
+        for (OrderItemRequest request : requests) {
+            if (request.quantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than zero.");
+            }
+            menuItemIds.add(request.menuItemId());
+        }
+        Map<UUID, MenuItem> menuItems = new HashMap<>();
+        for (MenuItem menuItem : menuItemRepository.findAllById(menuItemIds)) {
+            menuItems.put(menuItem.getId(), menuItem);
+        }
+
+        List<OrderItem> orderItems = new ArrayList<>(requests.size());
+        double totalItemPrice = 0;
+        for (OrderItemRequest request : requests) {
+            MenuItem menuItem = menuItems.get(request.menuItemId());
+            if (menuItem == null) {
+                throw new EntityNotFoundException("MenuItem not found with ID: " + request.menuItemId());
+            }
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setMenuItem(menuItem);
+            orderItem.setQuantity(request.quantity());
+            orderItem.setPrice(menuItem.getPrice());
+            orderItems.add(orderItem);
+            totalItemPrice += request.quantity() * menuItem.getPrice();
+        }
 
-        // Update order total amount
-        double totalItemPrice = quantity * menuItem.getPrice();
-        order.setTotalAmount(order.getTotalAmount() + totalItemPrice);
-        orderRepository.save(order);
+        List<OrderItem> savedOrderItems = orderItemRepository.saveAll(orderItems);
+        // The order was loaded above, so no row means it was deleted meanwhile; roll the items back
+        if (orderRepository.incrementTotalAmount(orderId, order.getCreatedAt(), totalItemPrice, LocalDateTime.now()) == 0) {
+            throw new EntityNotFoundException("Order not found with ID: " + orderId);
+        }
 
-        return orderItemRepository.save(orderItem);
+        List<OrderItemView> views = new ArrayList<>(savedOrderItems.size());
+        for (OrderItem orderItem : savedOrderItems) {
+            eventPublisher.publishEvent(OrderEvent.itemAdded(order, orderItem));
+            views.add(new OrderItemView(orderItem.getId(), orderItem.getMenuItem().getId(),
+                    orderItem.getMenuItem().getName(), orderItem.getQuantity(), orderItem.getPrice()));
+        }
+        return views;
     }
 
     public List<OrderItem> getOrderItemsByOrder(UUID orderId) {
@@ -0,0 +1,451 @@
+package com.quantum.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead journal in a memory-mapped file. An append returns once its record is on
+ * disk; a single flusher thread forces the appended bytes in groups, so concurrent appenders share
+ * one fsync per interval instead of paying one each. Records are read back in append order and
+ * acknowledged with {@link #markApplied(Entry)}, which moves the checkpoint kept in the file header.
+ *
+ * File layout: a header (magic, format version, epoch, applied offset, applied sequence) followed by
+ * records of [payload length, CRC32C, epoch, sequence, payload]. On open, the records after the
+ * checkpoint are scanned and the first one that is incomplete, corrupt or out of sequence ends the
+ * journal (a torn write of the last append before a crash). The checkpoint itself is only forced
+ * with the next group, so after a crash the last applied records may be read again: consumers must
+ * be idempotent. Once every record is applied and the next one no longer fits, the journal wraps to
+ * the start under a new epoch, which makes all older records unreadable.
+ */
+final class OrderJournal implements Closeable {
+
+    private static final int MAGIC = 0x4F4A524E;
+    private static final int FORMAT_VERSION = 1;
+
+    static final int FILE_HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 24;
+
+    private static final int EPOCH_OFFSET = 8;
+    private static final int APPLIED_OFFSET_OFFSET = 16;
+    private static final int APPLIED_SEQUENCE_OFFSET = 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long fsyncIntervalMillis;
+    private final Runnable groupTaken;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // Guarded by lock
+    private long epoch;
+    private int writeOffset;
+    private int durableOffset;
+    private int appliedOffset;
+    private long appliedSequence;
+    private long nextSequence;
+    private boolean checkpointDirty;
+    private boolean closed;
+    private RuntimeException flushFailure;
+
+    private OrderJournal(FileChannel channel, MappedByteBuffer buffer, long fsyncIntervalMillis,
+                         ThreadFactory threadFactory, Runnable groupTaken) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.groupTaken = groupTaken;
+        recover();
+        this.flusher = threadFactory.newThread(this::runFlusher);
+        this.flusher.start();
+    }
+
+    /**
+     * Open (or create) a journal file and recover its unapplied records.
+     *
+     * @param file The journal file; its directory is created when missing.
+     * @param capacity The file size in bytes for a new journal; an existing larger file keeps its size.
+     * @param fsyncIntervalMillis How long the flusher gathers appends before forcing them, 0 to force right away.
+     * @param threadFactory Creates the flusher thread.
+     */
+    static OrderJournal open(Path file, int capacity, long fsyncIntervalMillis, ThreadFactory threadFactory) {
+        return open(file, capacity, fsyncIntervalMillis, threadFactory, () -> {
+        });
+    }
+
+    /**
+     * Like {@link #open(Path, int, long, ThreadFactory)}, with groupTaken run by the flusher after it took
+     * a group and before it forces it, so tests can interleave appends with a flush in flight.
+     */
+    static OrderJournal open(Path file, int capacity, long fsyncIntervalMillis, ThreadFactory threadFactory,
+                             Runnable groupTaken) {
+        if (capacity < FILE_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Order journal capacity is too small: " + capacity);
+        }
+        FileChannel channel = null;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = Math.max(channel.size(), capacity);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Order journal file is too large: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new OrderJournal(channel, buffer, fsyncIntervalMillis, threadFactory, groupTaken);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException("Could not open order journal " + file, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Append a record and wait until it is durable.
+     *
+     * @return The sequence number of the record, increasing by one per append.
+     * @throws IllegalStateException When the journal is full (unapplied records fill it) or closed.
+     */
+    long append(byte[] payload) {
+        int size = RECORD_HEADER_SIZE + payload.length;
+        lock.lock();
+        try {
+            ensureOpen();
+            if (size > capacity - writeOffset && appliedOffset == writeOffset) {
+                wrap();
+            }
+            if (size > capacity - writeOffset) {
+                throw new IllegalStateException("Order journal is full.");
+            }
+
+            long sequence = nextSequence++;
+            int offset = writeOffset;
+            buffer.putLong(offset + 8, epoch);
+            buffer.putLong(offset + 16, sequence);
+            buffer.put(offset + RECORD_HEADER_SIZE, payload);
+            buffer.putInt(offset + 4, checksum(epoch, sequence, payload));
+            // The length goes last: a record with a zero length is never read
+            buffer.putInt(offset, payload.length);
+            writeOffset = offset + size;
+            appended.signal();
+
+            // The flusher forces everything appended before it stops, also when the journal is closed
+            int end = writeOffset;
+            while (durableOffset < end && flushFailure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (durableOffset < end) {
+                throw new IllegalStateException("Order journal could not be written.", flushFailure);
+            }
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The oldest durable records not applied yet, in append order.
+     *
+     * @param max The maximum number of records returned.
+     */
+    List<Entry> readPending(int max) {
+        lock.lock();
+        try {
+            List<Entry> entries = new ArrayList<>();
+            int offset = appliedOffset;
+            while (offset < durableOffset && entries.size() < max) {
+                int length = buffer.getInt(offset);
+                long sequence = buffer.getLong(offset + 16);
+                byte[] payload = new byte[length];
+                buffer.get(offset + RECORD_HEADER_SIZE, payload);
+                offset += RECORD_HEADER_SIZE + length;
+                entries.add(new Entry(sequence, offset, payload));
+            }
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acknowledge a record and every record before it. Entries must be marked in the order they were read.
+     */
+    void markApplied(Entry entry) {
+        lock.lock();
+        try {
+            if (entry.sequence() <= appliedSequence) {
+                return;
+            }
+            appliedOffset = entry.endOffset();
+            appliedSequence = entry.sequence();
+            buffer.putLong(APPLIED_OFFSET_OFFSET, appliedOffset);
+            buffer.putLong(APPLIED_SEQUENCE_OFFSET, appliedSequence);
+            checkpointDirty = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of appended records not applied yet. */
+    long depth() {
+        lock.lock();
+        try {
+            return nextSequence - 1 - appliedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Bytes held by records not applied yet. */
+    long pendingBytes() {
+        lock.lock();
+        try {
+            return writeOffset - appliedOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appended.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        buffer.force();
+        closeQuietly(channel);
+    }
+
+    private void recover() {
+        if (buffer.getInt(0) != MAGIC) {
+            epoch = 1;
+            appliedOffset = FILE_HEADER_SIZE;
+            appliedSequence = 0;
+            buffer.putInt(4, FORMAT_VERSION);
+            writeCheckpoint();
+            buffer.putInt(FILE_HEADER_SIZE, 0);
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+        } else {
+            int version = buffer.getInt(4);
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported order journal format version " + version);
+            }
+            epoch = buffer.getLong(EPOCH_OFFSET);
+            appliedOffset = (int) buffer.getLong(APPLIED_OFFSET_OFFSET);
+            appliedSequence = buffer.getLong(APPLIED_SEQUENCE_OFFSET);
+            if (appliedOffset < FILE_HEADER_SIZE || appliedOffset > capacity) {
+                throw new IllegalStateException("Corrupt order journal checkpoint at offset " + appliedOffset);
+            }
+        }
+
+        int offset = appliedOffset;
+        long sequence = appliedSequence;
+        while (true) {
+            int end = validRecordEnd(offset, sequence + 1);
+            if (end < 0) {
+                break;
+            }
+            offset = end;
+            sequence++;
+        }
+        writeOffset = offset;
+        durableOffset = offset;
+        nextSequence = sequence + 1;
+
+        // Clear a torn tail so its remains can never line up with a later record
+        if (offset + RECORD_HEADER_SIZE <= capacity && buffer.getInt(offset) != 0) {
+            for (int i = offset; i < capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force(offset, capacity - offset);
+        }
+    }
+
+    // End offset of the record at offset if it is complete and is the expected one, else -1
+    private int validRecordEnd(int offset, long expectedSequence) {
+        if (capacity - offset < RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > capacity - offset - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        if (buffer.getLong(offset + 8) != epoch || buffer.getLong(offset + 16) != expectedSequence) {
+            return -1;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + RECORD_HEADER_SIZE, payload);
+        if (buffer.getInt(offset + 4) != checksum(epoch, expectedSequence, payload)) {
+            return -1;
+        }
+        return offset + RECORD_HEADER_SIZE + length;
+    }
+
+    // Start over at the beginning of the file; only called with every record applied (and so durable)
+    private void wrap() {
+        epoch++;
+        writeOffset = FILE_HEADER_SIZE;
+        durableOffset = FILE_HEADER_SIZE;
+        appliedOffset = FILE_HEADER_SIZE;
+        writeCheckpoint();
+        buffer.putInt(FILE_HEADER_SIZE, 0);
+        // The new epoch must be on disk before any record written under it
+        buffer.force(0, FILE_HEADER_SIZE + RECORD_HEADER_SIZE);
+        checkpointDirty = false;
+    }
+
+    private void writeCheckpoint() {
+        buffer.putLong(EPOCH_OFFSET, epoch);
+        buffer.putLong(APPLIED_OFFSET_OFFSET, appliedOffset);
+        buffer.putLong(APPLIED_SEQUENCE_OFFSET, appliedSequence);
+    }
+
+    private void runFlusher() {
+        try {
+            flushLoop();
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                flushFailure = e;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (!closed && writeOffset == durableOffset && !checkpointDirty) {
+                    appended.awaitUninterruptibly();
+                }
+                if (closed && writeOffset == durableOffset && !checkpointDirty) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Let more appends join this group
+            if (fsyncIntervalMillis > 0 && !closed) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(fsyncIntervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            long groupEpoch;
+            int from;
+            int to;
+            boolean checkpoint;
+            lock.lock();
+            try {
+                groupEpoch = epoch;
+                from = durableOffset;
+                to = writeOffset;
+                checkpoint = checkpointDirty;
+                checkpointDirty = false;
+            } finally {
+                lock.unlock();
+            }
+            groupTaken.run();
+            if (to > from) {
+                buffer.force(from, to - from);
+            }
+            if (checkpoint) {
+                buffer.force(0, FILE_HEADER_SIZE);
+            }
+
+            lock.lock();
+            try {
+                // A wrap while the group was forced (e.g. a checkpoint-only group) restarts the offsets
+                // under a new epoch; the range taken belongs to the old one and says nothing about them
+                if (epoch == groupEpoch && to > durableOffset) {
+                    durableOffset = to;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Order journal is closed.");
+        }
+        if (flushFailure != null) {
+            throw new IllegalStateException("Order journal could not be written.", flushFailure);
+        }
+    }
+
+    private static int checksum(long epoch, long sequence, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (epoch >>> shift));
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * A journal record read back: its sequence, the offset right after it and its payload.
+     */
+    record Entry(long sequence, int endOffset, byte[] payload) {
+    }
+}
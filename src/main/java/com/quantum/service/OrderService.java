@@ -1,40 +1,82 @@
 package com.quantum.service;
 
+import com.quantum.dto.BulkStatusResult;
+import com.quantum.dto.OrderCursor;
+import com.quantum.dto.OrderDetail;
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.dto.OrderPage;
+import com.quantum.dto.OrderSearch;
+import com.quantum.dto.OrderStatusRow;
+import com.quantum.dto.OrderSummary;
 import com.quantum.model.*;
 import com.quantum.repository.EmployeeRepository;
+import com.quantum.repository.OrderItemRepository;
 import com.quantum.repository.OrderRepository;
+import com.quantum.repository.OrderSpecifications;
 import com.quantum.repository.RestaurantRepository;
 import com.quantum.repository.TableRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 public class OrderService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BULK_STATUS_ORDERS = 500;
+    private static final int MAX_SEARCH_MENU_ITEMS = 10;
+    private static final Sort KEYSET_SORT = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
     private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
     private final RestaurantRepository restaurantRepository;
     private final TableRepository tableRepository;
     private final EmployeeRepository employeeRepository;
 
-    private final StockTransactionService stockTransactionService;
+    private final TicketNumberAllocator ticketNumberAllocator;
+    private final RecipeCache recipeCache;
+    private final InventoryDeductionService inventoryDeductionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OptimisticLockRetry optimisticLockRetry;
 
     @Autowired
     public OrderService(OrderRepository orderRepository,
+                        OrderItemRepository orderItemRepository,
                         RestaurantRepository restaurantRepository,
                         TableRepository tableRepository,
                         EmployeeRepository employeeRepository,
-                        StockTransactionService stockTransactionService) {
+                        TicketNumberAllocator ticketNumberAllocator,
+                        RecipeCache recipeCache,
+                        InventoryDeductionService inventoryDeductionService,
+                        ApplicationEventPublisher eventPublisher,
+                        OptimisticLockRetry optimisticLockRetry) {
         this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
         this.restaurantRepository = restaurantRepository;
         this.tableRepository = tableRepository;
         this.employeeRepository = employeeRepository;
-        this.stockTransactionService = stockTransactionService;
+        this.ticketNumberAllocator = ticketNumberAllocator;
+        this.recipeCache = recipeCache;
+        this.inventoryDeductionService = inventoryDeductionService;
+        this.eventPublisher = eventPublisher;
+        this.optimisticLockRetry = optimisticLockRetry;
     }
 
     @Transactional
@@ -52,49 +94,236 @@ public class OrderService {
         order.setTotalAmount(0.0);
         order.setPaidAmount(0.0);
         order.setStatus(Order.Status.PENDING);
+        order.setTicketNumber(ticketNumberAllocator.next(restaurantId));
         order.setCreatedAt(LocalDateTime.now());
         order.setUpdatedAt(LocalDateTime.now());
         Order savedOrder = orderRepository.save(order);
 
-        // Adjust inventory based on ordered items
-        for (OrderItem orderItem : order.getOrderItems()) {
-            adjustInventoryForOrderItem(orderItem);
-        }
+        // Adjust inventory by the total ingredient usage of the order, from the cached recipes
+        List<StockTransactionService.StockUsage> usages =
+                recipeCache.stockUsage(order.getOrderItems(), "Used for order ID: " + savedOrder.getId());
+        inventoryDeductionService.deduct(savedOrder.getId(), usages);
 
+        eventPublisher.publishEvent(OrderEvent.orderCreated(savedOrder));
         return savedOrder;
     }
 
-    private void adjustInventoryForOrderItem(OrderItem orderItem) {
-        MenuItem menuItem = orderItem.getMenuItem();
-        int orderedQuantity = orderItem.getQuantity();
+    public List<Order> getOrdersByRestaurant(UUID restaurantId) {
+        return orderRepository.findByRestaurantId(restaurantId);
+    }
+
+    /**
+     * Keyset-paginated listing of a restaurant's orders, newest first, ordered on (createdAt, id).
+     * Each page seeks past the previous cursor instead of skipping rows, so the cost of a page
+     * does not depend on how deep into the history it is.
+     *
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param size The maximum number of orders on the page.
+     * @return The page and the cursor of the next one (null when there are no more orders).
+     */
+    public OrderPage getOrderPage(UUID restaurantId, Order.Status status, LocalDateTime from, LocalDateTime to,
+                                  Integer tableId, UUID waiterId, String cursor, int size) {
+        return searchOrders(restaurantId, OrderSearch.of(status, from, to, tableId, waiterId), cursor, size);
+    }
+
+    /**
+     * Search of a restaurant's order history, paginated like getOrderPage. The restaurant filter is
+     * always applied, so every search is served by one of the restaurant-leading indexes of orders.
+     *
+     * @param search The optional filters.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param size The maximum number of orders on the page.
+     * @return The page and the cursor of the next one (null when there are no more orders).
+     */
+    public OrderPage searchOrders(UUID restaurantId, OrderSearch search, String cursor, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (search.from() != null && search.to() != null && !search.from().isBefore(search.to())) {
+            throw new IllegalArgumentException("Search start must be before its end.");
+        }
+        if (search.minTotal() != null && search.maxTotal() != null && search.minTotal() > search.maxTotal()) {
+            throw new IllegalArgumentException("Minimum total must not exceed the maximum total.");
+        }
+        if (search.menuItemIds() != null && search.menuItemIds().size() > MAX_SEARCH_MENU_ITEMS) {
+            throw new IllegalArgumentException("A search can filter on at most " + MAX_SEARCH_MENU_ITEMS + " menu items.");
+        }
+        OrderCursor position = cursor == null ? null : OrderCursor.decode(cursor);
 
-        for (Ingredient ingredient : menuItem.getIngredients()) {
-            UUID inventoryItemId = ingredient.getInventoryItem().getId();
-            double quantityUsed = ingredient.getQuantity() * orderedQuantity;
+        Specification<Order> spec = Specification.where(OrderSpecifications.hasRestaurant(restaurantId))
+                .and(OrderSpecifications.hasStatus(search.status()))
+                .and(OrderSpecifications.createdFrom(search.from()))
+                .and(OrderSpecifications.createdBefore(search.to()))
+                .and(OrderSpecifications.hasTable(search.tableId()))
+                .and(OrderSpecifications.hasWaiter(search.waiterId()))
+                .and(OrderSpecifications.totalFrom(search.minTotal()))
+                .and(OrderSpecifications.totalTo(search.maxTotal()))
+                .and(OrderSpecifications.containsMenuItems(search.menuItemIds()));
+        if (position != null) {
+            spec = spec.and(OrderSpecifications.after(position.createdAt(), position.id()));
+        }
 
-            stockTransactionService.useStock(
-                    inventoryItemId,
-                    quantityUsed,
-                    "Used for order ID: " + orderItem.getOrder().getId() + ", MenuItem: " + menuItem.getName()
-            );
+        // Fetch one extra row to know whether another page follows
+        List<OrderSummary> orders = orderRepository.findSummaries(spec, KEYSET_SORT, size + 1);
+        if (orders.size() <= size) {
+            return new OrderPage(orders, null);
         }
+        List<OrderSummary> page = orders.subList(0, size);
+        OrderSummary last = page.get(size - 1);
+        return new OrderPage(page, new OrderCursor(last.createdAt(), last.id()).encode());
     }
 
-    public List<Order> getOrdersByRestaurant(UUID restaurantId) {
-        return orderRepository.findByRestaurantId(restaurantId);
+    /**
+     * List view of a restaurant's orders as flat summaries, loaded with a single query.
+     */
+    public List<OrderSummary> getOrderSummariesByRestaurant(UUID restaurantId) {
+        return orderRepository.findSummariesByRestaurantId(restaurantId);
     }
 
+    /**
+     * Detail view of an order: one query for the header, one for the items.
+     */
+    public OrderDetail getOrderDetail(UUID orderId) {
+        OrderSummary order = orderRepository.findSummaryById(orderId)
+                .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + orderId));
+        return new OrderDetail(order, orderItemRepository.findViewsByOrderId(orderId));
+    }
+
+    // By id alone, which is all callers have: probes every attached orders partition (see OrderRepository.applyPayment)
     public Order getOrderById(UUID orderId) {
         return orderRepository.findById(orderId)
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + orderId));
     }
 
-    @Transactional
+    /**
+     * Update the status of an order along the transitions allowed by Order.Status. Setting the
+     * current status again is a no-op. Canceling gives the order's ingredients back to inventory in
+     * the same transaction. Runs as its own transaction, retried when a concurrent update of the
+     * same order wins the optimistic lock.
+     */
     public Order updateOrderStatus(UUID orderId, Order.Status status) {
-        Order existingOrder = getOrderById(orderId);
-        existingOrder.setStatus(status);
-        existingOrder.setUpdatedAt(LocalDateTime.now());
-        return orderRepository.save(existingOrder);
+        return optimisticLockRetry.execute(() -> {
+            Order existingOrder = getOrderById(orderId);
+            if (existingOrder.getStatus() == status) {
+                return existingOrder;
+            }
+            checkTransition(existingOrder.getStatus(), status);
+            existingOrder.setStatus(status);
+            existingOrder.setUpdatedAt(LocalDateTime.now());
+            Order savedOrder = orderRepository.save(existingOrder);
+            if (status == Order.Status.CANCELED) {
+                inventoryDeductionService.reverse(List.of(orderId), existingOrder.getCreatedAt());
+            }
+            eventPublisher.publishEvent(OrderEvent.statusChanged(savedOrder));
+            return savedOrder;
+        });
+    }
+
+    /**
+     * Move several orders to the same status at once. Transitions are validated per order against a
+     * projection of the current statuses, the valid ones are applied with a single set-based UPDATE and
+     * the resulting status events are published as one batch.
+     *
+     * @param orderIds The orders to update; duplicates are ignored.
+     * @param status The target status.
+     * @return One result per distinct order id, in request order.
+     */
+    @Transactional
+    public List<BulkStatusResult> updateOrderStatuses(List<UUID> orderIds, Order.Status status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Target status is required.");
+        }
+        if (orderIds == null || orderIds.isEmpty() || orderIds.size() > MAX_BULK_STATUS_ORDERS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_BULK_STATUS_ORDERS + " order IDs are required.");
+        }
+        Set<UUID> requestedIds = new LinkedHashSet<>(orderIds);
+
+        Map<UUID, OrderStatusRow> rows = new HashMap<>();
+        for (OrderStatusRow row : orderRepository.findStatusRows(requestedIds)) {
+            rows.put(row.id(), row);
+        }
+
+        Set<UUID> eligible = new LinkedHashSet<>();
+        for (UUID orderId : requestedIds) {
+            OrderStatusRow row = rows.get(orderId);
+            if (row != null && row.status() != null && row.status().canTransitionTo(status)) {
+                eligible.add(orderId);
+            }
+        }
+
+        Set<UUID> updated = new HashSet<>();
+        if (!eligible.isEmpty()) {
+            List<String> fromStatuses = Arrays.stream(Order.Status.values())
+                    .filter(current -> current.canTransitionTo(status))
+                    .map(Enum::name)
+                    .toList();
+            // Bounds on created_at (the partition key) let the update skip the other months' partitions
+            LocalDateTime createdFrom = null;
+            LocalDateTime createdTo = null;
+            for (UUID orderId : eligible) {
+                LocalDateTime createdAt = rows.get(orderId).createdAt();
+                createdFrom = createdFrom == null || createdAt.isBefore(createdFrom) ? createdAt : createdFrom;
+                createdTo = createdTo == null || createdAt.isAfter(createdTo) ? createdAt : createdTo;
+            }
+            updated.addAll(orderRepository.updateStatuses(eligible.toArray(new UUID[0]), createdFrom, createdTo,
+                    fromStatuses, status.name(), LocalDateTime.now()));
+        }
+        if (status == Order.Status.CANCELED && !updated.isEmpty()) {
+            // created_at is the partition key of orders, never null
+            LocalDateTime oldest = updated.stream()
+                    .map(orderId -> rows.get(orderId).createdAt())
+                    .min(Comparator.naturalOrder())
+                    .orElseThrow();
+            inventoryDeductionService.reverse(updated, oldest);
+        }
+
+        List<BulkStatusResult> results = new ArrayList<>(requestedIds.size());
+        List<OrderEvent> events = new ArrayList<>(updated.size());
+        for (UUID orderId : requestedIds) {
+            OrderStatusRow row = rows.get(orderId);
+            if (row == null) {
+                results.add(new BulkStatusResult(orderId, BulkStatusResult.Outcome.NOT_FOUND, null,
+                        "Order not found with ID: " + orderId));
+            } else if (row.status() == status) {
+                results.add(new BulkStatusResult(orderId, BulkStatusResult.Outcome.UNCHANGED, row.status(), null));
+            } else if (updated.contains(orderId)) {
+                results.add(new BulkStatusResult(orderId, BulkStatusResult.Outcome.UPDATED, row.status(), null));
+                events.add(OrderEvent.statusChanged(row.restaurantId(), orderId, row.tableId(), status));
+            } else if (eligible.contains(orderId)) {
+                results.add(new BulkStatusResult(orderId, BulkStatusResult.Outcome.CONFLICT, row.status(),
+                        "Order status was changed concurrently."));
+            } else {
+                results.add(new BulkStatusResult(orderId, BulkStatusResult.Outcome.INVALID_TRANSITION, row.status(),
+                        "Order status cannot change from " + row.status() + " to " + status + "."));
+            }
+        }
+
+        if (!events.isEmpty()) {
+            eventPublisher.publishEvent(new OrderEventBatch(events));
+        }
+        return results;
+    }
+
+    private void checkTransition(Order.Status current, Order.Status next) {
+        if (current != null && !current.canTransitionTo(next)) {
+            throw new IllegalArgumentException("Order status cannot change from " + current + " to " + next + ".");
+        }
+    }
+
+    /**
+     * Open (non-terminal) orders of a restaurant, oldest first. Served from a partial index over
+     * open orders only, so the cost does not grow with the restaurant's order history.
+     */
+    public List<OrderSummary> getOpenOrdersByRestaurant(UUID restaurantId) {
+        return orderRepository.findOpenSummariesByRestaurantId(restaurantId);
+    }
+
+    public List<OrderSummary> getOpenOrdersByTable(int tableId) {
+        return orderRepository.findOpenSummariesByTableId(tableId);
+    }
+
+    public List<OrderSummary> getOpenOrdersByWaiter(UUID waiterId) {
+        return orderRepository.findOpenSummariesByWaiterId(waiterId);
     }
 
     @Transactional
@@ -0,0 +1,121 @@
+package com.quantum.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly range partitions of orders, order_items, payments and stock_transaction
+ * (see V24). Creates the partitions for the coming months ahead of time, so rows never land in the
+ * default partition, and detaches the months older than the retention period. Detached partitions
+ * are left as plain tables for archiving. Runs at startup and daily; safe to run on several nodes.
+ *
+ * Rows stamped with a client's time (offline orders) can still land in the default partition; they
+ * are moved into their month's partition when it is created (see V32).
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    static final List<String> PARTITIONED_TABLES = List.of("orders", "order_items", "payments", "stock_transaction");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final Clock clock;
+
+    @Autowired
+    public PartitionMaintenanceService(JdbcTemplate jdbcTemplate,
+                                       @Value("${partitioning.enabled:true}") boolean enabled,
+                                       @Value("${partitioning.months-ahead:3}") int monthsAhead,
+                                       @Value("${partitioning.retention-months:0}") int retentionMonths) {
+        this(jdbcTemplate, enabled, monthsAhead, retentionMonths, Clock.systemDefaultZone());
+    }
+
+    PartitionMaintenanceService(JdbcTemplate jdbcTemplate, boolean enabled, int monthsAhead, int retentionMonths,
+                                Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${partitioning.maintenance-cron:0 15 3 * * *}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        createFuturePartitions();
+        detachColdPartitions();
+        // Lookups of an order by id alone (findById, applyPayment) probe every attached partition
+        log.info("orders has {} attached partitions", attachedPartitions("orders"));
+    }
+
+    /**
+     * @return The number of partitions attached to table, including its default partition.
+     */
+    public int attachedPartitions(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_inherits WHERE inhparent = to_regclass(?)", Integer.class, table);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Create the partitions from the current month up to monthsAhead months from now.
+     *
+     * @return The number of partitions created.
+     */
+    public int createFuturePartitions() {
+        LocalDate firstMonth = LocalDate.now(clock).withDayOfMonth(1);
+        LocalDate lastMonth = firstMonth.plusMonths(monthsAhead);
+        int created = 0;
+        for (String table : PARTITIONED_TABLES) {
+            Integer count = jdbcTemplate.queryForObject("SELECT create_monthly_partitions(?, ?, ?)", Integer.class,
+                    table, Date.valueOf(firstMonth), Date.valueOf(lastMonth));
+            created += count == null ? 0 : count;
+        }
+        if (created > 0) {
+            log.info("Created {} monthly partitions up to {}", created, lastMonth);
+        }
+        return created;
+    }
+
+    /**
+     * Detach the partitions whose month ended more than retentionMonths ago. Does nothing when the
+     * retention is 0 (keep everything). All tables use the same cutoff, so an order is never
+     * detached without its items and payments.
+     *
+     * @return The names of the detached partitions.
+     */
+    public List<String> detachColdPartitions() {
+        if (retentionMonths <= 0) {
+            return List.of();
+        }
+        LocalDate cutoff = LocalDate.now(clock).withDayOfMonth(1).minusMonths(retentionMonths);
+        List<String> detached = new ArrayList<>();
+        for (String table : PARTITIONED_TABLES) {
+            detached.addAll(jdbcTemplate.queryForList("SELECT detach_monthly_partitions_before(?, ?)", String.class,
+                    table, Date.valueOf(cutoff)));
+        }
+        if (!detached.isEmpty()) {
+            log.info("Detached partitions older than {}: {}", cutoff, detached);
+        }
+        return detached;
+    }
+}
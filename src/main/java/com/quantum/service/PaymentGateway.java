@@ -0,0 +1,21 @@
+package com.quantum.service;
+
+import com.quantum.dto.PaymentSubmission;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Processor of non-cash payments. Submitting does not wait for the payment to be processed: the
+ * outcome is reported later to PaymentResultProcessor, either through the result webhook
+ * (POST /api/payments/gateway/results) or directly by an in-process gateway.
+ *
+ * A payment can be submitted more than once (pending payments are submitted again after a restart),
+ * so a gateway must use the payment id as its idempotency key.
+ */
+public interface PaymentGateway {
+
+    /**
+     * @return Completes once the gateway has accepted the payment for processing, not once it is processed.
+     */
+    CompletableFuture<Void> submit(PaymentSubmission submission);
+}
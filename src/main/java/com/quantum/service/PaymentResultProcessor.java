@@ -0,0 +1,192 @@
+package com.quantum.service;
+
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.PaymentResult;
+import com.quantum.model.Order;
+import com.quantum.model.Payment;
+import com.quantum.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Applies the payment outcomes reported by the payment gateway. Results are stored on arrival, before
+ * the gateway is answered, and applied by a background flush, one statement per batch: the PENDING
+ * payments take their final status, and the amount of the failed ones is taken off their orders' paid
+ * amount again. An order that a failed payment had completed is reopened, so the balance can be paid
+ * another way.
+ *
+ * Only PENDING payments change, so a result that is delivered twice is applied once. A batch is deleted
+ * in the statement that applies it, so a batch that fails stays stored for the next flush.
+ */
+@Service
+public class PaymentResultProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentResultProcessor.class);
+
+    private static final String STORE_RESULTS_SQL =
+            "INSERT INTO payment_gateway_results (payment_id, payment_status, gateway_reference, failure_reason, received_at) " +
+            "SELECT r.payment_id, r.status, r.reference, r.reason, ? " +
+            "FROM unnest(CAST(? AS uuid[]), CAST(? AS varchar[]), CAST(? AS varchar[]), CAST(? AS text[])) " +
+            "WITH ORDINALITY AS r(payment_id, status, reference, reason, position) ORDER BY r.position";
+
+    // The released CTE reads the orders as they were before the statement, i.e. still COMPLETED.
+    // An order is reopened only when the failed payments are what took its paid amount to the total.
+    private static final String APPLY_RESULTS_SQL =
+            "WITH claimed AS (" +
+            "  DELETE FROM payment_gateway_results WHERE id IN (" +
+            "    SELECT id FROM payment_gateway_results ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "  RETURNING id, payment_id, payment_status, gateway_reference, failure_reason" +
+            "), result AS (" +
+            // The last result reported for a payment wins
+            "  SELECT DISTINCT ON (payment_id) payment_id, payment_status AS status, " +
+            "  gateway_reference AS reference, failure_reason AS reason " +
+            "  FROM claimed ORDER BY payment_id, id DESC" +
+            "), settled AS (" +
+            "  UPDATE payments p SET payment_status = r.status, gateway_reference = r.reference, failure_reason = r.reason " +
+            "  FROM result r WHERE p.id = r.payment_id AND p.payment_status = 'PENDING' " +
+            "  RETURNING p.order_id, p.amount, p.payment_status" +
+            "), released AS (" +
+            "  SELECT s.order_id, SUM(s.amount) AS amount, " +
+            "  o.status = ANY(CAST(? AS varchar[])) AND o.paid_amount >= o.total_amount " +
+            "  AND o.paid_amount - SUM(s.amount) < o.total_amount AS reopen " +
+            "  FROM settled s JOIN orders o ON o.id = s.order_id " +
+            "  WHERE s.payment_status = 'FAILED' GROUP BY s.order_id, o.status, o.paid_amount, o.total_amount" +
+            "), reopened AS (" +
+            "  UPDATE orders o SET paid_amount = GREATEST(o.paid_amount - r.amount, 0), " +
+            "  status = CASE WHEN r.reopen THEN ? ELSE o.status END, " +
+            "  updated_at = ?, version = o.version + 1 " +
+            "  FROM released r WHERE o.id = r.order_id " +
+            "  RETURNING o.id, r.reopen" +
+            ") SELECT (SELECT count(*) FROM claimed) AS claimed, " +
+            "ARRAY(SELECT id FROM reopened WHERE reopen) AS reopened";
+
+    // The statuses a declined payment takes an order back from
+    private static final String[] REOPENABLE = Arrays.stream(Order.Status.values())
+            .filter(status -> status.canReopenTo(Order.Status.PENDING))
+            .map(Order.Status::name)
+            .toArray(String[]::new);
+
+    static final int MAX_REFERENCE_LENGTH = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    @Autowired
+    public PaymentResultProcessor(JdbcTemplate jdbcTemplate,
+                                  OrderRepository orderRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${payments.results.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderRepository = orderRepository;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Store gateway results for the next flush. All or nothing: when any result is invalid, or storing
+     * fails, none is stored, and the caller must not acknowledge the results to the gateway.
+     */
+    public void accept(Collection<PaymentResult> results) {
+        for (PaymentResult result : results) {
+            if (result == null || result.paymentId() == null) {
+                throw new IllegalArgumentException("Payment result must name a payment.");
+            }
+            if (result.status() != Payment.PaymentStatus.COMPLETED && result.status() != Payment.PaymentStatus.FAILED) {
+                throw new IllegalArgumentException("Payment result status must be COMPLETED or FAILED.");
+            }
+            if (result.reference() != null && result.reference().length() > MAX_REFERENCE_LENGTH) {
+                throw new IllegalArgumentException(
+                        "Payment reference must be at most " + MAX_REFERENCE_LENGTH + " characters.");
+            }
+        }
+        if (results.isEmpty()) {
+            return;
+        }
+        UUID[] paymentIds = new UUID[results.size()];
+        String[] statuses = new String[results.size()];
+        String[] references = new String[results.size()];
+        String[] reasons = new String[results.size()];
+        int i = 0;
+        for (PaymentResult result : results) {
+            paymentIds[i] = result.paymentId();
+            statuses[i] = result.status().name();
+            references[i] = result.reference();
+            reasons[i] = result.status() == Payment.PaymentStatus.FAILED ? result.failureReason() : null;
+            i++;
+        }
+        // One statement, so the delivery is stored as a whole
+        jdbcTemplate.update(STORE_RESULTS_SQL, statement -> {
+            Connection connection = statement.getConnection();
+            statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            statement.setArray(2, connection.createArrayOf("uuid", paymentIds));
+            statement.setArray(3, connection.createArrayOf("varchar", statuses));
+            statement.setArray(4, connection.createArrayOf("varchar", references));
+            statement.setArray(5, connection.createArrayOf("text", reasons));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${payments.results.flush-interval-millis:200}")
+    public void flushResults() {
+        applyPendingResults();
+    }
+
+    /**
+     * Apply the results stored so far in batches, until a batch comes back short. A batch that fails
+     * stays stored and is retried on the next flush.
+     *
+     * @return The number of results applied (including repeated results that changed nothing).
+     */
+    int applyPendingResults() {
+        int applied = 0;
+        while (true) {
+            AppliedBatch batch;
+            try {
+                batch = applyBatch();
+            } catch (DataAccessException e) {
+                log.error("Applying payment results failed, retrying on the next flush", e);
+                return applied;
+            }
+            applied += batch.claimed();
+            if (!batch.reopened().isEmpty()) {
+                // Rare: a failed card payment had settled the bill
+                for (Order order : orderRepository.findAllById(batch.reopened())) {
+                    eventPublisher.publishEvent(OrderEvent.statusChanged(order));
+                }
+            }
+            if (batch.claimed() < batchSize) {
+                return applied;
+            }
+        }
+    }
+
+    private AppliedBatch applyBatch() {
+        return jdbcTemplate.query(APPLY_RESULTS_SQL, statement -> {
+            Connection connection = statement.getConnection();
+            statement.setInt(1, batchSize);
+            statement.setArray(2, connection.createArrayOf("varchar", REOPENABLE));
+            statement.setString(3, Order.Status.PENDING.name());
+            statement.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+        }, (row, rowNum) -> new AppliedBatch(row.getInt("claimed"),
+                List.of((UUID[]) row.getArray("reopened").getArray()))).get(0);
+    }
+
+    private record AppliedBatch(int claimed, List<UUID> reopened) {
+    }
+}
@@ -1,61 +1,188 @@
 package com.quantum.service;
 
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.PaymentLeg;
+import com.quantum.dto.PaymentSubmission;
 import com.quantum.model.Order;
 import com.quantum.model.Payment;
 import com.quantum.repository.OrderRepository;
 import com.quantum.repository.PaymentRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
+/**
+ * Books payments against orders. Cash payments are final when booked; other payments are booked
+ * PENDING and handed to the PaymentGateway once the booking has committed. Their outcome arrives
+ * later through PaymentResultProcessor, which releases the amount of a failed payment again.
+ */
 @Service
 public class PaymentService {
 
+    private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
+
+    // Statuses a fully paid order moves out of into COMPLETED (a canceled order stays canceled)
+    private static final Set<Order.Status> COMPLETABLE = EnumSet.copyOf(Arrays.stream(Order.Status.values())
+            .filter(status -> status.canTransitionTo(Order.Status.COMPLETED))
+            .toList());
+
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentGateway paymentGateway;
 
     @Autowired
-    public PaymentService(PaymentRepository paymentRepository, OrderRepository orderRepository) {
+    public PaymentService(PaymentRepository paymentRepository, OrderRepository orderRepository,
+                          OptimisticLockRetry optimisticLockRetry, ApplicationEventPublisher eventPublisher,
+                          PaymentGateway paymentGateway) {
         this.paymentRepository = paymentRepository;
         this.orderRepository = orderRepository;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.eventPublisher = eventPublisher;
+        this.paymentGateway = paymentGateway;
     }
 
-    @Transactional
+    static final int MAX_SPLIT_LEGS = 20;
+
+    /**
+     * Record a (partial) payment against an order. The balance check, the paid amount and the switch to
+     * COMPLETED are one conditional update in the database, so two terminals splitting a bill can
+     * never both pass the check and overpay; the payment row is written in the same transaction.
+     */
     public Payment createPayment(UUID orderId, double amount, Payment.PaymentMethod paymentMethod) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + orderId));
+        return book(orderId, List.of(new PaymentLeg(amount, paymentMethod))).get(0);
+    }
 
-        // Check if the amount is valid for partial payment
-        double remainingAmount = order.getRemainingAmount();
-        if (amount < 0 || amount > remainingAmount) {
-            throw new IllegalArgumentException("Payment amount must be positive and not exceed the remaining balance.");
+    /**
+     * Record a split bill: several payments against one order, checked against the remaining balance
+     * together and booked with a single update of the order. All or nothing: when any leg is invalid or
+     * the legs together exceed the remaining balance, no payment is recorded.
+     *
+     * @param legs The payments, at most MAX_SPLIT_LEGS.
+     * @return The saved payments, in leg order.
+     */
+    public List<Payment> createSplitPayments(UUID orderId, List<PaymentLeg> legs) {
+        if (legs == null || legs.isEmpty()) {
+            throw new IllegalArgumentException("At least one payment leg is required.");
+        }
+        if (legs.size() > MAX_SPLIT_LEGS) {
+            throw new IllegalArgumentException("A bill can be split into at most " + MAX_SPLIT_LEGS + " payments.");
         }
+        return book(orderId, legs);
+    }
 
-        // Create the new payment
-        Payment payment = new Payment();
-        payment.setOrder(order);
-        payment.setAmount(amount);
-        payment.setPaymentMethod(paymentMethod);
-        payment.setPaymentStatus(Payment.PaymentStatus.PENDING);
-        payment.setPaymentDate(LocalDateTime.now());
-        Payment savedPayment = paymentRepository.save(payment);
-
-        // Update the order's paid amount
-        order.setPaidAmount(order.getPaidAmount() + amount);
-
-        // Check if the order is fully paid
-        if (order.getRemainingAmount() == 0) {
-            order.setStatus(Order.Status.COMPLETED);
+    private List<Payment> book(UUID orderId, List<PaymentLeg> legs) {
+        double total = 0;
+        for (PaymentLeg leg : legs) {
+            if (!(leg.amount() > 0)) {
+                throw new IllegalArgumentException("Payment amount must be positive and not exceed the remaining balance.");
+            }
+            if (leg.paymentMethod() == null) {
+                throw new IllegalArgumentException("Payment method is required.");
+            }
+            total += leg.amount();
         }
+        double amount = total;
+
+        return optimisticLockRetry.execute(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (orderRepository.applyPayment(orderId, amount, COMPLETABLE, Order.Status.COMPLETED, now) == 0) {
+                if (!orderRepository.existsById(orderId)) {
+                    throw new EntityNotFoundException("Order not found with ID: " + orderId);
+                }
+                throw new IllegalArgumentException("Payment amount must be positive and not exceed the remaining balance.");
+            }
+            // Loaded after the update, so it shows the booked amount (the row stays locked until commit)
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + orderId));
 
-        orderRepository.save(order);
+            List<Payment> payments = new ArrayList<>(legs.size());
+            for (PaymentLeg leg : legs) {
+                Payment payment = new Payment();
+                payment.setOrder(order);
+                payment.setAmount(leg.amount());
+                payment.setPaymentMethod(leg.paymentMethod());
+                payment.setPaymentStatus(leg.paymentMethod() == Payment.PaymentMethod.CASH
+                        ? Payment.PaymentStatus.COMPLETED : Payment.PaymentStatus.PENDING);
+                payment.setPaymentDate(now);
+                payments.add(payment);
+            }
+            // A second statement in the same transaction, not a data-modifying CTE with the update: the
+            // test build has H2 only, and this way OrderConcurrencyTest runs the real booking in parallel
+            List<Payment> savedPayments = paymentRepository.saveAll(payments);
+
+            // The payment that settles the balance is the one that completed the order
+            if (order.getStatus() == Order.Status.COMPLETED && order.getRemainingAmount() <= 0) {
+                eventPublisher.publishEvent(OrderEvent.statusChanged(order));
+            }
+            submitAfterCommit(savedPayments);
+            return savedPayments;
+        });
+    }
 
-        return savedPayment;
+    /**
+     * Hand the payments that are still waiting for their outcome to the gateway again, e.g. those
+     * submitted shortly before a restart whose result never arrived.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resubmitPending() {
+        List<PaymentSubmission> pending = paymentRepository.findSubmissionsByStatus(
+                Payment.PaymentStatus.PENDING, Payment.PaymentMethod.CASH);
+        pending.forEach(this::submit);
+        if (!pending.isEmpty()) {
+            log.info("Resubmitted {} pending payments to the payment gateway", pending.size());
+        }
+    }
+
+    // A rolled back booking must never reach the gateway
+    private void submitAfterCommit(List<Payment> payments) {
+        List<PaymentSubmission> submissions = payments.stream()
+                .filter(payment -> payment.getPaymentStatus() == Payment.PaymentStatus.PENDING)
+                .map(payment -> new PaymentSubmission(payment.getId(), payment.getOrder().getId(),
+                        payment.getAmount(), payment.getPaymentMethod()))
+                .toList();
+        if (submissions.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submissions.forEach(this::submit);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submissions.forEach(PaymentService.this::submit);
+            }
+        });
+    }
+
+    // Stays PENDING when the gateway does not take it, and is submitted again at the next startup
+    private void submit(PaymentSubmission submission) {
+        try {
+            paymentGateway.submit(submission).whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    log.error("Payment gateway did not accept payment {}", submission.paymentId(), failure);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Payment gateway did not accept payment {}", submission.paymentId(), e);
+        }
     }
 
     public Payment getPaymentById(UUID paymentId) {
@@ -0,0 +1,227 @@
+package com.quantum.service;
+
+import com.quantum.dto.RecipeLine;
+import com.quantum.model.OrderItem;
+import com.quantum.repository.IngredientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of menu item recipes "exploded" into primitive arrays: for each menu item the dense indices
+ * of the inventory items it uses and the quantity per unit ordered. Order processing computes its
+ * ingredient usage from these arrays instead of walking MenuItem -> Ingredient -> InventoryItem.
+ *
+ * Recipes are loaded on first use with one projection query per batch of misses, and invalidated by
+ * MenuItemService and by the Ingredient entity listener (again after commit, so a concurrent load
+ * cannot cache the old recipe). Ingredient rows changed outside JPA need invalidateAll().
+ */
+@Component
+public class RecipeCache {
+
+    private static final Recipe EMPTY = new Recipe(new int[0], new double[0]);
+
+    private final IngredientRepository ingredientRepository;
+    private final Map<UUID, Recipe> recipes = new ConcurrentHashMap<>();
+    // Bumped by every invalidation; a load that raced with one is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    // Append-only registry giving each inventory item a dense index
+    private final Map<UUID, Integer> itemIndices = new ConcurrentHashMap<>();
+    private volatile UUID[] itemIds = new UUID[64];
+    private volatile int itemCount;
+
+    @Autowired
+    public RecipeCache(IngredientRepository ingredientRepository) {
+        this.ingredientRepository = ingredientRepository;
+    }
+
+    /**
+     * Total stock usage of a set of order items, one line per inventory item in first-use order.
+     *
+     * @param orderItems The ordered items; only their menu item id and quantity are read.
+     * @param note The ledger note of every usage line.
+     * @return The usage lines, empty when no recipe uses any stock.
+     * @throws IllegalArgumentException When an ingredient line of an order item is not positive (e.g. the
+     *         order item quantity is zero or negative), as useStockBatch would have rejected that line.
+     */
+    public List<StockTransactionService.StockUsage> stockUsage(List<OrderItem> orderItems, String note) {
+        Set<UUID> menuItemIds = new LinkedHashSet<>();
+        for (OrderItem orderItem : orderItems) {
+            if (orderItem.getMenuItem() != null && orderItem.getMenuItem().getId() != null) {
+                menuItemIds.add(orderItem.getMenuItem().getId());
+            }
+        }
+        if (menuItemIds.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, Recipe> orderRecipes = recipes(menuItemIds);
+
+        // Every index in the loaded recipes is below the current count
+        double[] totals = new double[itemCount];
+        boolean[] seen = new boolean[totals.length];
+        int[] touched = new int[totals.length];
+        int touchedCount = 0;
+        for (OrderItem orderItem : orderItems) {
+            if (orderItem.getMenuItem() == null || orderItem.getMenuItem().getId() == null) {
+                continue;
+            }
+            Recipe recipe = orderRecipes.get(orderItem.getMenuItem().getId());
+            int orderedQuantity = orderItem.getQuantity();
+            for (int i = 0; i < recipe.itemIndices.length; i++) {
+                // Checked per line, before summing can hide it behind other lines of the item
+                if (!(recipe.quantities[i] * orderedQuantity > 0)) {
+                    throw new IllegalArgumentException(StockTransactionService.INSUFFICIENT_STOCK);
+                }
+                int index = recipe.itemIndices[i];
+                if (!seen[index]) {
+                    seen[index] = true;
+                    touched[touchedCount++] = index;
+                }
+                totals[index] += recipe.quantities[i] * orderedQuantity;
+            }
+        }
+
+        UUID[] ids = itemIds;
+        List<StockTransactionService.StockUsage> usages = new ArrayList<>(touchedCount);
+        for (int i = 0; i < touchedCount; i++) {
+            int index = touched[i];
+            usages.add(new StockTransactionService.StockUsage(ids[index], totals[index], note));
+        }
+        return usages;
+    }
+
+    /**
+     * Load the recipes of the given menu items that are not cached yet, with one query, so that
+     * computing the usage of many orders afterwards does not query per order.
+     */
+    public void preload(Collection<UUID> menuItemIds) {
+        if (!menuItemIds.isEmpty()) {
+            recipes(new LinkedHashSet<>(menuItemIds));
+        }
+    }
+
+    /**
+     * Drop the cached recipe of a menu item, now and again when the current transaction commits.
+     */
+    public void invalidate(UUID menuItemId) {
+        evict(menuItemId);
+        afterCommit(() -> evict(menuItemId));
+    }
+
+    public void invalidateAll() {
+        evictAll();
+        afterCommit(this::evictAll);
+    }
+
+    int cachedRecipeCount() {
+        return recipes.size();
+    }
+
+    private Map<UUID, Recipe> recipes(Set<UUID> menuItemIds) {
+        Map<UUID, Recipe> result = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID menuItemId : menuItemIds) {
+            Recipe recipe = recipes.get(menuItemId);
+            if (recipe != null) {
+                result.put(menuItemId, recipe);
+            } else {
+                missing.add(menuItemId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long loadGeneration = generation.get();
+        Map<UUID, List<RecipeLine>> linesByMenuItem = new HashMap<>();
+        for (RecipeLine line : ingredientRepository.findRecipeLines(missing)) {
+            linesByMenuItem.computeIfAbsent(line.menuItemId(), id -> new ArrayList<>()).add(line);
+        }
+        for (UUID menuItemId : missing) {
+            Recipe recipe = compile(linesByMenuItem.getOrDefault(menuItemId, List.of()));
+            result.put(menuItemId, recipe);
+            recipes.put(menuItemId, recipe);
+            // An invalidation since the load started may have missed this entry, drop it again
+            if (generation.get() != loadGeneration) {
+                recipes.remove(menuItemId, recipe);
+            }
+        }
+        return result;
+    }
+
+    private Recipe compile(List<RecipeLine> lines) {
+        if (lines.isEmpty()) {
+            return EMPTY;
+        }
+        int[] indices = new int[lines.size()];
+        double[] quantities = new double[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            indices[i] = indexOf(lines.get(i).inventoryItemId());
+            quantities[i] = lines.get(i).quantity();
+        }
+        return new Recipe(indices, quantities);
+    }
+
+    private int indexOf(UUID inventoryItemId) {
+        Integer index = itemIndices.get(inventoryItemId);
+        return index != null ? index : register(inventoryItemId);
+    }
+
+    private synchronized int register(UUID inventoryItemId) {
+        Integer existing = itemIndices.get(inventoryItemId);
+        if (existing != null) {
+            return existing;
+        }
+        int index = itemCount;
+        UUID[] ids = itemIds;
+        if (index == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[index] = inventoryItemId;
+        itemIds = ids;
+        itemCount = index + 1;
+        itemIndices.put(inventoryItemId, index);
+        return index;
+    }
+
+    private void evict(UUID menuItemId) {
+        generation.incrementAndGet();
+        recipes.remove(menuItemId);
+    }
+
+    private void evictAll() {
+        generation.incrementAndGet();
+        recipes.clear();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * A menu item's recipe as parallel arrays: inventory item index and quantity per unit.
+     */
+    private record Recipe(int[] itemIndices, double[] quantities) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.quantum.service;
+
+import com.quantum.model.Ingredient;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Entity listener evicting the cached recipe of a menu item whenever one of its Ingredient rows is
+ * inserted, updated or deleted through JPA. Instantiated by Hibernate through Spring's bean container;
+ * the cache is looked up lazily so JPA-only contexts without it still start.
+ */
+public class RecipeCacheInvalidator {
+
+    private final ObjectProvider<RecipeCache> recipeCache;
+
+    public RecipeCacheInvalidator(ObjectProvider<RecipeCache> recipeCache) {
+        this.recipeCache = recipeCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void ingredientChanged(Ingredient ingredient) {
+        RecipeCache cache = recipeCache.getIfAvailable();
+        if (cache == null) {
+            return;
+        }
+        if (ingredient.getMenuItem() != null && ingredient.getMenuItem().getId() != null) {
+            cache.invalidate(ingredient.getMenuItem().getId());
+        } else {
+            cache.invalidateAll();
+        }
+    }
+}
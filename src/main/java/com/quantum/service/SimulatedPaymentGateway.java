@@ -0,0 +1,95 @@
+package com.quantum.service;
+
+import com.quantum.dto.PaymentResult;
+import com.quantum.dto.PaymentSubmission;
+import com.quantum.model.Payment;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a card processor, for development and load tests. Every submitted payment is
+ * decided after the configured latency (plus a random jitter): it fails with the configured
+ * probability and completes otherwise. Outcomes are reported straight to PaymentResultProcessor,
+ * as a real gateway would report them through the webhook.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.gateway.type", havingValue = "simulated", matchIfMissing = true)
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulatedPaymentGateway.class);
+
+    static final String DECLINED = "Declined by the simulated gateway.";
+
+    private final PaymentResultProcessor resultProcessor;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double failureRate;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("simulated-payment-gateway").daemon(true).factory());
+
+    @Autowired
+    public SimulatedPaymentGateway(PaymentResultProcessor resultProcessor,
+                                   @Value("${payments.gateway.simulated.latency-millis:200}") long latencyMillis,
+                                   @Value("${payments.gateway.simulated.latency-jitter-millis:100}") long latencyJitterMillis,
+                                   @Value("${payments.gateway.simulated.failure-rate:0.05}") double failureRate) {
+        if (latencyMillis < 0 || latencyJitterMillis < 0) {
+            throw new IllegalArgumentException("Simulated gateway latency must not be negative.");
+        }
+        if (!(failureRate >= 0 && failureRate <= 1)) {
+            throw new IllegalArgumentException("Simulated gateway failure rate must be between 0 and 1.");
+        }
+        this.resultProcessor = resultProcessor;
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public CompletableFuture<Void> submit(PaymentSubmission submission) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMillis + (latencyJitterMillis == 0 ? 0 : random.nextLong(latencyJitterMillis + 1));
+        boolean declined = random.nextDouble() < failureRate;
+        try {
+            scheduler.schedule(() -> report(decide(submission, declined)), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void report(PaymentResult result) {
+        try {
+            resultProcessor.accept(List.of(result));
+        } catch (DataAccessException e) {
+            // The payment stays PENDING and is submitted again at the next startup
+            log.error("Storing the result of payment {} failed", result.paymentId(), e);
+        }
+    }
+
+    private PaymentResult decide(PaymentSubmission submission, boolean declined) {
+        if (declined) {
+            return new PaymentResult(submission.paymentId(), Payment.PaymentStatus.FAILED, null, DECLINED);
+        }
+        return new PaymentResult(submission.paymentId(), Payment.PaymentStatus.COMPLETED,
+                "SIM-" + submission.paymentId(), null);
+    }
+}
@@ -6,16 +6,32 @@ import com.quantum.repository.InventoryItemRepository;
 import com.quantum.repository.StockTransactionRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
+/**
+ * Stock movements of inventory items and their ledger (stock_transaction). Every change of an
+ * item's quantity is a single conditional UPDATE in the database, written in the same transaction
+ * as its ledger row, so concurrent orders can neither lose an update nor oversell an item, and the
+ * quantity of an item always equals the sum of its ledger.
+ */
 @Service
 public class StockTransactionService {
 
+    static final int MAX_ADJUST_ATTEMPTS = 10;
+
+    static final String INSUFFICIENT_STOCK = "Quantity must be positive and not exceed available stock.";
+
     private final StockTransactionRepository stockTransactionRepository;
     private final InventoryItemRepository inventoryItemRepository;
 
@@ -37,25 +53,16 @@ public class StockTransactionService {
      */
     @Transactional
     public InventoryItem addStock(UUID itemId, double quantity, String note) {
-        InventoryItem item = inventoryItemRepository.findById(itemId)
-                .orElseThrow(() -> new EntityNotFoundException("Inventory item not found with ID: " + itemId));
-
         if (quantity <= 0) {
             throw new IllegalArgumentException("Quantity must be greater than zero.");
         }
-
-        item.setQuantity(item.getQuantity() + quantity);
-        item.setUpdatedAt(LocalDateTime.now());
-
-        StockTransaction transaction = new StockTransaction();
-        transaction.setInventoryItem(item);
-        transaction.setQuantity(quantity);
-        transaction.setType("PURCHASE");
-        transaction.setDate(LocalDateTime.now());
-        transaction.setNote(note);
-
-        stockTransactionRepository.save(transaction);
-        return inventoryItemRepository.save(item);
+        LocalDateTime now = LocalDateTime.now();
+        if (inventoryItemRepository.addQuantity(itemId, quantity, now) == 0) {
+            throw notFound(itemId);
+        }
+        InventoryItem item = updatedItem(itemId);
+        stockTransactionRepository.save(ledgerEntry(itemId, quantity, "PURCHASE", note, null, now));
+        return item;
     }
 
     /**
@@ -69,30 +76,148 @@ public class StockTransactionService {
      */
     @Transactional
     public InventoryItem useStock(UUID itemId, double quantity, String note) {
-        InventoryItem item = inventoryItemRepository.findById(itemId)
-                .orElseThrow(() -> new EntityNotFoundException("Inventory item not found with ID: " + itemId));
+        if (!(quantity > 0)) {
+            throw new IllegalArgumentException(INSUFFICIENT_STOCK);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (inventoryItemRepository.useQuantity(itemId, quantity, now) == 0) {
+            throw rejectedUsage(itemId);
+        }
+        InventoryItem item = updatedItem(itemId);
+        stockTransactionRepository.save(ledgerEntry(itemId, -quantity, "USAGE", note, null, now));
+        return item;
+    }
 
-        if (quantity <= 0 || quantity > item.getQuantity()) {
-            throw new IllegalArgumentException("Quantity must be positive and not exceed available stock.");
+    /**
+     * A single stock usage line: the quantity of one inventory item consumed, with its ledger note
+     * and the order it is used for (null when not used for an order).
+     */
+    public record StockUsage(UUID itemId, double quantity, String note, UUID orderId) {
+
+        public StockUsage(UUID itemId, double quantity, String note) {
+            this(itemId, quantity, note, null);
         }
 
-        item.setQuantity(item.getQuantity() - quantity);
-        item.setUpdatedAt(LocalDateTime.now());
+        public StockUsage forOrder(UUID orderId) {
+            return new StockUsage(itemId, quantity, note, orderId);
+        }
+    }
 
-        StockTransaction transaction = new StockTransaction();
-        transaction.setInventoryItem(item);
-        transaction.setQuantity(-quantity); // Negative to indicate reduction
-        transaction.setType("USAGE");
-        transaction.setDate(LocalDateTime.now());
-        transaction.setNote(note);
+    /**
+     * Use stock for several usage lines at once (e.g., every ingredient of an order), all or nothing.
+     * The lines of each inventory item are summed and taken off with one conditional update per
+     * item, without loading the items; the "USAGE" transactions are written per line as a JDBC batch.
+     * Validation, ledger rows and final quantities are the same as calling useStock once per line.
+     *
+     * @param usages The usage lines to apply, in order.
+     */
+    @Transactional
+    public void useStockBatch(List<StockUsage> usages) {
+        if (usages.isEmpty()) {
+            return;
+        }
+        // Sorted by id, so concurrent batches lock the rows they share in the same order and cannot deadlock
+        Map<UUID, Double> totals = new TreeMap<>();
+        for (StockUsage usage : usages) {
+            if (!(usage.quantity() > 0)) {
+                throw new IllegalArgumentException(INSUFFICIENT_STOCK);
+            }
+            totals.merge(usage.itemId(), usage.quantity(), Double::sum);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // A failing item rolls back the items taken before it
+        for (Map.Entry<UUID, Double> total : totals.entrySet()) {
+            if (inventoryItemRepository.useQuantity(total.getKey(), total.getValue(), now) == 0) {
+                throw rejectedUsage(total.getKey());
+            }
+        }
+        List<StockTransaction> transactions = new ArrayList<>(usages.size());
+        for (StockUsage usage : usages) {
+            transactions.add(ledgerEntry(usage.itemId(), -usage.quantity(), "USAGE", usage.note(), usage.orderId(), now));
+        }
+        stockTransactionRepository.saveAll(transactions);
+    }
+
+    /**
+     * Like useStockBatch, but a line that cannot be applied (unknown item, insufficient stock) is
+     * skipped instead of failing the whole batch. Used when the usage has already been accepted,
+     * e.g. by the asynchronous deduction queue. An item whose lines do not all fit is retried line by
+     * line, in order, so the lines applied are the same as with one useStock call per line.
+     *
+     * @param usages The usage lines to apply, in order.
+     * @return For each line, null when it was applied, otherwise the reason it was rejected.
+     */
+    @Transactional
+    public List<String> tryUseStockBatch(List<StockUsage> usages) {
+        if (usages.isEmpty()) {
+            return List.of();
+        }
+        String[] errors = new String[usages.size()];
+        // Sorted by id like in useStockBatch, to lock shared rows in the same order
+        Map<UUID, List<Integer>> linesByItem = new TreeMap<>();
+        for (int i = 0; i < usages.size(); i++) {
+            if (usages.get(i).quantity() > 0) {
+                linesByItem.computeIfAbsent(usages.get(i).itemId(), itemId -> new ArrayList<>()).add(i);
+            } else {
+                errors[i] = INSUFFICIENT_STOCK;
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<UUID, List<Integer>> item : linesByItem.entrySet()) {
+            UUID itemId = item.getKey();
+            double total = 0;
+            for (int line : item.getValue()) {
+                total += usages.get(line).quantity();
+            }
+            if (inventoryItemRepository.useQuantity(itemId, total, now) == 1) {
+                continue;
+            }
+            boolean exists = inventoryItemRepository.existsById(itemId);
+            for (int line : item.getValue()) {
+                if (!exists) {
+                    errors[line] = notFound(itemId).getMessage();
+                } else if (inventoryItemRepository.useQuantity(itemId, usages.get(line).quantity(), now) == 0) {
+                    errors[line] = INSUFFICIENT_STOCK;
+                }
+            }
+        }
+
+        List<StockTransaction> transactions = new ArrayList<>(usages.size());
+        for (int i = 0; i < usages.size(); i++) {
+            if (errors[i] == null) {
+                StockUsage usage = usages.get(i);
+                transactions.add(ledgerEntry(usage.itemId(), -usage.quantity(), "USAGE", usage.note(), usage.orderId(), now));
+            }
+        }
+        stockTransactionRepository.saveAll(transactions);
+        return Arrays.asList(errors);
+    }
 
-        stockTransactionRepository.save(transaction);
-        return inventoryItemRepository.save(item);
+    /**
+     * Give back the stock used for canceled orders. Each order's net usage per inventory item is
+     * booked as one "REVERSAL" transaction and added back to the items, with a single statement: one
+     * insert of all compensating rows and one update per item of the summed quantity. Orders whose
+     * usage was already reversed get no further rows.
+     *
+     * @param orderIds The canceled orders.
+     * @param since The creation time of the oldest of the orders; none of their usage is older.
+     * @return The ids of the inventory items that got stock back.
+     */
+    @Transactional
+    public List<UUID> reverseOrderUsage(Collection<UUID> orderIds, LocalDateTime since) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        return stockTransactionRepository.reverseOrderUsage(orderIds.toArray(new UUID[0]), since,
+                LocalDateTime.now(), "Reversed for canceled order");
     }
 
     /**
      * Adjust the stock of an inventory item (e.g., for corrections).
-     * Records an "ADJUSTMENT" transaction.
+     * Records an "ADJUSTMENT" transaction of the difference to the previous quantity. The quantity is
+     * replaced only if it did not change since it was read, so a usage committed in between is never
+     * lost from the ledger; on such a race the adjustment reads the quantity again.
      *
      * @param itemId The UUID of the inventory item.
      * @param newQuantity The new total quantity of the inventory item.
@@ -101,23 +226,16 @@ public class StockTransactionService {
      */
     @Transactional
     public InventoryItem adjustStock(UUID itemId, double newQuantity, String note) {
-        InventoryItem item = inventoryItemRepository.findById(itemId)
-                .orElseThrow(() -> new EntityNotFoundException("Inventory item not found with ID: " + itemId));
-
-        double quantityDifference = newQuantity - item.getQuantity();
-
-        item.setQuantity(newQuantity);
-        item.setUpdatedAt(LocalDateTime.now());
-
-        StockTransaction transaction = new StockTransaction();
-        transaction.setInventoryItem(item);
-        transaction.setQuantity(quantityDifference); // Positive or negative based on adjustment
-        transaction.setType("ADJUSTMENT");
-        transaction.setDate(LocalDateTime.now());
-        transaction.setNote(note);
-
-        stockTransactionRepository.save(transaction);
-        return inventoryItemRepository.save(item);
+        LocalDateTime now = LocalDateTime.now();
+        for (int attempt = 0; attempt < MAX_ADJUST_ATTEMPTS; attempt++) {
+            double quantity = inventoryItemRepository.findQuantityById(itemId).orElseThrow(() -> notFound(itemId));
+            if (inventoryItemRepository.replaceQuantity(itemId, quantity, newQuantity, now) == 1) {
+                InventoryItem item = updatedItem(itemId);
+                stockTransactionRepository.save(ledgerEntry(itemId, newQuantity - quantity, "ADJUSTMENT", note, null, now));
+                return item;
+            }
+        }
+        throw new OptimisticLockingFailureException("Stock of inventory item " + itemId + " kept changing during the adjustment.");
     }
 
     /**
@@ -129,4 +247,34 @@ public class StockTransactionService {
     public List<StockTransaction> getTransactionsByItem(UUID itemId) {
         return stockTransactionRepository.findByInventoryItemId(itemId);
     }
+
+    // Only the id is set on the reference, so writing the ledger does not load the item
+    private StockTransaction ledgerEntry(UUID itemId, double quantity, String type, String note, UUID orderId,
+                                         LocalDateTime date) {
+        StockTransaction transaction = new StockTransaction();
+        transaction.setInventoryItem(inventoryItemRepository.getReferenceById(itemId));
+        transaction.setQuantity(quantity); // Negative for reductions
+        transaction.setType(type);
+        transaction.setDate(date);
+        transaction.setNote(note);
+        transaction.setOrderId(orderId);
+        return transaction;
+    }
+
+    // Loaded before the ledger entry references the item, so the response is the entity, not a proxy.
+    // Read past the persistence context: the caller's transaction may hold the item from before the update.
+    private InventoryItem updatedItem(UUID itemId) {
+        return inventoryItemRepository.findCurrentById(itemId).orElseThrow(() -> notFound(itemId));
+    }
+
+    // A conditional update that changed nothing: the item is missing or has too little stock
+    private RuntimeException rejectedUsage(UUID itemId) {
+        return inventoryItemRepository.existsById(itemId)
+                ? new IllegalArgumentException(INSUFFICIENT_STOCK)
+                : notFound(itemId);
+    }
+
+    private static EntityNotFoundException notFound(UUID itemId) {
+        return new EntityNotFoundException("Inventory item not found with ID: " + itemId);
+    }
 }
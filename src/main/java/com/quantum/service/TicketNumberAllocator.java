@@ -0,0 +1,116 @@
+package com.quantum.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out the short ticket numbers kitchens call orders by, counting from 1 per restaurant and
+ * business day. Numbers come from in-memory counters, one per restaurant with its own lock, that
+ * reserve blocks of blockSize numbers from ticket_number_block (hi/lo). Restaurants never wait on
+ * each other and the database is hit once per block.
+ *
+ * A reservation commits on its own, so numbers are never reused, also across restarts and nodes;
+ * the unused rest of a block is skipped instead. With several nodes the numbers are unique per day
+ * but not in creation order.
+ */
+@Service
+public class TicketNumberAllocator {
+
+    private static final String RESERVE_BLOCK_SQL =
+            "INSERT INTO ticket_number_block (restaurant_id, business_day, next_value) VALUES (?, ?, ?) " +
+            "ON CONFLICT (restaurant_id, business_day) " +
+            "DO UPDATE SET next_value = ticket_number_block.next_value + EXCLUDED.next_value - 1 " +
+            "RETURNING next_value";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations reservationTransaction;
+    private final int blockSize;
+    private final LocalTime businessDayStart;
+    private final Clock clock;
+    private final Map<UUID, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TicketNumberAllocator(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${tickets.block-size:20}") int blockSize,
+                                 @Value("${tickets.business-day-start:04:00}") String businessDayStart) {
+        this(jdbcTemplate, requiresNew(transactionManager), blockSize, LocalTime.parse(businessDayStart),
+                Clock.systemDefaultZone());
+    }
+
+    TicketNumberAllocator(JdbcTemplate jdbcTemplate, TransactionOperations reservationTransaction, int blockSize,
+                          LocalTime businessDayStart, Clock clock) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Ticket number block size must be positive.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.reservationTransaction = reservationTransaction;
+        this.blockSize = blockSize;
+        this.businessDayStart = businessDayStart;
+        this.clock = clock;
+    }
+
+    /**
+     * @return The next ticket number of the restaurant for the current business day.
+     */
+    public int next(UUID restaurantId) {
+        LocalDate businessDay = businessDay();
+        Counter counter = counters.computeIfAbsent(restaurantId, id -> new Counter());
+        synchronized (counter) {
+            if (!businessDay.equals(counter.businessDay) || counter.next >= counter.limit) {
+                int first = reserveBlock(restaurantId, businessDay);
+                counter.businessDay = businessDay;
+                counter.next = first;
+                counter.limit = first + blockSize;
+            }
+            return counter.next++;
+        }
+    }
+
+    /**
+     * The business day a moment belongs to: days start at businessDayStart, so orders after midnight
+     * still count towards the previous evening's service.
+     */
+    LocalDate businessDay() {
+        return LocalDateTime.now(clock).minusHours(businessDayStart.getHour())
+                .minusMinutes(businessDayStart.getMinute()).toLocalDate();
+    }
+
+    // Returns the first number of the reserved block
+    private int reserveBlock(UUID restaurantId, LocalDate businessDay) {
+        Integer nextValue = reservationTransaction.execute(status -> jdbcTemplate.queryForObject(
+                RESERVE_BLOCK_SQL, Integer.class, restaurantId, Date.valueOf(businessDay), blockSize + 1));
+        if (nextValue == null) {
+            throw new IllegalStateException("No ticket number block reserved for restaurant " + restaurantId);
+        }
+        return nextValue - blockSize;
+    }
+
+    // Committed even when the order that needed the block rolls back
+    private static TransactionOperations requiresNew(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static final class Counter {
+        private LocalDate businessDay;
+        private int next;
+        private int limit;
+    }
+}
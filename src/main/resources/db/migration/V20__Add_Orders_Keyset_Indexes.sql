@@ -0,0 +1,5 @@
+-- Keyset pagination of a restaurant's orders on (created_at DESC, id DESC), with the common filters leading
+CREATE INDEX IF NOT EXISTS idx_orders_restaurant_created ON orders (restaurant_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_restaurant_status_created ON orders (restaurant_id, status, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_table_created ON orders (table_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_waiter_created ON orders (waiter_id, created_at DESC, id DESC);
@@ -0,0 +1,2 @@
+-- Optimistic locking version for concurrent updates of an order's totals and status
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,16 @@
+-- Outbox of stock deductions recorded with the order and drained asynchronously, oldest first per inventory item
+CREATE SEQUENCE IF NOT EXISTS inventory_deduction_job_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE inventory_deduction_job (
+    id BIGINT PRIMARY KEY,
+    order_id UUID NOT NULL,
+    inventory_item_id UUID NOT NULL,
+    quantity DOUBLE PRECISION NOT NULL,
+    note TEXT,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING', -- PENDING, FAILED (applied jobs are deleted)
+    error TEXT,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    processed_at TIMESTAMP WITHOUT TIME ZONE
+);
+
+CREATE INDEX idx_inventory_deduction_job_pending ON inventory_deduction_job (id) WHERE status = 'PENDING';
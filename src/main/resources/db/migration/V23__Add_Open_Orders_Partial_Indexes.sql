@@ -0,0 +1,6 @@
+-- Partial indexes over open (non-terminal) orders only: open-order lookups stay as cheap as the number
+-- of open orders, however much completed and canceled history a restaurant has.
+-- Keep the predicate in sync with the non-terminal statuses of Order.Status and the OrderRepository queries.
+CREATE INDEX IF NOT EXISTS idx_orders_open_restaurant ON orders (restaurant_id, created_at, id) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_orders_open_table ON orders (table_id, created_at, id) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_orders_open_waiter ON orders (waiter_id, created_at, id) WHERE status = 'PENDING';
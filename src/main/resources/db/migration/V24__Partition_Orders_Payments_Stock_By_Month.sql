@@ -0,0 +1,121 @@
+-- Monthly range partitioning of the tables that only grow:
+--   orders (created_at), order_items (created_at), payments (payment_date), stock_transaction (date).
+-- Partitions are named {table}_pYYYYMM; {table}_default catches rows outside the created months and
+-- should stay empty. Future months are created, and cold months detached, by PartitionMaintenanceService.
+--
+-- Postgres requires the partition key in every unique constraint, so the primary keys become
+-- (id, key). Foreign keys can no longer point at orders, so the ON DELETE CASCADE of order_items and
+-- payments is kept with a trigger instead.
+
+-- Create the monthly partitions of parent covering first_month .. last_month, skipping existing ones
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent TEXT, first_month DATE, last_month DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    cur_month DATE := date_trunc('month', first_month)::date;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    -- Several application nodes run the maintenance job
+    PERFORM pg_advisory_xact_lock(hashtext('monthly_partitions:' || parent));
+    WHILE cur_month <= last_month LOOP
+        partition_name := parent || '_p' || to_char(cur_month, 'YYYYMM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, parent, cur_month, (cur_month + INTERVAL '1 month')::date);
+            created := created + 1;
+        END IF;
+        cur_month := (cur_month + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detach the monthly partitions of parent whose whole month ends on or before cutoff. Detached
+-- partitions stay as plain tables (same name) to be archived and dropped by an operator.
+CREATE OR REPLACE FUNCTION detach_monthly_partitions_before(parent TEXT, cutoff DATE)
+RETURNS SETOF TEXT AS $$
+DECLARE
+    child TEXT;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('monthly_partitions:' || parent));
+    FOR child IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = to_regclass(parent)
+          AND c.relname ~ ('^' || parent || '_p[0-9]{6}$')
+        ORDER BY c.relname
+    LOOP
+        IF (to_date(right(child, 6), 'YYYYMM') + INTERVAL '1 month') <= cutoff THEN
+            EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent, child);
+            RETURN NEXT child;
+        END IF;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- One-off: swap tbl for a partitioned copy holding the same rows, keeping the old table as tbl_legacy
+CREATE FUNCTION partition_by_month_from_legacy(tbl TEXT, key_column TEXT)
+RETURNS VOID AS $$
+DECLARE
+    first_month DATE;
+BEGIN
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, tbl || '_legacy');
+    EXECUTE format('UPDATE %I SET %I = CURRENT_TIMESTAMP WHERE %I IS NULL', tbl || '_legacy', key_column, key_column);
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (%I)',
+                   tbl, tbl || '_legacy', key_column);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN %I SET NOT NULL', tbl, key_column);
+
+    EXECUTE format('SELECT min(%I)::date FROM %I', key_column, tbl || '_legacy') INTO first_month;
+    PERFORM create_monthly_partitions(tbl, COALESCE(first_month, CURRENT_DATE),
+                                      (CURRENT_DATE + INTERVAL '3 months')::date);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_default', tbl);
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', tbl, tbl || '_legacy');
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT partition_by_month_from_legacy('orders', 'created_at');
+SELECT partition_by_month_from_legacy('order_items', 'created_at');
+SELECT partition_by_month_from_legacy('payments', 'payment_date');
+SELECT partition_by_month_from_legacy('stock_transaction', 'date');
+
+DROP FUNCTION partition_by_month_from_legacy(TEXT, TEXT);
+DROP TABLE order_items_legacy, payments_legacy, stock_transaction_legacy, orders_legacy;
+
+-- Keys and indexes, built after the copy
+ALTER TABLE orders ADD PRIMARY KEY (id, created_at);
+ALTER TABLE orders ADD FOREIGN KEY (restaurant_id) REFERENCES restaurants(id) ON DELETE CASCADE;
+ALTER TABLE orders ADD FOREIGN KEY (table_id) REFERENCES tables(id) ON DELETE CASCADE;
+ALTER TABLE orders ADD FOREIGN KEY (waiter_id) REFERENCES employees(id) ON DELETE SET NULL;
+CREATE INDEX idx_orders_restaurant_created ON orders (restaurant_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_restaurant_status_created ON orders (restaurant_id, status, created_at DESC, id DESC);
+CREATE INDEX idx_orders_table_created ON orders (table_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_waiter_created ON orders (waiter_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_open_restaurant ON orders (restaurant_id, created_at, id) WHERE status = 'PENDING';
+CREATE INDEX idx_orders_open_table ON orders (table_id, created_at, id) WHERE status = 'PENDING';
+CREATE INDEX idx_orders_open_waiter ON orders (waiter_id, created_at, id) WHERE status = 'PENDING';
+
+ALTER TABLE order_items ADD PRIMARY KEY (id, created_at);
+ALTER TABLE order_items ADD FOREIGN KEY (menu_item_id) REFERENCES menu_items(id) ON DELETE SET NULL;
+CREATE INDEX idx_order_items_order ON order_items (order_id);
+
+ALTER TABLE payments ADD PRIMARY KEY (id, payment_date);
+CREATE INDEX idx_payments_order ON payments (order_id);
+CREATE INDEX idx_payments_date ON payments (payment_date, id);
+
+ALTER TABLE stock_transaction ADD PRIMARY KEY (id, date);
+ALTER TABLE stock_transaction ADD FOREIGN KEY (inventory_item_id) REFERENCES inventory_item(id) ON DELETE CASCADE;
+CREATE INDEX idx_stock_transaction_item_date ON stock_transaction (inventory_item_id, date);
+
+CREATE FUNCTION delete_order_children() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM order_items WHERE order_id = OLD.id;
+    DELETE FROM payments WHERE order_id = OLD.id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_orders_delete_children
+    AFTER DELETE ON orders
+    FOR EACH ROW EXECUTE FUNCTION delete_order_children();
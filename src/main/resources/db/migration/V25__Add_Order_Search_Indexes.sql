@@ -0,0 +1,5 @@
+-- Order history search (OrderService.searchOrders). Date, status, table and waiter filters are served by
+-- the V20 keyset indexes; these cover the amount range and the "contains menu item" filters.
+CREATE INDEX IF NOT EXISTS idx_orders_restaurant_total ON orders (restaurant_id, total_amount, created_at DESC, id DESC);
+-- Drives the EXISTS per searched menu item, and finds the orders of a menu item without scanning order_items
+CREATE INDEX IF NOT EXISTS idx_order_items_menu_item_order ON order_items (menu_item_id, order_id);
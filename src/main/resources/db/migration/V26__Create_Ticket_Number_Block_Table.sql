@@ -0,0 +1,11 @@
+-- High-water mark of the short ticket numbers handed out per restaurant and business day.
+-- TicketNumberAllocator reserves blocks of numbers by bumping next_value; numbers of a block left unused
+-- (restart, other node) are skipped, never reused.
+CREATE TABLE ticket_number_block (
+    restaurant_id UUID NOT NULL REFERENCES restaurants(id) ON DELETE CASCADE,
+    business_day DATE NOT NULL,
+    next_value INTEGER NOT NULL,
+    PRIMARY KEY (restaurant_id, business_day)
+);
+
+ALTER TABLE orders ADD COLUMN ticket_number INTEGER;
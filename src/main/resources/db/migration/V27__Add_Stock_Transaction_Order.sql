@@ -0,0 +1,12 @@
+-- Links order usage (and its reversal on cancel) to the order, so an order's ledger rows are found by index
+ALTER TABLE stock_transaction ADD COLUMN order_id UUID;
+
+-- A note may go on after the id, separated by a comma; substring returns the first group, the id
+UPDATE stock_transaction
+SET order_id = CAST(substring(note FROM '^Used for order ID: ([0-9a-fA-F-]{36})(,|$)') AS UUID)
+WHERE type = 'USAGE' AND note ~ '^Used for order ID: ([0-9a-fA-F-]{36})(,|$)';
+
+CREATE INDEX idx_stock_transaction_order ON stock_transaction (order_id, date) WHERE order_id IS NOT NULL;
+
+-- Canceling an order drops its deduction jobs that were not applied yet
+CREATE INDEX idx_inventory_deduction_job_order ON inventory_deduction_job (order_id);
@@ -0,0 +1,14 @@
+-- Kitchen station that prepares a menu item (e.g. grill, bar); items without one go to the default station
+ALTER TABLE menu_items ADD COLUMN station VARCHAR(50);
+
+-- Bumped (done) kitchen tickets, one per order item, written in batches by KitchenStationService.
+-- Open tickets are rebuilt at startup from the open orders' items that have no row here.
+CREATE TABLE kitchen_ticket_bump (
+    order_item_id UUID PRIMARY KEY,
+    restaurant_id UUID NOT NULL,
+    station VARCHAR(50) NOT NULL,
+    bumped_by UUID REFERENCES employees(id) ON DELETE SET NULL,
+    bumped_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_kitchen_ticket_bump_bumped_at ON kitchen_ticket_bump (bumped_at);
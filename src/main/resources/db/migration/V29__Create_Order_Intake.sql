@@ -0,0 +1,14 @@
+-- Client order ids already taken in through the order intake, one row per id. Written in the same
+-- transaction as the order, so replaying the intake journal after a crash never creates an order twice.
+-- Rejected entries (unknown table, menu item, ...) are kept with the reason instead of an order id.
+CREATE TABLE order_intake (
+    client_order_id VARCHAR(100) PRIMARY KEY,
+    restaurant_id UUID NOT NULL,
+    order_id UUID,
+    status VARCHAR(20) NOT NULL,
+    error TEXT,
+    accepted_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    processed_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_order_intake_processed_at ON order_intake (processed_at);
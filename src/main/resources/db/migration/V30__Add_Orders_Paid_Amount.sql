@@ -0,0 +1,2 @@
+-- Amount paid so far, booked atomically with each payment (see OrderRepository.applyPayment)
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS paid_amount DECIMAL(10, 2) NOT NULL DEFAULT 0.00;
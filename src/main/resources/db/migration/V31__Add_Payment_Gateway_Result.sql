@@ -0,0 +1,17 @@
+-- Outcome reported by the payment gateway for card payments (see PaymentResultProcessor)
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS gateway_reference VARCHAR(100);
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS failure_reason TEXT;
+
+-- Payments still waiting for their outcome, resubmitted to the gateway at startup
+CREATE INDEX IF NOT EXISTS idx_payments_pending ON payments (payment_date) WHERE payment_status = 'PENDING';
+
+-- Gateway results received but not applied yet. The webhook is acknowledged only once its results are
+-- stored here; PaymentResultProcessor applies them and deletes them in the same statement.
+CREATE TABLE IF NOT EXISTS payment_gateway_results (
+    id BIGSERIAL PRIMARY KEY,
+    payment_id UUID NOT NULL,
+    payment_status VARCHAR(50) NOT NULL,
+    gateway_reference VARCHAR(100),
+    failure_reason TEXT,
+    received_at TIMESTAMP NOT NULL
+);
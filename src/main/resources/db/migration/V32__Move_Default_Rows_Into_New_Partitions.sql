@@ -0,0 +1,53 @@
+-- create_monthly_partitions (V24) failed as soon as a default partition held a row of a month being
+-- created: Postgres refuses a new partition whose range the default partition already has rows of.
+-- Offline orders (BulkOrderIngestService) are stamped with the client's time, so orders and
+-- order_items rows can sit in {table}_default. A new month's partition is now created as a plain
+-- table, filled with that month's rows moved out of the default partition, and then attached.
+
+-- Moving rows deletes them from orders_default; the moved orders keep their items and payments
+CREATE OR REPLACE FUNCTION delete_order_children() RETURNS TRIGGER AS $$
+BEGIN
+    IF current_setting('partitions.moving_rows', true) = 'on' THEN
+        RETURN OLD;
+    END IF;
+    DELETE FROM order_items WHERE order_id = OLD.id;
+    DELETE FROM payments WHERE order_id = OLD.id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent TEXT, first_month DATE, last_month DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    cur_month DATE := date_trunc('month', first_month)::date;
+    next_month DATE;
+    partition_name TEXT;
+    default_name TEXT := parent || '_default';
+    -- The range column, from a partition key such as "RANGE (created_at)"
+    key_column TEXT := substring(pg_get_partkeydef(to_regclass(parent)) FROM '^RANGE \((.+)\)$');
+    created INTEGER := 0;
+BEGIN
+    -- Several application nodes run the maintenance job
+    PERFORM pg_advisory_xact_lock(hashtext('monthly_partitions:' || parent));
+    WHILE cur_month <= last_month LOOP
+        partition_name := parent || '_p' || to_char(cur_month, 'YYYYMM');
+        next_month := (cur_month + INTERVAL '1 month')::date;
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+                           partition_name, parent);
+            IF to_regclass(default_name) IS NOT NULL THEN
+                PERFORM set_config('partitions.moving_rows', 'on', true);
+                EXECUTE format('WITH moved AS (DELETE FROM %I WHERE %I >= %L AND %I < %L RETURNING *) ' ||
+                               'INSERT INTO %I SELECT * FROM moved',
+                               default_name, key_column, cur_month, key_column, next_month, partition_name);
+                PERFORM set_config('partitions.moving_rows', 'off', true);
+            END IF;
+            EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           parent, partition_name, cur_month, next_month);
+            created := created + 1;
+        END IF;
+        cur_month := next_month;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,7 @@
+-- Transaction that recorded a deduction job. Workers take jobs in (xact_id, id) order and only from
+-- transactions older than every one still running (see InventoryDeductionJobRepository), so a job
+-- recorded later can never be applied before an earlier one of the same inventory item.
+ALTER TABLE inventory_deduction_job ADD COLUMN IF NOT EXISTS xact_id XID8 NOT NULL DEFAULT pg_current_xact_id();
+
+DROP INDEX IF EXISTS idx_inventory_deduction_job_pending;
+CREATE INDEX idx_inventory_deduction_job_pending ON inventory_deduction_job (xact_id, id) WHERE status = 'PENDING';
@@ -0,0 +1,126 @@
+package com.quantum.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for comparing the platform-thread and virtual-thread execution modes.
+ * Not a unit test: start the API once with VIRTUAL_THREADS=false and once with VIRTUAL_THREADS=true
+ * (same database, same DB_POOL_SIZE) and run this against each, with the concurrency above
+ * server.tomcat.threads.max (200 by default) so the platform pool is the bottleneck being measured.
+ *
+ * <pre>
+ * java -cp target/test-classes com.quantum.benchmark.ThreadModeBenchmark \
+ *     http://localhost:8090/api/orders/restaurants/{restaurantId} 400 60 10
+ * </pre>
+ *
+ * Arguments: url, concurrent clients, measured seconds, warm-up seconds. Credentials are taken from
+ * ADMIN_USER / ADMIN_PASSWORD like the application. Prints throughput, error count and latency percentiles.
+ */
+public final class ThreadModeBenchmark {
+
+    private ThreadModeBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ThreadModeBenchmark <url> [clients=400] [seconds=60] [warmupSeconds=10]");
+            System.exit(1);
+        }
+        URI uri = URI.create(args[0]);
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        Duration measured = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 60);
+        Duration warmup = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 10);
+
+        String credentials = System.getenv().getOrDefault("ADMIN_USER", "admin") + ":"
+                + System.getenv().getOrDefault("ADMIN_PASSWORD", "123");
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        // The clients themselves run on virtual threads so the generator is never the bottleneck
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+
+            System.out.printf("Warming up %s with %d clients for %ds%n", uri, clients, warmup.toSeconds());
+            run(client, request, executor, clients, warmup);
+
+            System.out.printf("Measuring for %ds%n", measured.toSeconds());
+            Result result = run(client, request, executor, clients, measured);
+            result.print(measured);
+        }
+    }
+
+    private static Result run(HttpClient client, HttpRequest request, ExecutorService executor,
+                              int clients, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> futures = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            futures.add(executor.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        List<long[]> perClient = new ArrayList<>(clients);
+        for (Future<long[]> future : futures) {
+            perClient.add(future.get());
+        }
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, errors.get());
+    }
+
+    private record Result(long[] sortedLatencies, long errors) {
+
+        void print(Duration duration) {
+            int requests = sortedLatencies.length;
+            System.out.printf("requests: %d, errors: %d, throughput: %.1f req/s%n",
+                    requests, errors, requests / (double) duration.toSeconds());
+            System.out.printf("latency ms  p50: %.1f  p90: %.1f  p99: %.1f  max: %.1f%n",
+                    percentile(0.50), percentile(0.90), percentile(0.99), percentile(1.0));
+        }
+
+        private double percentile(double fraction) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.quantum.repository;
+
+import com.quantum.dto.OrderItemView;
+import com.quantum.dto.OrderSummary;
+import com.quantum.model.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Regression test for N+1 loading: the order read views must cost a fixed number of statements
+ * however many orders, tables, waiters and items are involved.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class OrderReadQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    private Statistics statistics;
+    private Restaurant restaurant;
+    private Order firstOrder;
+    private MenuItem burger;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+
+        restaurant = new Restaurant();
+        restaurant.setName("Quantum Diner");
+        restaurant.setEmail("diner@quantum.test");
+        entityManager.persist(restaurant);
+
+        RestaurantLayout layout = new RestaurantLayout();
+        layout.setRestaurant(restaurant);
+        entityManager.persist(layout);
+
+        Floor floor = new Floor();
+        floor.setLayout(layout);
+        floor.setFloorNumber(1);
+        entityManager.persist(floor);
+
+        Menu menu = new Menu();
+        menu.setRestaurant(restaurant);
+        menu.setName("Dinner");
+        entityManager.persist(menu);
+
+        InventoryItem buns = new InventoryItem();
+        buns.setName("Buns");
+        buns.setRestaurant(restaurant);
+        buns.setQuantity(100);
+        entityManager.persist(buns);
+
+        burger = new MenuItem();
+        burger.setMenu(menu);
+        burger.setName("Burger");
+        burger.setPrice(9.5);
+        entityManager.persist(burger);
+
+        Ingredient ingredient = new Ingredient();
+        ingredient.setMenuItem(burger);
+        ingredient.setInventoryItem(buns);
+        ingredient.setQuantity(1);
+        entityManager.persist(ingredient);
+
+        for (int i = 1; i <= 4; i++) {
+            Table table = new Table();
+            table.setId(i);
+            table.setFloor(floor);
+            table.setTableNumber(i);
+            table.setCapacity(4);
+            entityManager.persist(table);
+
+            Employee waiter = new Employee();
+            waiter.setRestaurant(restaurant);
+            waiter.setFloor(floor);
+            waiter.setName("Waiter " + i);
+            waiter.setRole(Employee.Role.WAITER);
+            entityManager.persist(waiter);
+
+            Order order = new Order();
+            order.setRestaurant(restaurant);
+            order.setTable(table);
+            order.setWaiter(waiter);
+            order.setStatus(Order.Status.PENDING);
+            order.setTotalAmount(10.0 * i);
+            order.setCreatedAt(now.minusMinutes(i));
+            order.setUpdatedAt(now.minusMinutes(i));
+            entityManager.persist(order);
+            if (firstOrder == null) {
+                firstOrder = order;
+            }
+
+            for (int j = 0; j < 3; j++) {
+                OrderItem orderItem = new OrderItem();
+                orderItem.setOrder(order);
+                orderItem.setMenuItem(burger);
+                orderItem.setQuantity(j + 1);
+                orderItem.setPrice(burger.getPrice());
+                entityManager.persist(orderItem);
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void orderDetail_ShouldLoadInTwoStatements() {
+        OrderSummary order = orderRepository.findSummaryById(firstOrder.getId()).orElseThrow();
+        List<OrderItemView> items = orderItemRepository.findViewsByOrderId(firstOrder.getId());
+
+        assertEquals(firstOrder.getId(), order.id());
+        assertEquals("Waiter 1", order.waiterName());
+        assertEquals(3, items.size());
+        assertEquals("Burger", items.get(0).menuItemName());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void orderList_ShouldLoadInOneStatement() {
+        List<OrderSummary> orders = orderRepository.findSummariesByRestaurantId(restaurant.getId());
+
+        assertEquals(4, orders.size());
+        assertEquals(firstOrder.getId(), orders.get(0).id());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void orderPage_ShouldLoadInOneStatement() {
+        List<OrderSummary> orders = orderRepository.findSummaries(
+                OrderSpecifications.hasRestaurant(restaurant.getId()),
+                Sort.by(Sort.Direction.DESC, "createdAt", "id"), 3);
+
+        assertEquals(3, orders.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void orderSearch_ShouldFilterOnAmountAndMenuItemsInOneStatement() {
+        Specification<Order> spec = Specification.where(OrderSpecifications.hasRestaurant(restaurant.getId()))
+                .and(OrderSpecifications.totalFrom(15.0))
+                .and(OrderSpecifications.totalTo(30.0))
+                .and(OrderSpecifications.containsMenuItems(List.of(burger.getId(), burger.getId())));
+
+        List<OrderSummary> orders = orderRepository.findSummaries(spec, Sort.by(Sort.Direction.DESC, "createdAt", "id"), 10);
+
+        assertEquals(List.of(20.0, 30.0), orders.stream().map(OrderSummary::totalAmount).toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void orderSearch_ShouldReturnNothing_WhenNoOrderContainsAllMenuItems() {
+        Specification<Order> spec = Specification.where(OrderSpecifications.hasRestaurant(restaurant.getId()))
+                .and(OrderSpecifications.containsMenuItems(List.of(burger.getId(), UUID.randomUUID())));
+
+        assertTrue(orderRepository.findSummaries(spec, Sort.by("id"), 10).isEmpty());
+    }
+
+    @Test
+    void orderDetail_ShouldReturnEmpty_WhenOrderDoesNotExist() {
+        assertTrue(orderRepository.findSummaryById(UUID.randomUUID()).isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
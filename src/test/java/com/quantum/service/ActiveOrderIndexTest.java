@@ -0,0 +1,133 @@
+package com.quantum.service;
+
+import com.quantum.dto.ActiveTableOrder;
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.dto.OrderSummary;
+import com.quantum.model.Order;
+import com.quantum.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ActiveOrderIndexTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private ActiveOrderIndex activeOrderIndex;
+    private UUID restaurantId;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        activeOrderIndex = new ActiveOrderIndex(orderRepository);
+        restaurantId = UUID.randomUUID();
+    }
+
+    @Test
+    void rebuild_ShouldLoadTheNewestOpenOrderPerTable() {
+        UUID older = UUID.randomUUID();
+        UUID newer = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        when(orderRepository.findActiveTableOrders()).thenReturn(List.of(
+                new ActiveTableOrder(1, older), new ActiveTableOrder(2, other), new ActiveTableOrder(1, newer)));
+
+        activeOrderIndex.rebuild();
+
+        assertEquals(newer, activeOrderIndex.getActiveOrderId(1));
+        assertEquals(other, activeOrderIndex.getActiveOrderId(2));
+        assertNull(activeOrderIndex.getActiveOrderId(3));
+    }
+
+    @Test
+    void onOrderEvent_ShouldTrackCreatedAndClosedOrders() {
+        UUID orderId = UUID.randomUUID();
+
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.ORDER_CREATED, 7, orderId, Order.Status.PENDING));
+        assertEquals(orderId, activeOrderIndex.getActiveOrderId(7));
+
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.STATUS_CHANGED, 7, orderId, Order.Status.COMPLETED));
+        assertNull(activeOrderIndex.getActiveOrderId(7));
+        verify(orderRepository, times(1)).findOpenSummariesByTableId(7);
+    }
+
+    @Test
+    void onOrderEvent_ShouldFallBackToAnOlderOpenOrder_WhenTheActiveOneIsCanceled() {
+        UUID older = UUID.randomUUID();
+        UUID newer = UUID.randomUUID();
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.ORDER_CREATED, 4, older, Order.Status.PENDING));
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.ORDER_CREATED, 4, newer, Order.Status.PENDING));
+        when(orderRepository.findOpenSummariesByTableId(4)).thenReturn(List.of(summary(older)));
+
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.STATUS_CHANGED, 4, newer, Order.Status.CANCELED));
+
+        assertEquals(older, activeOrderIndex.getActiveOrderId(4));
+    }
+
+    @Test
+    void onOrderEvents_ShouldIgnoreClosingAnOrderThatIsNotActive() {
+        UUID active = UUID.randomUUID();
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.ORDER_CREATED, 5, active, Order.Status.PENDING));
+
+        activeOrderIndex.onOrderEvents(new OrderEventBatch(List.of(
+                event(OrderEvent.Type.STATUS_CHANGED, 5, UUID.randomUUID(), Order.Status.COMPLETED))));
+
+        assertEquals(active, activeOrderIndex.getActiveOrderId(5));
+        verify(orderRepository, never()).findOpenSummariesByTableId(anyInt());
+    }
+
+    @Test
+    void onOrderEvent_ShouldRestoreAReopenedOrder_UnlessTheTableHasAnotherOne() {
+        UUID reopened = UUID.randomUUID();
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.STATUS_CHANGED, 6, reopened, Order.Status.PENDING));
+        assertEquals(reopened, activeOrderIndex.getActiveOrderId(6));
+
+        UUID active = UUID.randomUUID();
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.ORDER_CREATED, 8, active, Order.Status.PENDING));
+        activeOrderIndex.onOrderEvent(event(OrderEvent.Type.STATUS_CHANGED, 8, reopened, Order.Status.PENDING));
+        assertEquals(active, activeOrderIndex.getActiveOrderId(8));
+    }
+
+    @Test
+    void intUuidMap_ShouldMatchAHashMapUnderRandomPutsAndRemoves() {
+        IntUuidMap map = new IntUuidMap(4);
+        Map<Integer, UUID> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(500) - 50;
+            if (random.nextBoolean()) {
+                UUID value = UUID.randomUUID();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            } else if (expected.containsKey(key)) {
+                assertTrue(map.remove(key, expected.remove(key)));
+            } else {
+                assertFalse(map.remove(key, UUID.randomUUID()));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -50; key < 450; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    private OrderEvent event(OrderEvent.Type type, int tableId, UUID orderId, Order.Status status) {
+        return new OrderEvent(type, restaurantId, orderId, tableId, status, null, null, null, null, LocalDateTime.now());
+    }
+
+    private OrderSummary summary(UUID orderId) {
+        return new OrderSummary(orderId, restaurantId, 4, 4, null, null, 0.0, 0.0,
+                Order.Status.PENDING, LocalDateTime.now(), LocalDateTime.now());
+    }
+}
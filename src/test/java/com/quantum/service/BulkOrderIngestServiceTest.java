@@ -0,0 +1,338 @@
+package com.quantum.service;
+
+import com.quantum.dto.BulkOrderResult;
+import com.quantum.dto.OfflineOrder;
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.dto.OrderItemRequest;
+import com.quantum.model.Employee;
+import com.quantum.model.Floor;
+import com.quantum.model.Menu;
+import com.quantum.model.MenuItem;
+import com.quantum.model.Order;
+import com.quantum.model.OrderIntake;
+import com.quantum.model.OrderItem;
+import com.quantum.model.Restaurant;
+import com.quantum.model.RestaurantLayout;
+import com.quantum.model.Table;
+import com.quantum.repository.EmployeeRepository;
+import com.quantum.repository.MenuItemRepository;
+import com.quantum.repository.OrderIntakeRepository;
+import com.quantum.repository.RestaurantRepository;
+import com.quantum.repository.TableRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.PreparedStatement;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkOrderIngestServiceTest {
+
+    @Mock
+    private RestaurantRepository restaurantRepository;
+
+    @Mock
+    private TableRepository tableRepository;
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private MenuItemRepository menuItemRepository;
+
+    @Mock
+    private OrderIntakeRepository intakeRepository;
+
+    @Mock
+    private RecipeCache recipeCache;
+
+    @Mock
+    private InventoryDeductionService inventoryDeductionService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2024-05-17T12:00:00Z"), ZoneOffset.UTC);
+    // Rows passed to each batch insert, per statement
+    private final Map<String, List<Object>> written = new HashMap<>();
+
+    private BulkOrderIngestService service;
+    private UUID restaurantId;
+    private Restaurant restaurant;
+    private UUID waiterId;
+    private Employee waiter;
+    private UUID flourId;
+    private MenuItem burger;
+    private MenuItem fries;
+    private LocalDateTime lunch;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new BulkOrderIngestService(restaurantRepository, tableRepository, employeeRepository,
+                menuItemRepository, intakeRepository, recipeCache, inventoryDeductionService, jdbcTemplate,
+                TransactionOperations.withoutTransaction(), eventPublisher, clock);
+
+        restaurantId = UUID.randomUUID();
+        restaurant = new Restaurant();
+        restaurant.setId(restaurantId);
+        when(restaurantRepository.findById(restaurantId)).thenReturn(Optional.of(restaurant));
+
+        when(tableRepository.findAllById(anyIterable())).thenReturn(List.of(table(3, restaurant)));
+
+        waiterId = UUID.randomUUID();
+        waiter = new Employee();
+        waiter.setId(waiterId);
+        waiter.setRestaurant(restaurant);
+        when(employeeRepository.findAllById(anyIterable())).thenReturn(List.of(waiter));
+
+        burger = menuItem("Burger", 12.5, restaurant);
+        fries = menuItem("Fries", 4.0, restaurant);
+        when(menuItemRepository.findAllById(anyIterable())).thenReturn(List.of(burger, fries));
+
+        flourId = UUID.randomUUID();
+        when(recipeCache.stockUsage(anyList(), anyString())).thenAnswer(invocation -> {
+            List<OrderItem> items = invocation.getArgument(0);
+            int quantity = items.stream().mapToInt(OrderItem::getQuantity).sum();
+            return List.of(new StockTransactionService.StockUsage(flourId, 0.1 * quantity, invocation.getArgument(1)));
+        });
+
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<?> rows = invocation.getArgument(1);
+                    written.computeIfAbsent(invocation.getArgument(0), sql -> new ArrayList<>()).addAll(rows);
+                    return new int[][]{new int[rows.size()]};
+                });
+
+        lunch = LocalDateTime.of(2024, 5, 17, 11, 30);
+    }
+
+    private static Table table(int id, Restaurant restaurant) {
+        RestaurantLayout layout = new RestaurantLayout();
+        layout.setRestaurant(restaurant);
+        Floor floor = new Floor();
+        floor.setLayout(layout);
+        Table table = new Table();
+        table.setId(id);
+        table.setFloor(floor);
+        return table;
+    }
+
+    private static MenuItem menuItem(String name, double price, Restaurant restaurant) {
+        Menu menu = new Menu();
+        menu.setRestaurant(restaurant);
+        MenuItem menuItem = new MenuItem();
+        menuItem.setId(UUID.randomUUID());
+        menuItem.setMenu(menu);
+        menuItem.setName(name);
+        menuItem.setPrice(price);
+        return menuItem;
+    }
+
+    private OfflineOrder order(String clientOrderId, int tableId, LocalDateTime createdAt, OrderItemRequest... items) {
+        return order(clientOrderId, tableId, createdAt, null, items);
+    }
+
+    private OfflineOrder order(String clientOrderId, int tableId, LocalDateTime createdAt, Order.Status status,
+                               OrderItemRequest... items) {
+        return new OfflineOrder(clientOrderId, tableId, waiterId, createdAt, status, List.of(items));
+    }
+
+    @Test
+    void ingest_ShouldWriteAllOrdersInBatches_AndDeductStockOnce() {
+        List<BulkOrderResult> results = service.ingest(restaurantId, List.of(
+                order("tab-1", 3, lunch, new OrderItemRequest(burger.getId(), 2), new OrderItemRequest(fries.getId(), 1)),
+                order("tab-2", 3, lunch.plusMinutes(5), new OrderItemRequest(fries.getId(), 3))));
+
+        assertEquals(List.of(BulkOrderResult.Outcome.CREATED, BulkOrderResult.Outcome.CREATED),
+                results.stream().map(BulkOrderResult::outcome).toList());
+        assertEquals(2, written.get(BulkOrderIngestService.INSERT_INTAKE_SQL).size());
+        assertEquals(2, written.get(BulkOrderIngestService.INSERT_ORDER_SQL).size());
+        assertEquals(3, written.get(BulkOrderIngestService.INSERT_ITEM_SQL).size());
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(recipeCache).preload(Set.of(burger.getId(), fries.getId()));
+
+        ArgumentCaptor<List<StockTransactionService.StockUsage>> usages = ArgumentCaptor.forClass(List.class);
+        verify(inventoryDeductionService, times(1)).deductAccepted(usages.capture());
+        assertEquals(List.of(results.get(0).orderId(), results.get(1).orderId()),
+                usages.getValue().stream().map(StockTransactionService.StockUsage::orderId).toList());
+
+        ArgumentCaptor<OrderEventBatch> events = ArgumentCaptor.forClass(OrderEventBatch.class);
+        verify(eventPublisher, times(1)).publishEvent(events.capture());
+        assertEquals(5, events.getValue().events().size());
+        assertEquals(OrderEvent.Type.ORDER_CREATED, events.getValue().events().get(0).type());
+    }
+
+    @Test
+    void ingest_ShouldRejectInvalidOrders_AndCreateTheRest() {
+        List<BulkOrderResult> results = service.ingest(restaurantId, List.of(
+                order("tab-1", 99, lunch, new OrderItemRequest(burger.getId(), 1)),
+                order("tab-2", 3, lunch, new OrderItemRequest(burger.getId(), 0)),
+                order("tab-3", 3, lunch.plusHours(2), new OrderItemRequest(burger.getId(), 1)),
+                order("tab-4", 3, lunch, new OrderItemRequest(UUID.randomUUID(), 1)),
+                order("tab-5", 3, lunch, new OrderItemRequest(burger.getId(), 1))));
+
+        assertEquals("Table not found with ID: 99", results.get(0).message());
+        assertEquals("Quantity must be greater than zero.", results.get(1).message());
+        assertEquals("Order time must not be in the future.", results.get(2).message());
+        assertTrue(results.get(3).message().startsWith("MenuItem not found"));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(BulkOrderResult.Outcome.REJECTED, results.get(i).outcome());
+        }
+        assertEquals(BulkOrderResult.Outcome.CREATED, results.get(4).outcome());
+        assertEquals(1, written.get(BulkOrderIngestService.INSERT_ORDER_SQL).size());
+    }
+
+    @Test
+    void ingest_ShouldWriteTheCapturedStatus_AndOnlyAnnounceOpenOrders() throws Exception {
+        List<BulkOrderResult> results = service.ingest(restaurantId, List.of(
+                order("tab-1", 3, lunch, Order.Status.COMPLETED, new OrderItemRequest(burger.getId(), 1)),
+                order("tab-2", 3, lunch, Order.Status.CANCELED, new OrderItemRequest(fries.getId(), 2)),
+                order("tab-3", 3, lunch, new OrderItemRequest(fries.getId(), 1))));
+
+        assertTrue(results.stream().allMatch(result -> result.outcome() == BulkOrderResult.Outcome.CREATED));
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Object>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(eq(BulkOrderIngestService.INSERT_ORDER_SQL), anyCollection(), anyInt(),
+                setter.capture());
+        List<String> statuses = new ArrayList<>();
+        for (Object row : written.get(BulkOrderIngestService.INSERT_ORDER_SQL)) {
+            PreparedStatement statement = mock(PreparedStatement.class);
+            setter.getValue().setValues(statement, row);
+            ArgumentCaptor<String> status = ArgumentCaptor.forClass(String.class);
+            verify(statement).setString(eq(6), status.capture());
+            statuses.add(status.getValue());
+        }
+        assertEquals(List.of("COMPLETED", "CANCELED", "PENDING"), statuses);
+
+        // The canceled order used no stock
+        ArgumentCaptor<List<StockTransactionService.StockUsage>> usages = ArgumentCaptor.forClass(List.class);
+        verify(inventoryDeductionService).deductAccepted(usages.capture());
+        assertEquals(List.of(results.get(0).orderId(), results.get(2).orderId()),
+                usages.getValue().stream().map(StockTransactionService.StockUsage::orderId).toList());
+
+        ArgumentCaptor<OrderEventBatch> events = ArgumentCaptor.forClass(OrderEventBatch.class);
+        verify(eventPublisher).publishEvent(events.capture());
+        assertTrue(events.getValue().events().stream().allMatch(event -> event.orderId().equals(results.get(2).orderId())));
+        assertEquals(2, events.getValue().events().size());
+    }
+
+    @Test
+    void ingest_ShouldNotAnnounceAnything_WhenEveryOrderIsClosed() {
+        service.ingest(restaurantId, List.of(
+                order("tab-1", 3, lunch, Order.Status.COMPLETED, new OrderItemRequest(burger.getId(), 1))));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void ingest_ShouldRejectTablesWaitersAndMenuItemsOfOtherRestaurants() {
+        Restaurant other = new Restaurant();
+        other.setId(UUID.randomUUID());
+        MenuItem foreignDish = menuItem("Soup", 6.0, other);
+        UUID foreignWaiterId = UUID.randomUUID();
+        Employee foreignWaiter = new Employee();
+        foreignWaiter.setId(foreignWaiterId);
+        foreignWaiter.setRestaurant(other);
+        when(tableRepository.findAllById(anyIterable())).thenReturn(List.of(table(3, restaurant), table(8, other)));
+        when(employeeRepository.findAllById(anyIterable())).thenReturn(List.of(waiter, foreignWaiter));
+        when(menuItemRepository.findAllById(anyIterable())).thenReturn(List.of(burger, foreignDish));
+
+        List<BulkOrderResult> results = service.ingest(restaurantId, List.of(
+                order("tab-1", 8, lunch, new OrderItemRequest(burger.getId(), 1)),
+                new OfflineOrder("tab-2", 3, foreignWaiterId, lunch, null, List.of(new OrderItemRequest(burger.getId(), 1))),
+                order("tab-3", 3, lunch, new OrderItemRequest(foreignDish.getId(), 1)),
+                order("tab-4", 3, lunch, new OrderItemRequest(burger.getId(), 1))));
+
+        assertEquals("Table not found with ID: 8", results.get(0).message());
+        assertEquals("Waiter not found with ID: " + foreignWaiterId, results.get(1).message());
+        assertEquals("MenuItem not found with ID: " + foreignDish.getId(), results.get(2).message());
+        assertEquals(BulkOrderResult.Outcome.CREATED, results.get(3).outcome());
+        assertEquals(1, written.get(BulkOrderIngestService.INSERT_ORDER_SQL).size());
+    }
+
+    @Test
+    void ingest_ShouldReportDuplicates_OfEarlierUploadsAndWithinTheUpload() {
+        UUID existingOrderId = UUID.randomUUID();
+        OrderIntake taken = new OrderIntake();
+        taken.setClientOrderId("tab-1");
+        taken.setOrderId(existingOrderId);
+        taken.setStatus(OrderIntake.Status.APPLIED);
+        when(intakeRepository.findAllById(anyIterable())).thenReturn(List.of(taken));
+
+        List<BulkOrderResult> results = service.ingest(restaurantId, List.of(
+                order("tab-1", 3, lunch, new OrderItemRequest(burger.getId(), 1)),
+                order("tab-2", 3, lunch, new OrderItemRequest(burger.getId(), 1)),
+                order("tab-2", 3, lunch, new OrderItemRequest(burger.getId(), 1))));
+
+        assertEquals(new BulkOrderResult("tab-1", BulkOrderResult.Outcome.DUPLICATE, existingOrderId, null), results.get(0));
+        assertEquals(BulkOrderResult.Outcome.CREATED, results.get(1).outcome());
+        assertEquals(BulkOrderResult.Outcome.DUPLICATE, results.get(2).outcome());
+        assertEquals(1, written.get(BulkOrderIngestService.INSERT_ORDER_SQL).size());
+    }
+
+    @Test
+    void ingest_ShouldWriteOrdersOneByOne_WhenTheBatchFails() {
+        UUID concurrentOrderId = UUID.randomUUID();
+        OrderIntake concurrent = new OrderIntake();
+        concurrent.setClientOrderId("tab-1");
+        concurrent.setOrderId(concurrentOrderId);
+        concurrent.setStatus(OrderIntake.Status.APPLIED);
+        when(intakeRepository.findById("tab-1")).thenReturn(Optional.of(concurrent));
+        // A concurrent upload took tab-1 in between the duplicate check and the insert
+        when(jdbcTemplate.batchUpdate(eq(BulkOrderIngestService.INSERT_INTAKE_SQL), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            Collection<?> rows = invocation.getArgument(1);
+            boolean containsTaken = rows.toString().contains("clientOrderId=tab-1");
+            if (containsTaken) {
+                throw new DuplicateKeyException("duplicate key value violates unique constraint \"order_intake_pkey\"");
+            }
+            return new int[][]{new int[rows.size()]};
+        });
+
+        List<BulkOrderResult> results = service.ingest(restaurantId, List.of(
+                order("tab-1", 3, lunch, new OrderItemRequest(burger.getId(), 1)),
+                order("tab-2", 3, lunch, new OrderItemRequest(fries.getId(), 1))));
+
+        assertEquals(new BulkOrderResult("tab-1", BulkOrderResult.Outcome.DUPLICATE, concurrentOrderId, null), results.get(0));
+        assertEquals(BulkOrderResult.Outcome.CREATED, results.get(1).outcome());
+        assertEquals(1, written.get(BulkOrderIngestService.INSERT_ORDER_SQL).size());
+        verify(eventPublisher, times(1)).publishEvent(any(OrderEventBatch.class));
+    }
+
+    @Test
+    void ingest_ShouldRequireOrders_AndAnExistingRestaurant() {
+        assertThrows(IllegalArgumentException.class, () -> service.ingest(restaurantId, List.of()));
+        assertThrows(EntityNotFoundException.class, () -> service.ingest(UUID.randomUUID(),
+                List.of(order("tab-1", 3, lunch, new OrderItemRequest(burger.getId(), 1)))));
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,122 @@
+package com.quantum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.quantum.dto.OrderExportRow;
+import com.quantum.dto.PaymentExportRow;
+import com.quantum.dto.StockTransactionExportRow;
+import com.quantum.model.Order;
+import com.quantum.model.Payment;
+import com.quantum.repository.OrderRepository;
+import com.quantum.repository.PaymentRepository;
+import com.quantum.repository.StockTransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExportServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private StockTransactionRepository stockTransactionRepository;
+
+    private ExportService exportService;
+
+    private UUID restaurantId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportService = new ExportService(orderRepository, paymentRepository, stockTransactionRepository, objectMapper);
+        restaurantId = UUID.randomUUID();
+        from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        to = LocalDateTime.of(2024, 2, 1, 0, 0);
+    }
+
+    @Test
+    void exportOrders_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        
+        UUID orderId = UUID.randomUUID();
+        OrderExportRow row = new OrderExportRow(orderId, restaurantId, 4, null, 25.0, 0.0,
+                Order.Status.PENDING, from.plusHours(12), from.plusHours(12));
+        Stream<OrderExportRow> rows = Stream.of(row, row);
+        when(orderRepository.streamExportRows(restaurantId, from, to)).thenReturn(rows);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        
+        exportService.exportOrders(restaurantId, from, to, ExportService.Format.NDJSON, out);
+
+        
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":\"" + orderId + "\""));
+        assertTrue(lines[0].contains("\"createdAt\":\"2024-01-01T12:00:00\""));
+    }
+
+    @Test
+    void exportPayments_ShouldWriteCsvWithHeader() throws Exception {
+        
+        UUID paymentId = UUID.randomUUID();
+        UUID orderId = UUID.randomUUID();
+        when(paymentRepository.streamExportRows(restaurantId, from, to)).thenReturn(Stream.of(
+                new PaymentExportRow(paymentId, orderId, 12.5, Payment.PaymentMethod.CARD,
+                        Payment.PaymentStatus.PENDING, from.plusDays(1))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        
+        exportService.exportPayments(restaurantId, from, to, ExportService.Format.CSV, out);
+
+        
+        assertEquals("id,orderId,amount,paymentMethod,paymentStatus,paymentDate\n"
+                        + paymentId + "," + orderId + ",12.5,CARD,PENDING,2024-01-02T00:00\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportStockTransactions_ShouldQuoteCsvValuesWithSeparators() throws Exception {
+        
+        UUID transactionId = UUID.randomUUID();
+        UUID itemId = UUID.randomUUID();
+        when(stockTransactionRepository.streamExportRows(restaurantId, from, to)).thenReturn(Stream.of(
+                new StockTransactionExportRow(transactionId, itemId, "Buns", -2.0, "USAGE", from,
+                        "Used for order, \"rush\"")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        
+        exportService.exportStockTransactions(restaurantId, from, to, ExportService.Format.CSV, out);
+
+        
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(transactionId + "," + itemId + ",Buns,-2.0,USAGE,2024-01-01T00:00,\"Used for order, \"\"rush\"\"\"",
+                lines[1]);
+    }
+
+    @Test
+    void exportOrders_ShouldThrowException_WhenRangeIsEmpty() {
+        
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                exportService.exportOrders(restaurantId, to, from, ExportService.Format.CSV, new ByteArrayOutputStream()));
+
+        assertEquals("Export range start must be before its end.", exception.getMessage());
+        verify(orderRepository, never()).streamExportRows(any(), any(), any());
+    }
+}
@@ -0,0 +1,165 @@
+package com.quantum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private static final List<Object> REQUEST = List.of("menu-item", 2);
+
+    private AtomicLong now;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        idempotencyService = new IdempotencyService(new ObjectMapper(), 2, Duration.ofMinutes(10), now::get);
+    }
+
+    @Test
+    void execute_ShouldReturnStoredResponse_WhenKeyIsReplayed() {
+        AtomicInteger executions = new AtomicInteger();
+
+        String first = idempotencyService.execute("orders", "key-1", REQUEST, () -> "order-" + executions.incrementAndGet());
+        String replay = idempotencyService.execute("orders", "key-1", REQUEST, () -> "order-" + executions.incrementAndGet());
+
+        assertEquals("order-1", first);
+        assertEquals("order-1", replay);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_ShouldRunEveryTime_WhenNoKeyIsGiven() {
+        AtomicInteger executions = new AtomicInteger();
+
+        idempotencyService.execute("orders", null, REQUEST, executions::incrementAndGet);
+        idempotencyService.execute("orders", "", REQUEST, executions::incrementAndGet);
+
+        assertEquals(2, executions.get());
+        assertEquals(0, idempotencyService.size());
+    }
+
+    @Test
+    void execute_ShouldNotStoreFailures() {
+        assertThrows(IllegalArgumentException.class, () ->
+                idempotencyService.execute("payments", "key-1", REQUEST, () -> {
+                    throw new IllegalArgumentException("boom");
+                }));
+
+        String retried = idempotencyService.execute("payments", "key-1", REQUEST, () -> "payment");
+
+        assertEquals("payment", retried);
+    }
+
+    @Test
+    void execute_ShouldRunAgain_WhenEntryExpired() {
+        AtomicInteger executions = new AtomicInteger();
+        idempotencyService.execute("orders", "key-1", REQUEST, executions::incrementAndGet);
+
+        now.addAndGet(Duration.ofMinutes(10).toMillis());
+        int result = idempotencyService.execute("orders", "key-1", REQUEST, executions::incrementAndGet);
+
+        assertEquals(2, result);
+    }
+
+    @Test
+    void execute_ShouldEvictEldestEntry_WhenFull() {
+        idempotencyService.execute("orders", "key-1", REQUEST, () -> 1);
+        idempotencyService.execute("orders", "key-2", REQUEST, () -> 2);
+        idempotencyService.execute("orders", "key-3", REQUEST, () -> 3);
+
+        int replayOfEvicted = idempotencyService.execute("orders", "key-1", REQUEST, () -> 4);
+
+        assertEquals(4, replayOfEvicted);
+    }
+
+    @Test
+    void execute_ShouldRejectAReplayedKey_WhenTheRequestDiffers() {
+        AtomicInteger executions = new AtomicInteger();
+        idempotencyService.execute("orders", "key-1", REQUEST, executions::incrementAndGet);
+
+        assertThrows(IdempotencyKeyReuseException.class, () ->
+                idempotencyService.execute("orders", "key-1", List.of("menu-item", 3), executions::incrementAndGet));
+        assertEquals(1, idempotencyService.execute("orders", "key-1", List.of("menu-item", 2), executions::incrementAndGet));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_ShouldNotEvictAnInFlightEntry_WhenFull() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> inFlight = executor.submit(() -> idempotencyService.execute("orders", "key-1", REQUEST, () -> {
+                started.countDown();
+                await(release);
+                return executions.incrementAndGet();
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            idempotencyService.execute("orders", "key-2", REQUEST, () -> 2);
+            idempotencyService.execute("orders", "key-3", REQUEST, () -> 3);
+
+            Future<Integer> duplicate = executor.submit(() ->
+                    idempotencyService.execute("orders", "key-1", REQUEST, executions::incrementAndGet));
+            release.countDown();
+
+            assertEquals(1, inFlight.get(5, TimeUnit.SECONDS));
+            assertEquals(1, duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, executions.get());
+            assertEquals(2, idempotencyService.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_ShouldMakeConcurrentDuplicatesWaitForFirstExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> first = executor.submit(() -> idempotencyService.execute("orders", "key-1", REQUEST, () -> {
+                started.countDown();
+                await(release);
+                return executions.incrementAndGet();
+            }));
+            started.await(5, TimeUnit.SECONDS);
+
+            Future<Integer> second = executor.submit(() ->
+                    idempotencyService.execute("orders", "key-1", REQUEST, executions::incrementAndGet));
+            Future<Integer> third = executor.submit(() ->
+                    idempotencyService.execute("orders", "key-1", REQUEST, executions::incrementAndGet));
+            release.countDown();
+
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
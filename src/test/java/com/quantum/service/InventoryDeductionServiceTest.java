@@ -0,0 +1,187 @@
+package com.quantum.service;
+
+import com.quantum.dto.DeductionQueueStats;
+import com.quantum.model.InventoryDeductionJob;
+import com.quantum.repository.InventoryDeductionJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InventoryDeductionServiceTest {
+
+    @Mock
+    private InventoryDeductionJobRepository jobRepository;
+
+    @Mock
+    private StockTransactionService stockTransactionService;
+
+    private UUID orderId;
+    private UUID flourId;
+    private List<StockTransactionService.StockUsage> usages;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderId = UUID.randomUUID();
+        flourId = UUID.randomUUID();
+        usages = List.of(
+                new StockTransactionService.StockUsage(flourId, 0.5, "Pizza"),
+                new StockTransactionService.StockUsage(flourId, 0.3, "Bread"));
+    }
+
+    private InventoryDeductionService service(boolean async, int batchSize) {
+        return new InventoryDeductionService(jobRepository, stockTransactionService,
+                TransactionOperations.withoutTransaction(), async, 2, batchSize, 100, false);
+    }
+
+    @Test
+    void deduct_ShouldUseStockImmediately_WhenSynchronous() {
+        service(false, 10).deduct(orderId, usages);
+
+        verify(stockTransactionService, times(1)).useStockBatch(List.of(
+                new StockTransactionService.StockUsage(flourId, 0.5, "Pizza", orderId),
+                new StockTransactionService.StockUsage(flourId, 0.3, "Bread", orderId)));
+        verify(jobRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void deduct_ShouldRecordPendingJobs_WhenAsynchronous() {
+        service(true, 10).deduct(orderId, usages);
+
+        verify(stockTransactionService, never()).useStockBatch(anyList());
+        ArgumentCaptor<List<InventoryDeductionJob>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jobRepository, times(1)).saveAll(captor.capture());
+        List<InventoryDeductionJob> jobs = captor.getValue();
+        assertEquals(2, jobs.size());
+        assertEquals(orderId, jobs.get(0).getOrderId());
+        assertEquals(flourId, jobs.get(1).getInventoryItemId());
+        assertEquals(0.3, jobs.get(1).getQuantity());
+        assertEquals(InventoryDeductionJob.Status.PENDING, jobs.get(1).getStatus());
+    }
+
+    @Test
+    void deduct_ShouldDoNothing_WhenThereAreNoUsages() {
+        service(true, 10).deduct(orderId, List.of());
+
+        verifyNoInteractions(jobRepository, stockTransactionService);
+    }
+
+    @Test
+    void deductAccepted_ShouldSkipLinesTheStockCannotCover_WhenSynchronous() {
+        List<StockTransactionService.StockUsage> accepted = usages.stream().map(usage -> usage.forOrder(orderId)).toList();
+        when(stockTransactionService.tryUseStockBatch(accepted))
+                .thenReturn(Arrays.asList(null, "Quantity must be positive and not exceed available stock."));
+
+        service(false, 10).deductAccepted(accepted);
+
+        verify(stockTransactionService, times(1)).tryUseStockBatch(accepted);
+        verify(stockTransactionService, never()).useStockBatch(anyList());
+        verifyNoInteractions(jobRepository);
+    }
+
+    @Test
+    void deductAccepted_ShouldRecordJobsPerOrder_WhenAsynchronous() {
+        UUID otherOrderId = UUID.randomUUID();
+
+        service(true, 10).deductAccepted(List.of(usages.get(0).forOrder(orderId), usages.get(1).forOrder(otherOrderId)));
+
+        ArgumentCaptor<List<InventoryDeductionJob>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jobRepository, times(1)).saveAll(captor.capture());
+        assertEquals(orderId, captor.getValue().get(0).getOrderId());
+        assertEquals(otherOrderId, captor.getValue().get(1).getOrderId());
+        verifyNoInteractions(stockTransactionService);
+    }
+
+    @Test
+    void drainPartition_ShouldDeleteAppliedJobsAndKeepFailedOnes() {
+        InventoryDeductionJob applied = job(1L, 0.5);
+        InventoryDeductionJob rejected = job(2L, 99.0);
+        when(jobRepository.tryLockPartition(anyLong())).thenReturn(true);
+        when(jobRepository.findPendingBatch(2, 1, 10)).thenReturn(List.of(applied, rejected));
+        when(stockTransactionService.tryUseStockBatch(anyList()))
+                .thenReturn(Arrays.asList(null, "Quantity must be positive and not exceed available stock."));
+
+        int processed = service(true, 10).drainPartition(1);
+
+        assertEquals(2, processed);
+        verify(stockTransactionService, times(1)).tryUseStockBatch(List.of(
+                new StockTransactionService.StockUsage(flourId, 0.5, "Pizza", orderId),
+                new StockTransactionService.StockUsage(flourId, 99.0, "Pizza", orderId)));
+        verify(jobRepository, times(1)).deleteAllInBatch(List.of(applied));
+        assertEquals(InventoryDeductionJob.Status.FAILED, rejected.getStatus());
+        assertEquals("Quantity must be positive and not exceed available stock.", rejected.getError());
+        assertNotNull(rejected.getProcessedAt());
+    }
+
+    @Test
+    void reverse_ShouldDropUnappliedJobsBeforeReversingTheLedger() {
+        LocalDateTime since = LocalDateTime.now().minusHours(1);
+
+        service(true, 10).reverse(List.of(orderId), since);
+
+        InOrder inOrder = inOrder(jobRepository, stockTransactionService);
+        inOrder.verify(jobRepository).deleteByOrderIds(aryEq(new UUID[]{orderId}));
+        inOrder.verify(stockTransactionService).reverseOrderUsage(List.of(orderId), since);
+    }
+
+    @Test
+    void reverse_ShouldOnlyReverseTheLedger_WhenSynchronous() {
+        LocalDateTime since = LocalDateTime.now().minusHours(1);
+
+        service(false, 10).reverse(List.of(orderId), since);
+
+        verify(stockTransactionService, times(1)).reverseOrderUsage(List.of(orderId), since);
+        verifyNoInteractions(jobRepository);
+    }
+
+    @Test
+    void drainPartition_ShouldSkip_WhenAnotherWorkerHoldsThePartition() {
+        when(jobRepository.tryLockPartition(anyLong())).thenReturn(false);
+
+        int processed = service(true, 10).drainPartition(0);
+
+        assertEquals(0, processed);
+        verify(jobRepository, never()).findPendingBatch(anyInt(), anyInt(), anyInt());
+        verifyNoInteractions(stockTransactionService);
+    }
+
+    @Test
+    void getQueueStats_ShouldReportPendingCountAndLag() {
+        when(jobRepository.countByStatus(InventoryDeductionJob.Status.PENDING)).thenReturn(7L);
+        when(jobRepository.countByStatus(InventoryDeductionJob.Status.FAILED)).thenReturn(1L);
+        when(jobRepository.findOldestCreatedAt(InventoryDeductionJob.Status.PENDING))
+                .thenReturn(LocalDateTime.now().minusSeconds(30));
+
+        DeductionQueueStats stats = service(true, 10).getQueueStats();
+
+        assertTrue(stats.async());
+        assertEquals(7L, stats.pending());
+        assertEquals(1L, stats.failed());
+        assertTrue(stats.oldestPendingSeconds() >= 30);
+    }
+
+    private InventoryDeductionJob job(long id, double quantity) {
+        InventoryDeductionJob job = new InventoryDeductionJob();
+        job.setId(id);
+        job.setOrderId(orderId);
+        job.setInventoryItemId(flourId);
+        job.setQuantity(quantity);
+        job.setNote("Pizza");
+        job.setStatus(InventoryDeductionJob.Status.PENDING);
+        return job;
+    }
+}
@@ -0,0 +1,98 @@
+package com.quantum.service;
+
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class KitchenFeedServiceTest {
+
+    private KitchenFeedService kitchenFeedService;
+    private UUID restaurantId;
+
+    @BeforeEach
+    void setUp() {
+        kitchenFeedService = new KitchenFeedService(3, 1);
+        restaurantId = UUID.randomUUID();
+    }
+
+    @Test
+    void onOrderEvent_ShouldKeepOnlyTheNewestEventsPerRestaurant() {
+        for (int i = 0; i < 5; i++) {
+            kitchenFeedService.onOrderEvent(event(restaurantId, OrderEvent.Type.ORDER_CREATED));
+        }
+        kitchenFeedService.onOrderEvent(event(UUID.randomUUID(), OrderEvent.Type.ORDER_CREATED));
+
+        List<KitchenFeedService.SequencedEvent> events = kitchenFeedService.bufferedEvents(restaurantId);
+
+        assertEquals(List.of(3L, 4L, 5L), events.stream().map(KitchenFeedService.SequencedEvent::sequence).toList());
+    }
+
+    @Test
+    void onOrderEvent_ShouldIgnoreEventsWithoutRestaurant() {
+        kitchenFeedService.onOrderEvent(event(null, OrderEvent.Type.STATUS_CHANGED));
+
+        assertTrue(kitchenFeedService.bufferedEvents(restaurantId).isEmpty());
+    }
+
+    @Test
+    void onOrderEvents_ShouldBufferEveryEventOfTheBatch() {
+        UUID otherRestaurantId = UUID.randomUUID();
+
+        kitchenFeedService.onOrderEvents(new OrderEventBatch(List.of(
+                event(restaurantId, OrderEvent.Type.STATUS_CHANGED),
+                event(otherRestaurantId, OrderEvent.Type.STATUS_CHANGED),
+                event(restaurantId, OrderEvent.Type.STATUS_CHANGED),
+                event(null, OrderEvent.Type.STATUS_CHANGED))));
+
+        assertEquals(2, kitchenFeedService.bufferedEvents(restaurantId).size());
+        assertEquals(1, kitchenFeedService.bufferedEvents(otherRestaurantId).size());
+    }
+
+    @Test
+    void subscribe_ShouldAcceptUnknownLastEventId() {
+        kitchenFeedService.onOrderEvent(event(restaurantId, OrderEvent.Type.ITEM_ADDED));
+
+        SseEmitter emitter = kitchenFeedService.subscribe(restaurantId, "stale-42");
+
+        assertNotNull(emitter);
+        kitchenFeedService.onOrderEvent(event(restaurantId, OrderEvent.Type.STATUS_CHANGED));
+        assertEquals(2, kitchenFeedService.bufferedEvents(restaurantId).size());
+    }
+
+    @Test
+    void onOrderEvent_ShouldLeaveSendingToTheSender_AndQueueOneDeliveryPerSubscriber() {
+        List<Runnable> deliveries = new ArrayList<>();
+        ExecutorService sender = mock(ExecutorService.class);
+        doAnswer(invocation -> deliveries.add(invocation.getArgument(0))).when(sender).execute(any());
+        kitchenFeedService = new KitchenFeedService(3, 1, sender);
+
+        kitchenFeedService.subscribe(restaurantId, null);
+        deliveries.remove(0).run();
+        kitchenFeedService.onOrderEvent(event(restaurantId, OrderEvent.Type.ORDER_CREATED));
+        kitchenFeedService.onOrderEvent(event(restaurantId, OrderEvent.Type.ITEM_ADDED));
+
+        // Both events go out with the one queued delivery
+        assertEquals(1, deliveries.size());
+        deliveries.remove(0).run();
+        kitchenFeedService.onOrderEvent(event(restaurantId, OrderEvent.Type.STATUS_CHANGED));
+        assertEquals(1, deliveries.size());
+    }
+
+    private OrderEvent event(UUID restaurantId, OrderEvent.Type type) {
+        return new OrderEvent(type, restaurantId, UUID.randomUUID(), 1, Order.Status.PENDING,
+                null, null, null, null, LocalDateTime.now());
+    }
+}
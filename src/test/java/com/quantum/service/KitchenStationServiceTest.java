@@ -0,0 +1,274 @@
+package com.quantum.service;
+
+import com.quantum.dto.KitchenTicket;
+import com.quantum.dto.OpenKitchenItem;
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.dto.StationTickets;
+import com.quantum.model.Employee;
+import com.quantum.model.Order;
+import com.quantum.model.Restaurant;
+import com.quantum.repository.EmployeeRepository;
+import com.quantum.repository.OrderItemRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class KitchenStationServiceTest {
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private KitchenStationService kitchenStationService;
+    private UUID restaurantId;
+    private UUID orderId;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        kitchenStationService = new KitchenStationService(orderItemRepository, employeeRepository, jdbcTemplate,
+                "Main", 2);
+        restaurantId = UUID.randomUUID();
+        orderId = UUID.randomUUID();
+    }
+
+    @Test
+    void onOrderEvent_ShouldRouteItemsToTheirStation() {
+        UUID steak = UUID.randomUUID();
+        UUID soup = UUID.randomUUID();
+
+        kitchenStationService.onOrderEvents(new OrderEventBatch(List.of(
+                itemAdded(steak, "Steak", " Grill "),
+                itemAdded(soup, "Soup", null))));
+
+        assertEquals(List.of(steak), orderItemIds(kitchenStationService.getTickets(restaurantId, "grill")));
+        assertEquals(List.of(soup), orderItemIds(kitchenStationService.getTickets(restaurantId, "main")));
+        assertTrue(kitchenStationService.getTickets(UUID.randomUUID(), "grill").tickets().isEmpty());
+    }
+
+    @Test
+    void bump_ShouldTakeTheTicketOffAndQueueItsPersistence() {
+        UUID steak = UUID.randomUUID();
+        kitchenStationService.onOrderEvent(itemAdded(steak, "Steak", "grill"));
+        long version = kitchenStationService.getTickets(restaurantId, "grill").version();
+
+        kitchenStationService.bump(restaurantId, "GRILL", steak, null);
+
+        StationTickets tickets = kitchenStationService.getTickets(restaurantId, "grill");
+        assertTrue(tickets.tickets().isEmpty());
+        assertTrue(tickets.version() > version);
+        assertEquals(1, kitchenStationService.pendingBumpCount());
+        verifyNoInteractions(jdbcTemplate);
+        assertThrows(EntityNotFoundException.class, () -> kitchenStationService.bump(restaurantId, "grill", steak, null));
+    }
+
+    @Test
+    void bump_ShouldRejectEmployeesThatAreNotChefs() {
+        UUID steak = UUID.randomUUID();
+        kitchenStationService.onOrderEvent(itemAdded(steak, "Steak", "grill"));
+        Employee waiter = employee(Employee.Role.WAITER);
+        when(employeeRepository.findById(waiter.getId())).thenReturn(Optional.of(waiter));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                kitchenStationService.bump(restaurantId, "grill", steak, waiter.getId()));
+
+        assertEquals("Only chefs of the restaurant can bump kitchen tickets.", exception.getMessage());
+        assertEquals(1, kitchenStationService.getTickets(restaurantId, "grill").tickets().size());
+    }
+
+    @Test
+    void writePendingBumps_ShouldWriteInBatches() {
+        Employee chef = employee(Employee.Role.CHEF);
+        when(employeeRepository.findById(chef.getId())).thenReturn(Optional.of(chef));
+        for (int i = 0; i < 3; i++) {
+            UUID item = UUID.randomUUID();
+            kitchenStationService.onOrderEvent(itemAdded(item, "Steak", "grill"));
+            kitchenStationService.bump(restaurantId, "grill", item, chef.getId());
+        }
+
+        int written = kitchenStationService.writePendingBumps();
+
+        assertEquals(3, written);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(0, kitchenStationService.pendingBumpCount());
+    }
+
+    @Test
+    void writePendingBumps_ShouldKeepBumps_WhenTheWriteFails() {
+        UUID item = UUID.randomUUID();
+        kitchenStationService.onOrderEvent(itemAdded(item, "Steak", "grill"));
+        kitchenStationService.bump(restaurantId, "grill", item, null);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("Database unavailable"));
+
+        int written = kitchenStationService.writePendingBumps();
+
+        assertEquals(0, written);
+        assertEquals(1, kitchenStationService.pendingBumpCount());
+    }
+
+    @Test
+    void pollTickets_ShouldAnswerOnTheNextChange() {
+        UUID steak = UUID.randomUUID();
+        kitchenStationService.onOrderEvent(itemAdded(steak, "Steak", "grill"));
+        DeferredResult<StationTickets> result = kitchenStationService.pollTickets(restaurantId, "grill", 1, 10_000);
+        assertFalse(result.hasResult());
+
+        UUID ribs = UUID.randomUUID();
+        kitchenStationService.onOrderEvent(itemAdded(ribs, "Ribs", "grill"));
+
+        StationTickets tickets = (StationTickets) result.getResult();
+        assertEquals(List.of(steak, ribs), orderItemIds(tickets));
+        assertEquals(2, tickets.version());
+    }
+
+    @Test
+    void pollTickets_ShouldNotCreateAStation_WhenItHasNoTickets() {
+        DeferredResult<StationTickets> waiting = kitchenStationService.pollTickets(restaurantId, "pastry", 0, 10_000);
+        DeferredResult<StationTickets> stale = kitchenStationService.pollTickets(restaurantId, "no-such-station", 3, 10_000);
+
+        assertFalse(waiting.hasResult());
+        StationTickets empty = (StationTickets) stale.getResult();
+        assertEquals(0, empty.version());
+        assertTrue(empty.tickets().isEmpty());
+        assertEquals(0, kitchenStationService.stationCount());
+    }
+
+    @Test
+    void pollTickets_ShouldAnswerAtOnce_WhenTheVersionIsStale() {
+        kitchenStationService.onOrderEvent(itemAdded(UUID.randomUUID(), "Steak", "grill"));
+
+        DeferredResult<StationTickets> result = kitchenStationService.pollTickets(restaurantId, "grill", 42, 10_000);
+
+        assertTrue(result.hasResult());
+        assertEquals(1, ((StationTickets) result.getResult()).tickets().size());
+    }
+
+    @Test
+    void onOrderEvent_ShouldDropTheTicketsOfACanceledOrder() {
+        UUID otherOrderId = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        kitchenStationService.onOrderEvent(itemAdded(UUID.randomUUID(), "Steak", "grill"));
+        kitchenStationService.onOrderEvent(new OrderEvent(OrderEvent.Type.ITEM_ADDED, restaurantId, otherOrderId, 2,
+                Order.Status.PENDING, kept, "Ribs", "grill", 1, LocalDateTime.now()));
+
+        kitchenStationService.onOrderEvent(OrderEvent.statusChanged(restaurantId, orderId, 1, Order.Status.CANCELED));
+
+        assertEquals(List.of(kept), orderItemIds(kitchenStationService.getTickets(restaurantId, "grill")));
+        assertEquals(0, kitchenStationService.pendingBumpCount());
+    }
+
+    @Test
+    void onOrderEvent_ShouldDropTheTicketsOfACompletedOrder() {
+        kitchenStationService.onOrderEvent(itemAdded(UUID.randomUUID(), "Steak", "grill"));
+        kitchenStationService.onOrderEvent(itemAdded(UUID.randomUUID(), "Salad", "cold"));
+
+        kitchenStationService.onOrderEvent(OrderEvent.statusChanged(restaurantId, orderId, 1, Order.Status.COMPLETED));
+
+        assertTrue(kitchenStationService.getTickets(restaurantId, "grill").tickets().isEmpty());
+        assertTrue(kitchenStationService.getTickets(restaurantId, "cold").tickets().isEmpty());
+        assertEquals(0, kitchenStationService.pendingBumpCount());
+    }
+
+    @Test
+    void rebuild_ShouldRestoreOpenTicketsThatWereNotBumped() {
+        UUID open = UUID.randomUUID();
+        UUID bumped = UUID.randomUUID();
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(10);
+        when(orderItemRepository.findOpenKitchenItems()).thenReturn(List.of(
+                new OpenKitchenItem(bumped, orderId, restaurantId, 1, "Steak", "grill", 1, createdAt),
+                new OpenKitchenItem(open, orderId, restaurantId, 1, "Ribs", "grill", 2, createdAt)));
+        when(jdbcTemplate.queryForList(anyString(), eq(UUID.class), any())).thenReturn(List.of(bumped));
+
+        kitchenStationService.rebuild();
+
+        List<KitchenTicket> tickets = kitchenStationService.getTickets(restaurantId, "grill").tickets();
+        assertEquals(1, tickets.size());
+        assertEquals(open, tickets.get(0).orderItemId());
+        assertEquals(2, tickets.get(0).quantity());
+    }
+
+    @Test
+    void onOrderEvent_ShouldKeepEveryTicket_UnderConcurrentProducersAndBumps() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<UUID> kept = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        UUID item = UUID.randomUUID();
+                        kitchenStationService.onOrderEvent(itemAdded(item, "Steak", "grill"));
+                        if (i % 2 == 0) {
+                            kitchenStationService.bump(restaurantId, "grill", item, null);
+                        } else {
+                            kept.add(item);
+                        }
+                    }
+                    return kept;
+                }));
+            }
+            Set<UUID> expected = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                expected.addAll(future.get());
+            }
+
+            StationTickets tickets = kitchenStationService.getTickets(restaurantId, "grill");
+            assertEquals(expected, new HashSet<>(orderItemIds(tickets)));
+            assertEquals(expected.size(), tickets.tickets().size());
+            assertEquals(threads * perThread / 2, kitchenStationService.pendingBumpCount());
+            assertEquals(threads * perThread * 3 / 2, tickets.version());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private OrderEvent itemAdded(UUID orderItemId, String menuItemName, String station) {
+        return new OrderEvent(OrderEvent.Type.ITEM_ADDED, restaurantId, orderId, 1, Order.Status.PENDING,
+                orderItemId, menuItemName, station, 1, LocalDateTime.now());
+    }
+
+    private Employee employee(Employee.Role role) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(restaurantId);
+        Employee employee = new Employee();
+        employee.setId(UUID.randomUUID());
+        employee.setRestaurant(restaurant);
+        employee.setRole(role);
+        return employee;
+    }
+
+    private static List<UUID> orderItemIds(StationTickets tickets) {
+        return tickets.tickets().stream().map(KitchenTicket::orderItemId).toList();
+    }
+}
@@ -30,6 +30,9 @@ public class MenuItemServiceTest {
     @Mock
     private MenuRepository menuRepository;
 
+    @Mock
+    private RecipeCache recipeCache;
+
     @InjectMocks
     private MenuItemService menuItemService;
 
@@ -152,6 +155,7 @@ public class MenuItemServiceTest {
         assertThat(result.isAvailable()).isFalse();
         verify(menuItemRepository, times(1)).findById(menuItemId);
         verify(menuItemRepository, times(1)).save(menuItem);
+        verify(recipeCache, times(1)).invalidate(menuItemId);
     }
 
     @Test
@@ -181,6 +185,7 @@ public class MenuItemServiceTest {
 
         // Assert
         verify(menuItemRepository, times(1)).delete(menuItem);
+        verify(recipeCache, times(1)).invalidate(menuItemId);
     }
 
     @Test
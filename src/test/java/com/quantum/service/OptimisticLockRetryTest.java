@@ -0,0 +1,54 @@
+package com.quantum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticLockRetryTest {
+
+    private final OptimisticLockRetry optimisticLockRetry =
+            new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 3);
+
+    @Test
+    void execute_ShouldRetryUntilSuccess_WhenConflictIsTransient() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = optimisticLockRetry.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Order", "id");
+            }
+            return "saved";
+        });
+
+        assertEquals("saved", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void execute_ShouldGiveUp_AfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () ->
+                optimisticLockRetry.execute(() -> {
+                    attempts.incrementAndGet();
+                    throw new ObjectOptimisticLockingFailureException("Order", "id");
+                }));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void execute_ShouldNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () ->
+                optimisticLockRetry.execute(() -> {
+                    attempts.incrementAndGet();
+                    throw new IllegalArgumentException("Payment amount must be positive");
+                }));
+        assertEquals(1, attempts.get());
+    }
+}
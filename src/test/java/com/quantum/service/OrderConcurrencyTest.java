@@ -0,0 +1,196 @@
+package com.quantum.service;
+
+import com.quantum.model.*;
+import com.quantum.repository.OrderRepository;
+import com.quantum.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fires parallel updates at one order and checks that none of them is lost and that payments never
+ * overpay the order.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "optimistic-lock.max-attempts=100"
+})
+@Import({OrderItemService.class, PaymentService.class, OptimisticLockRetry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 10;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private PaymentGateway paymentGateway;
+
+    private UUID orderId;
+    private UUID menuItemId;
+
+    @BeforeEach
+    void setUp() {
+        when(paymentGateway.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+
+            Restaurant restaurant = new Restaurant();
+            restaurant.setName("Concurrency Grill");
+            entityManager.persist(restaurant);
+
+            RestaurantLayout layout = new RestaurantLayout();
+            layout.setRestaurant(restaurant);
+            entityManager.persist(layout);
+
+            Floor floor = new Floor();
+            floor.setLayout(layout);
+            entityManager.persist(floor);
+
+            Table table = new Table();
+            table.setId((int) (System.nanoTime() & 0x7fffffff));
+            table.setFloor(floor);
+            entityManager.persist(table);
+
+            Employee waiter = new Employee();
+            waiter.setRestaurant(restaurant);
+            waiter.setFloor(floor);
+            waiter.setName("Alex");
+            entityManager.persist(waiter);
+
+            Menu menu = new Menu();
+            menu.setRestaurant(restaurant);
+            entityManager.persist(menu);
+
+            MenuItem menuItem = new MenuItem();
+            menuItem.setMenu(menu);
+            menuItem.setName("Taco");
+            menuItem.setPrice(2.5);
+            entityManager.persist(menuItem);
+            menuItemId = menuItem.getId();
+
+            Order order = new Order();
+            order.setRestaurant(restaurant);
+            order.setTable(table);
+            order.setWaiter(waiter);
+            order.setStatus(Order.Status.PENDING);
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            entityManager.persist(order);
+            orderId = order.getId();
+        });
+    }
+
+    @Test
+    void addOrderItem_ShouldKeepExactTotal_UnderParallelUpdates() throws Exception {
+        List<Throwable> failures = runInParallel(() -> orderItemService.addOrderItem(orderId, menuItemId, 1));
+
+        assertTrue(failures.isEmpty(), () -> "Lost updates: " + failures);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(THREADS * UPDATES_PER_THREAD * 2.5, order.getTotalAmount(), 0.0001);
+    }
+
+    @Test
+    void createPayment_ShouldNeverOverpay_UnderParallelUpdates() throws Exception {
+        double total = THREADS * UPDATES_PER_THREAD / 2.0;
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.findById(orderId).orElseThrow().setTotalAmount(total));
+
+        List<Throwable> rejected = runInParallel(() ->
+                paymentService.createPayment(orderId, 1.0, Payment.PaymentMethod.CARD));
+
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(total, order.getPaidAmount(), 0.0001);
+        assertEquals(Order.Status.COMPLETED, order.getStatus());
+        assertEquals((int) total, paymentRepository.findByOrderId(orderId).size());
+        assertEquals(THREADS * UPDATES_PER_THREAD - (int) total, rejected.size());
+        assertTrue(rejected.stream().allMatch(IllegalArgumentException.class::isInstance));
+    }
+
+    @Test
+    void createPayment_ShouldStopShortOfTheTotal_WhenPaymentsDoNotAddUp() throws Exception {
+        double total = 40.0;
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.findById(orderId).orElseThrow().setTotalAmount(total));
+
+        List<Throwable> rejected = runInParallel(() ->
+                paymentService.createPayment(orderId, 3.0, Payment.PaymentMethod.CASH));
+
+        // 13 payments of 3.0 fit, the 14th would overpay by 2.0
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(39.0, order.getPaidAmount(), 0.0001);
+        assertEquals(Order.Status.PENDING, order.getStatus());
+        assertEquals(13, paymentRepository.findByOrderId(orderId).size());
+        assertEquals(THREADS * UPDATES_PER_THREAD - 13, rejected.size());
+        assertTrue(rejected.stream().allMatch(IllegalArgumentException.class::isInstance));
+    }
+
+    private List<Throwable> runInParallel(Callable<?> update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS * UPDATES_PER_THREAD; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return update.call();
+                }));
+            }
+            start.countDown();
+
+            List<Throwable> failures = new ArrayList<>();
+            for (Future<?> future : futures) {
+                try {
+                    future.get(60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
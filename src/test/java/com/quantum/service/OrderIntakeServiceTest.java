@@ -0,0 +1,271 @@
+package com.quantum.service;
+
+import com.quantum.dto.OrderIntakeRequest;
+import com.quantum.dto.OrderIntakeResult;
+import com.quantum.dto.OrderItemRequest;
+import com.quantum.dto.OrderJournalStats;
+import com.quantum.model.Order;
+import com.quantum.model.OrderIntake;
+import com.quantum.model.OrderItem;
+import com.quantum.repository.OrderIntakeRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderIntakeServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private OrderItemService orderItemService;
+
+    @Mock
+    private OrderIntakeRepository intakeRepository;
+
+    @Mock
+    private RecipeCache recipeCache;
+
+    @Mock
+    private InventoryDeductionService inventoryDeductionService;
+
+    @TempDir
+    Path directory;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2024-05-17T12:00:00Z"), ZoneOffset.UTC);
+    // Stand-in for the order_intake table
+    private final Map<String, OrderIntake> intakes = new HashMap<>();
+    private final List<OrderIntakeService> services = new ArrayList<>();
+
+    private UUID restaurantId;
+    private UUID waiterId;
+    private UUID burgerId;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        restaurantId = UUID.randomUUID();
+        waiterId = UUID.randomUUID();
+        burgerId = UUID.randomUUID();
+
+        when(intakeRepository.findById(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(intakes.get(invocation.<String>getArgument(0))));
+        when(intakeRepository.existsById(anyString())).thenAnswer(invocation ->
+                intakes.containsKey(invocation.<String>getArgument(0)));
+        when(intakeRepository.save(any(OrderIntake.class))).thenAnswer(invocation -> {
+            OrderIntake intake = invocation.getArgument(0);
+            intakes.put(intake.getClientOrderId(), intake);
+            return intake;
+        });
+        when(orderService.createOrder(any(), anyInt(), any(), any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(3);
+            order.setId(UUID.randomUUID());
+            return order;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(OrderIntakeService::closeJournal);
+    }
+
+    private OrderIntakeService service(boolean journaled) {
+        OrderIntakeService service = new OrderIntakeService(orderService, orderItemService, intakeRepository,
+                recipeCache, inventoryDeductionService, TransactionOperations.withoutTransaction(), journaled, directory.resolve("intake.journal"),
+                64 * 1024, 1, 100, 10, false, clock);
+        service.openJournal();
+        services.add(service);
+        return service;
+    }
+
+    private OrderIntakeRequest request(String clientOrderId) {
+        return new OrderIntakeRequest(clientOrderId, List.of(new OrderItemRequest(burgerId, 2)));
+    }
+
+    @Test
+    void submit_ShouldCreateOrderRightAway_WhenJournalDisabled() {
+        OrderIntakeResult result = service(false).submit(restaurantId, 3, waiterId, request("pos-1"));
+
+        assertEquals(OrderIntakeResult.Status.APPLIED, result.status());
+        assertNotNull(result.orderId());
+        verify(orderItemService).addOrderItems(result.orderId(), List.of(new OrderItemRequest(burgerId, 2)));
+        assertEquals(result.orderId(), intakes.get("pos-1").getOrderId());
+    }
+
+    @Test
+    void drainBatch_ShouldDeductTheStockOfTheAddedItems() {
+        UUID beefId = UUID.randomUUID();
+        Map<UUID, Double> stock = new HashMap<>(Map.of(beefId, 10.0));
+        when(recipeCache.stockUsage(anyList(), anyString())).thenAnswer(invocation -> {
+            List<OrderItem> orderItems = invocation.getArgument(0);
+            assertEquals(burgerId, orderItems.get(0).getMenuItem().getId());
+            return List.of(new StockTransactionService.StockUsage(beefId, 0.2 * orderItems.get(0).getQuantity(),
+                    invocation.getArgument(1)));
+        });
+        doAnswer(invocation -> {
+            List<StockTransactionService.StockUsage> usages = invocation.getArgument(1);
+            usages.forEach(usage -> stock.merge(usage.itemId(), -usage.quantity(), Double::sum));
+            return null;
+        }).when(inventoryDeductionService).deduct(any(), anyList());
+        OrderIntakeService service = service(true);
+        service.submit(restaurantId, 3, waiterId, request("pos-1"));
+
+        service.drainBatch();
+
+        assertEquals(9.6, stock.get(beefId), 0.0001);
+        verify(inventoryDeductionService).deduct(eq(service.getResult("pos-1").orderId()), anyList());
+    }
+
+    @Test
+    void submit_ShouldReturnFirstOutcome_WhenClientOrderIdWasTakenIn() {
+        OrderIntakeService service = service(false);
+        OrderIntakeResult first = service.submit(restaurantId, 3, waiterId, request("pos-1"));
+
+        OrderIntakeResult retry = service.submit(restaurantId, 3, waiterId, request("pos-1"));
+
+        assertEquals(first, retry);
+        verify(orderService, times(1)).createOrder(any(), anyInt(), any(), any(Order.class));
+    }
+
+    @Test
+    void submit_ShouldRejectMissingClientOrderId() {
+        OrderIntakeService service = service(true);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.submit(restaurantId, 3, waiterId, request(" ")));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.submit(restaurantId, 3, waiterId, new OrderIntakeRequest("pos-1",
+                        List.of(new OrderItemRequest(burgerId, 0)))));
+        assertEquals(0, service.getJournalStats().pending());
+    }
+
+    @Test
+    void submit_ShouldOnlyJournal_AndDrainShouldCreateTheOrdersInOrder() {
+        OrderIntakeService service = service(true);
+
+        OrderIntakeResult result = service.submit(restaurantId, 3, waiterId, request("pos-1"));
+        service.submit(restaurantId, 4, waiterId, request("pos-2"));
+
+        assertEquals(OrderIntakeResult.Status.PENDING, result.status());
+        assertEquals(OrderIntakeResult.Status.PENDING, service.getResult("pos-1").status());
+        verify(orderService, never()).createOrder(any(), anyInt(), any(), any(Order.class));
+        assertEquals(2, service.getJournalStats().pending());
+
+        assertEquals(2, service.drainBatch());
+
+        var inOrder = inOrder(orderService);
+        inOrder.verify(orderService).createOrder(eq(restaurantId), eq(3), eq(waiterId), any(Order.class));
+        inOrder.verify(orderService).createOrder(eq(restaurantId), eq(4), eq(waiterId), any(Order.class));
+        assertEquals(OrderIntakeResult.Status.APPLIED, service.getResult("pos-1").status());
+        OrderJournalStats stats = service.getJournalStats();
+        assertEquals(0, stats.pending());
+        assertEquals(2, stats.applied());
+        assertNull(stats.oldestPendingSeconds());
+    }
+
+    @Test
+    void submit_ShouldNotJournalTwice_WhileTheOrderIsPending() {
+        OrderIntakeService service = service(true);
+        service.submit(restaurantId, 3, waiterId, request("pos-1"));
+
+        OrderIntakeResult retry = service.submit(restaurantId, 3, waiterId, request("pos-1"));
+
+        assertEquals(OrderIntakeResult.Status.PENDING, retry.status());
+        assertEquals(1, service.getJournalStats().pending());
+    }
+
+    @Test
+    void submit_ShouldNotWaitOnTheDatabase_AndDrainShouldSkipAnIdTakenInBefore() {
+        OrderIntakeService service = service(true);
+        service.submit(restaurantId, 3, waiterId, request("pos-1"));
+        service.drainBatch();
+        clearInvocations(intakeRepository);
+
+        OrderIntakeResult retry = service.submit(restaurantId, 3, waiterId, request("pos-1"));
+
+        assertEquals(OrderIntakeResult.Status.PENDING, retry.status());
+        verifyNoInteractions(intakeRepository);
+        assertEquals(1, service.drainBatch());
+        verify(orderService, times(1)).createOrder(any(), anyInt(), any(), any(Order.class));
+        assertEquals(OrderIntakeResult.Status.APPLIED, service.getResult("pos-1").status());
+    }
+
+    @Test
+    void drainBatch_ShouldRecordRejection_AndMoveOn() {
+        OrderIntakeService service = service(true);
+        when(orderService.createOrder(any(), eq(99), any(), any(Order.class)))
+                .thenThrow(new EntityNotFoundException("Table not found with ID: 99"));
+        service.submit(restaurantId, 99, waiterId, request("pos-1"));
+        service.submit(restaurantId, 3, waiterId, request("pos-2"));
+
+        assertEquals(2, service.drainBatch());
+
+        OrderIntakeResult rejected = service.getResult("pos-1");
+        assertEquals(OrderIntakeResult.Status.REJECTED, rejected.status());
+        assertEquals("Table not found with ID: 99", rejected.error());
+        assertEquals(OrderIntakeResult.Status.APPLIED, service.getResult("pos-2").status());
+        assertEquals(1, service.getJournalStats().rejected());
+    }
+
+    @Test
+    void drainBatch_ShouldKeepTheOrderJournaled_WhenTheDatabaseFails() {
+        OrderIntakeService service = service(true);
+        service.submit(restaurantId, 3, waiterId, request("pos-1"));
+        when(orderService.createOrder(any(), anyInt(), any(), any(Order.class)))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        assertThrows(DataAccessResourceFailureException.class, service::drainBatch);
+        assertEquals(1, service.getJournalStats().pending());
+        assertFalse(intakes.containsKey("pos-1"));
+
+        reset(orderService);
+        when(orderService.createOrder(any(), anyInt(), any(), any(Order.class))).thenReturn(new Order());
+        assertEquals(1, service.drainBatch());
+        assertEquals(0, service.getJournalStats().pending());
+    }
+
+    @Test
+    void openJournal_ShouldReplayOrdersAcceptedBeforeRestart_Once() {
+        OrderIntakeService before = service(true);
+        before.submit(restaurantId, 3, waiterId, request("pos-1"));
+        before.submit(restaurantId, 4, waiterId, request("pos-2"));
+        before.closeJournal();
+        services.remove(before);
+
+        OrderIntakeService after = service(true);
+        assertEquals(OrderIntakeResult.Status.PENDING, after.getResult("pos-2").status());
+        // pos-1 made it into the database before the restart, but the checkpoint did not
+        OrderIntake applied = new OrderIntake();
+        applied.setClientOrderId("pos-1");
+        applied.setStatus(OrderIntake.Status.APPLIED);
+        intakes.put("pos-1", applied);
+
+        assertEquals(2, after.drainBatch());
+
+        ArgumentCaptor<Integer> tableIds = ArgumentCaptor.forClass(Integer.class);
+        verify(orderService, times(1)).createOrder(eq(restaurantId), tableIds.capture(), eq(waiterId), any(Order.class));
+        assertEquals(4, tableIds.getValue());
+    }
+}
@@ -1,6 +1,9 @@
 package com.quantum.service;
 
 
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderItemRequest;
+import com.quantum.dto.OrderItemView;
 import com.quantum.model.MenuItem;
 import com.quantum.model.Order;
 import com.quantum.model.OrderItem;
@@ -13,7 +16,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -32,6 +39,12 @@ class OrderItemServiceTest {
     @Mock
     private MenuItemRepository menuItemRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 3);
+
     @InjectMocks
     private OrderItemService orderItemService;
 
@@ -52,6 +65,7 @@ class OrderItemServiceTest {
         order = new Order();
         order.setId(orderId);
         order.setTotalAmount(0.0);
+        order.setCreatedAt(LocalDateTime.of(2024, 5, 17, 12, 0));
 
         menuItem = new MenuItem();
         menuItem.setId(menuItemId);
@@ -90,6 +104,7 @@ class OrderItemServiceTest {
         verify(menuItemRepository, times(1)).findById(menuItemId);
         verify(orderRepository, times(1)).save(order);
         verify(orderItemRepository, times(1)).save(any(OrderItem.class));
+        verify(eventPublisher, times(1)).publishEvent(any(OrderEvent.class));
     }
 
     @Test
@@ -125,6 +140,80 @@ class OrderItemServiceTest {
         verify(orderItemRepository, never()).save(any(OrderItem.class));
     }
 
+    @Test
+    void addOrderItems_ShouldInsertBatchAndIncrementTotalOnce() {
+        
+        MenuItem fries = new MenuItem();
+        fries.setId(UUID.randomUUID());
+        fries.setName("Fries");
+        fries.setPrice(3.0);
+        List<OrderItemRequest> requests = List.of(
+                new OrderItemRequest(menuItemId, 2),
+                new OrderItemRequest(fries.getId(), 3));
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(menuItemRepository.findAllById(anySet())).thenReturn(List.of(menuItem, fries));
+        when(orderItemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(orderRepository.incrementTotalAmount(eq(orderId), eq(order.getCreatedAt()), anyDouble(), any())).thenReturn(1);
+
+        
+        List<OrderItemView> added = orderItemService.addOrderItems(orderId, requests);
+
+        
+        assertEquals(2, added.size());
+        assertEquals("Pizza", added.get(0).menuItemName());
+        assertEquals(3, added.get(1).quantity());
+        verify(menuItemRepository, times(1)).findAllById(anySet());
+        verify(menuItemRepository, never()).findById(any());
+        verify(orderRepository, times(1)).incrementTotalAmount(eq(orderId), eq(order.getCreatedAt()), eq(29.0), any());
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(orderItemRepository, never()).save(any(OrderItem.class));
+    }
+
+    @Test
+    void addOrderItems_ShouldThrowException_WhenTheOrderTotalIsNotUpdated() {
+        
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(menuItemRepository.findAllById(anySet())).thenReturn(List.of(menuItem));
+        when(orderItemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(orderRepository.incrementTotalAmount(any(), any(), anyDouble(), any())).thenReturn(0);
+
+        
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () ->
+                orderItemService.addOrderItems(orderId, List.of(new OrderItemRequest(menuItemId, 1))));
+
+        
+        assertEquals("Order not found with ID: " + orderId, exception.getMessage());
+        verify(eventPublisher, never()).publishEvent(any(OrderEvent.class));
+    }
+
+    @Test
+    void addOrderItems_ShouldThrowException_WhenMenuItemNotFound() {
+        
+        UUID missingMenuItemId = UUID.randomUUID();
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(menuItemRepository.findAllById(anySet())).thenReturn(List.of(menuItem));
+
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () ->
+                orderItemService.addOrderItems(orderId, List.of(
+                        new OrderItemRequest(menuItemId, 1),
+                        new OrderItemRequest(missingMenuItemId, 1))));
+
+        assertEquals("MenuItem not found with ID: " + missingMenuItemId, exception.getMessage());
+        verify(orderItemRepository, never()).saveAll(anyList());
+        verify(orderRepository, never()).incrementTotalAmount(any(), any(), anyDouble(), any());
+    }
+
+    @Test
+    void addOrderItems_ShouldThrowException_WhenQuantityIsNotPositive() {
+        
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                orderItemService.addOrderItems(orderId, List.of(new OrderItemRequest(menuItemId, 0))));
+
+        assertEquals("Quantity must be greater than zero.", exception.getMessage());
+    }
+
     @Test
     void getOrderItemsByOrder_ShouldReturnOrderItemList() {
         
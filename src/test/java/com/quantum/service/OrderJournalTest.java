@@ -0,0 +1,210 @@
+package com.quantum.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderJournalTest {
+
+    private static final ThreadFactory FLUSHER = Thread.ofPlatform().daemon(true).factory();
+
+    @TempDir
+    Path directory;
+
+    private final List<OrderJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(OrderJournal::close);
+    }
+
+    private OrderJournal open(int capacity) {
+        OrderJournal journal = OrderJournal.open(directory.resolve("orders.journal"), capacity, 1, FLUSHER);
+        opened.add(journal);
+        return journal;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> payloads(List<OrderJournal.Entry> entries) {
+        return entries.stream().map(entry -> new String(entry.payload(), StandardCharsets.UTF_8)).toList();
+    }
+
+    @Test
+    void append_ShouldBeReadBackInOrder_UntilApplied() {
+        OrderJournal journal = open(4096);
+
+        assertEquals(1, journal.append(bytes("first")));
+        assertEquals(2, journal.append(bytes("second")));
+        assertEquals(3, journal.append(bytes("third")));
+
+        List<OrderJournal.Entry> pending = journal.readPending(10);
+        assertEquals(List.of("first", "second", "third"), payloads(pending));
+        assertEquals(3, journal.depth());
+
+        journal.markApplied(pending.get(1));
+        assertEquals(List.of("third"), payloads(journal.readPending(10)));
+        assertEquals(1, journal.depth());
+    }
+
+    @Test
+    void open_ShouldRecoverUnappliedRecords_AndContinueTheSequence() {
+        OrderJournal journal = open(4096);
+        journal.append(bytes("first"));
+        journal.append(bytes("second"));
+        journal.markApplied(journal.readPending(1).get(0));
+        journal.close();
+        opened.remove(journal);
+
+        OrderJournal reopened = open(4096);
+
+        List<OrderJournal.Entry> pending = reopened.readPending(10);
+        assertEquals(List.of("second"), payloads(pending));
+        assertEquals(2, pending.get(0).sequence());
+        assertEquals(3, reopened.append(bytes("third")));
+    }
+
+    @Test
+    void open_ShouldDropTornTail() throws IOException {
+        OrderJournal journal = open(4096);
+        journal.append(bytes("complete"));
+        journal.append(bytes("torn"));
+        int tornOffset = journal.readPending(1).get(0).endOffset();
+        journal.close();
+        opened.remove(journal);
+
+        // Corrupt the payload of the last record, as if the crash hit in the middle of writing it
+        try (FileChannel channel = FileChannel.open(directory.resolve("orders.journal"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes("X")), tornOffset + OrderJournal.RECORD_HEADER_SIZE);
+        }
+
+        OrderJournal reopened = open(4096);
+        assertEquals(List.of("complete"), payloads(reopened.readPending(10)));
+        assertEquals(2, reopened.append(bytes("again")));
+        assertEquals(List.of("complete", "again"), payloads(reopened.readPending(10)));
+    }
+
+    @Test
+    void append_ShouldWrapToTheStart_OnceEverythingIsApplied() {
+        int recordSize = OrderJournal.RECORD_HEADER_SIZE + 10;
+        OrderJournal journal = open(OrderJournal.FILE_HEADER_SIZE + 3 * recordSize);
+        for (int i = 0; i < 3; i++) {
+            journal.append(bytes("record-00" + i));
+        }
+        assertThrows(IllegalStateException.class, () -> journal.append(bytes("record-003")));
+
+        List<OrderJournal.Entry> pending = journal.readPending(10);
+        journal.markApplied(pending.get(pending.size() - 1));
+        assertEquals(4, journal.append(bytes("record-004")));
+        assertEquals(List.of("record-004"), payloads(journal.readPending(10)));
+
+        journal.close();
+        opened.remove(journal);
+        OrderJournal reopened = open(OrderJournal.FILE_HEADER_SIZE + 3 * recordSize);
+        List<OrderJournal.Entry> recovered = reopened.readPending(10);
+        assertEquals(List.of("record-004"), payloads(recovered));
+        assertEquals(4, recovered.get(0).sequence());
+    }
+
+    @Test
+    void append_ShouldWaitForItsOwnFlush_WhenTheJournalWrapsDuringACheckpointFlush() throws Exception {
+        int recordSize = OrderJournal.RECORD_HEADER_SIZE + 10;
+        AtomicBoolean holdNextGroup = new AtomicBoolean();
+        CountDownLatch groupTaken = new CountDownLatch(1);
+        CountDownLatch releaseGroup = new CountDownLatch(1);
+        OrderJournal journal = OrderJournal.open(directory.resolve("orders.journal"),
+                OrderJournal.FILE_HEADER_SIZE + 3 * recordSize, 0, FLUSHER, () -> {
+                    if (holdNextGroup.compareAndSet(true, false)) {
+                        groupTaken.countDown();
+                        try {
+                            releaseGroup.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+        opened.add(journal);
+        for (int i = 0; i < 3; i++) {
+            journal.append(bytes("record-00" + i));
+        }
+
+        // The checkpoint of the applied records is forced by a group that is held in flight
+        holdNextGroup.set(true);
+        List<OrderJournal.Entry> pending = journal.readPending(10);
+        journal.markApplied(pending.get(pending.size() - 1));
+        assertTrue(groupTaken.await(10, TimeUnit.SECONDS));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> wrapped = executor.submit(() -> journal.append(bytes("record-003")));
+            while (journal.depth() == 0) {
+                Thread.onSpinWait();
+            }
+            releaseGroup.countDown();
+
+            assertEquals(4, wrapped.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(List.of("record-003"), payloads(journal.readPending(10)));
+        assertEquals(recordSize, journal.pendingBytes());
+    }
+
+    @Test
+    void append_ShouldKeepEveryRecord_UnderConcurrentAppends() throws Exception {
+        OrderJournal journal = open(1024 * 1024);
+        int threads = 8;
+        int perThread = 200;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    List<Long> sequences = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        sequences.add(journal.append(bytes(thread + ":" + i)));
+                    }
+                    return sequences;
+                }));
+            }
+            Set<Long> sequences = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                sequences.addAll(future.get());
+            }
+            assertEquals(threads * perThread, sequences.size());
+        } finally {
+            executor.shutdown();
+        }
+
+        List<OrderJournal.Entry> pending = journal.readPending(Integer.MAX_VALUE);
+        assertEquals(threads * perThread, pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            assertEquals(i + 1, pending.get(i).sequence());
+        }
+        assertEquals(threads * perThread, new HashSet<>(payloads(pending)).size());
+    }
+}
@@ -1,13 +1,27 @@
 package com.quantum.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.*;
 
+import com.quantum.dto.BulkStatusResult;
+import com.quantum.dto.OrderCursor;
+import com.quantum.dto.OrderDetail;
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.OrderEventBatch;
+import com.quantum.dto.OrderItemView;
+import com.quantum.dto.OrderPage;
+import com.quantum.dto.OrderSearch;
+import com.quantum.dto.OrderStatusRow;
+import com.quantum.dto.OrderSummary;
 import com.quantum.model.Employee;
+import com.quantum.model.MenuItem;
 import com.quantum.model.Order;
+import com.quantum.model.OrderItem;
 import com.quantum.model.Restaurant;
 import com.quantum.model.Table;
 import com.quantum.repository.EmployeeRepository;
+import com.quantum.repository.OrderItemRepository;
 import com.quantum.repository.OrderRepository;
 import com.quantum.repository.RestaurantRepository;
 import com.quantum.repository.TableRepository;
@@ -18,11 +32,17 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 class OrderServiceTest {
@@ -30,6 +50,9 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
     @Mock
     private RestaurantRepository restaurantRepository;
 
@@ -39,6 +62,21 @@ class OrderServiceTest {
     @Mock
     private EmployeeRepository employeeRepository;
 
+    @Mock
+    private TicketNumberAllocator ticketNumberAllocator;
+
+    @Mock
+    private RecipeCache recipeCache;
+
+    @Mock
+    private InventoryDeductionService inventoryDeductionService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 3);
+
     @InjectMocks
     private OrderService orderService;
 
@@ -88,6 +126,7 @@ class OrderServiceTest {
         when(tableRepository.findById(tableId)).thenReturn(Optional.of(table));
         when(employeeRepository.findById(waiterId)).thenReturn(Optional.of(waiter));
         when(orderRepository.save(order)).thenReturn(order);
+        when(ticketNumberAllocator.next(restaurantId)).thenReturn(17);
 
         
         Order savedOrder = orderService.createOrder(restaurantId, tableId, waiterId, order);
@@ -96,6 +135,7 @@ class OrderServiceTest {
         assertNotNull(savedOrder);
         assertEquals(orderId, savedOrder.getId());
         assertEquals(Order.Status.PENDING, savedOrder.getStatus());
+        assertEquals(17, savedOrder.getTicketNumber());
         assertEquals(restaurantId, savedOrder.getRestaurant().getId());
         assertEquals(tableId, savedOrder.getTable().getId());
         assertEquals(waiterId, savedOrder.getWaiter().getId());
@@ -105,6 +145,33 @@ class OrderServiceTest {
         verify(orderRepository, times(1)).save(order);
     }
 
+    @Test
+    void createOrder_ShouldDeductTotalIngredientUsageFromRecipeCache() {
+        
+        MenuItem burger = new MenuItem();
+        burger.setId(UUID.randomUUID());
+        OrderItem orderItem = new OrderItem();
+        orderItem.setMenuItem(burger);
+        orderItem.setQuantity(3);
+        order.getOrderItems().add(orderItem);
+
+        String note = "Used for order ID: " + orderId;
+        List<StockTransactionService.StockUsage> usages = List.of(
+                new StockTransactionService.StockUsage(UUID.randomUUID(), 3.0, note),
+                new StockTransactionService.StockUsage(UUID.randomUUID(), 0.6, note));
+        when(restaurantRepository.findById(restaurantId)).thenReturn(Optional.of(restaurant));
+        when(tableRepository.findById(tableId)).thenReturn(Optional.of(table));
+        when(employeeRepository.findById(waiterId)).thenReturn(Optional.of(waiter));
+        when(orderRepository.save(order)).thenReturn(order);
+        when(recipeCache.stockUsage(order.getOrderItems(), note)).thenReturn(usages);
+
+        
+        orderService.createOrder(restaurantId, tableId, waiterId, order);
+
+        
+        verify(inventoryDeductionService, times(1)).deduct(orderId, usages);
+    }
+
     @Test
     void createOrder_ShouldThrowException_WhenRestaurantNotFound() {
         
@@ -174,6 +241,128 @@ class OrderServiceTest {
         verify(orderRepository, times(1)).findByRestaurantId(restaurantId);
     }
 
+    @Test
+    void getOrderPage_ShouldReturnNextCursor_WhenMoreOrdersFollow() {
+        
+        OrderSummary newest = summary(UUID.randomUUID(), LocalDateTime.now());
+        OrderSummary older = summary(UUID.randomUUID(), newest.createdAt().minusMinutes(5));
+        OrderSummary oldest = summary(UUID.randomUUID(), newest.createdAt().minusMinutes(10));
+        when(orderRepository.findSummaries(any(Specification.class), any(Sort.class), eq(3)))
+                .thenReturn(List.of(newest, older, oldest));
+
+        
+        OrderPage page = orderService.getOrderPage(restaurantId, null, null, null, null, null, null, 2);
+
+        
+        assertEquals(List.of(newest, older), page.orders());
+        assertEquals(new OrderCursor(older.createdAt(), older.id()), OrderCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    void getOrderPage_ShouldReturnNoCursor_OnLastPage() {
+        
+        String cursor = new OrderCursor(LocalDateTime.now(), UUID.randomUUID()).encode();
+        when(orderRepository.findSummaries(any(Specification.class), any(Sort.class), eq(3)))
+                .thenReturn(List.of(summary(orderId, LocalDateTime.now())));
+
+        
+        OrderPage page = orderService.getOrderPage(restaurantId, Order.Status.PENDING, null, null, tableId, waiterId, cursor, 2);
+
+        
+        assertEquals(1, page.orders().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getOrderPage_ShouldThrowException_WhenCursorIsInvalid() {
+        
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                orderService.getOrderPage(restaurantId, null, null, null, null, null, "not-a-cursor", 20));
+
+        assertEquals("Invalid cursor: not-a-cursor", exception.getMessage());
+        verify(orderRepository, never()).findSummaries(any(), any(), anyInt());
+    }
+
+    @Test
+    void searchOrders_ShouldReturnMatchingPage() {
+        
+        OrderSummary match = summary(orderId, LocalDateTime.now());
+        when(orderRepository.findSummaries(any(Specification.class), any(Sort.class), eq(21)))
+                .thenReturn(List.of(match));
+        OrderSearch search = new OrderSearch(Order.Status.COMPLETED, null, null, null, waiterId,
+                10.0, 50.0, List.of(UUID.randomUUID()));
+
+        
+        OrderPage page = orderService.searchOrders(restaurantId, search, null, 20);
+
+        
+        assertEquals(List.of(match), page.orders());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void searchOrders_ShouldThrowException_WhenAmountRangeIsInverted() {
+        
+        OrderSearch search = new OrderSearch(null, null, null, null, null, 50.0, 10.0, null);
+
+        
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                orderService.searchOrders(restaurantId, search, null, 20));
+
+        
+        assertEquals("Minimum total must not exceed the maximum total.", exception.getMessage());
+        verify(orderRepository, never()).findSummaries(any(), any(), anyInt());
+    }
+
+    @Test
+    void searchOrders_ShouldThrowException_WhenDateRangeIsEmpty() {
+        
+        LocalDateTime now = LocalDateTime.now();
+        OrderSearch search = new OrderSearch(null, now, now, null, null, null, null, null);
+
+        
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                orderService.searchOrders(restaurantId, search, null, 20));
+
+        
+        assertEquals("Search start must be before its end.", exception.getMessage());
+    }
+
+    @Test
+    void getOrderDetail_ShouldLoadHeaderAndItemsWithoutEntities() {
+        
+        OrderSummary header = summary(orderId, LocalDateTime.now());
+        List<OrderItemView> items = List.of(new OrderItemView(UUID.randomUUID(), UUID.randomUUID(), "Burger", 2, 9.5));
+        when(orderRepository.findSummaryById(orderId)).thenReturn(Optional.of(header));
+        when(orderItemRepository.findViewsByOrderId(orderId)).thenReturn(items);
+
+        
+        OrderDetail detail = orderService.getOrderDetail(orderId);
+
+        
+        assertEquals(header, detail.order());
+        assertEquals(items, detail.items());
+        verify(orderRepository, never()).findById(any());
+    }
+
+    @Test
+    void getOrderDetail_ShouldThrowException_WhenOrderNotFound() {
+        
+        when(orderRepository.findSummaryById(orderId)).thenReturn(Optional.empty());
+
+        
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () ->
+                orderService.getOrderDetail(orderId));
+
+        assertEquals("Order not found with ID: " + orderId, exception.getMessage());
+        verify(orderItemRepository, never()).findViewsByOrderId(any());
+    }
+
+    private OrderSummary summary(UUID id, LocalDateTime createdAt) {
+        return new OrderSummary(id, restaurantId, tableId, 7, waiterId, "Sam", 20.0, 0.0,
+                Order.Status.PENDING, createdAt, createdAt);
+    }
+
     @Test
     void getOrderById_ShouldReturnOrder() {
         
@@ -217,6 +406,170 @@ class OrderServiceTest {
         assertEquals(newStatus, updatedOrder.getStatus());
         verify(orderRepository, times(1)).findById(orderId);
         verify(orderRepository, times(1)).save(order);
+        verify(eventPublisher, times(1)).publishEvent(any(OrderEvent.class));
+        verify(inventoryDeductionService, never()).reverse(anyCollection(), any());
+    }
+
+    @Test
+    void updateOrderStatus_ShouldReverseStockUsage_WhenOrderIsCanceled() {
+        
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(30);
+        order.setCreatedAt(createdAt);
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(orderRepository.save(order)).thenReturn(order);
+
+        
+        Order canceledOrder = orderService.updateOrderStatus(orderId, Order.Status.CANCELED);
+
+        
+        assertEquals(Order.Status.CANCELED, canceledOrder.getStatus());
+        verify(inventoryDeductionService, times(1)).reverse(List.of(orderId), createdAt);
+    }
+
+    @Test
+    void updateOrderStatus_ShouldRejectTransitionOutOfTerminalStatus() {
+        
+        order.setStatus(Order.Status.CANCELED);
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+
+        
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                orderService.updateOrderStatus(orderId, Order.Status.COMPLETED));
+
+        
+        assertEquals("Order status cannot change from CANCELED to COMPLETED.", exception.getMessage());
+        assertEquals(Order.Status.CANCELED, order.getStatus());
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(eventPublisher, never()).publishEvent(any(OrderEvent.class));
+    }
+
+    @Test
+    void updateOrderStatus_ShouldBeNoOp_WhenStatusIsUnchanged() {
+        
+        order.setStatus(Order.Status.COMPLETED);
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+
+        
+        Order updatedOrder = orderService.updateOrderStatus(orderId, Order.Status.COMPLETED);
+
+        
+        assertSame(order, updatedOrder);
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(eventPublisher, never()).publishEvent(any(OrderEvent.class));
+    }
+
+    @Test
+    void statusTransitions_ShouldOnlyLeavePending() {
+        assertTrue(Order.Status.PENDING.canTransitionTo(Order.Status.COMPLETED));
+        assertTrue(Order.Status.PENDING.canTransitionTo(Order.Status.CANCELED));
+        assertFalse(Order.Status.COMPLETED.canTransitionTo(Order.Status.PENDING));
+        assertFalse(Order.Status.CANCELED.canTransitionTo(Order.Status.COMPLETED));
+        assertFalse(Order.Status.PENDING.isTerminal());
+        assertTrue(Order.Status.COMPLETED.isTerminal());
+        assertTrue(Order.Status.CANCELED.isTerminal());
+        assertTrue(Order.Status.COMPLETED.canReopenTo(Order.Status.PENDING));
+        assertFalse(Order.Status.CANCELED.canReopenTo(Order.Status.PENDING));
+        assertFalse(Order.Status.PENDING.canReopenTo(Order.Status.PENDING));
+    }
+
+    @Test
+    void getOpenOrdersByTable_ShouldUseOpenOrderQuery() {
+        
+        when(orderRepository.findOpenSummariesByTableId(tableId)).thenReturn(List.of());
+
+        
+        List<OrderSummary> openOrders = orderService.getOpenOrdersByTable(tableId);
+
+        
+        assertTrue(openOrders.isEmpty());
+        verify(orderRepository, times(1)).findOpenSummariesByTableId(tableId);
+        verify(orderRepository, never()).findByTableId(anyInt());
+    }
+
+    @Test
+    void updateOrderStatuses_ShouldApplyValidTransitionsInOneUpdate() {
+        
+        UUID pendingId = UUID.randomUUID();
+        UUID racedId = UUID.randomUUID();
+        UUID canceledId = UUID.randomUUID();
+        UUID completedId = UUID.randomUUID();
+        UUID missingId = UUID.randomUUID();
+        when(orderRepository.findStatusRows(anyCollection())).thenReturn(List.of(
+                new OrderStatusRow(pendingId, restaurantId, tableId, Order.Status.PENDING, LocalDateTime.now()),
+                new OrderStatusRow(racedId, restaurantId, tableId, Order.Status.PENDING, LocalDateTime.now()),
+                new OrderStatusRow(canceledId, restaurantId, tableId, Order.Status.CANCELED, LocalDateTime.now()),
+                new OrderStatusRow(completedId, restaurantId, tableId, Order.Status.COMPLETED, LocalDateTime.now())));
+        when(orderRepository.updateStatuses(any(UUID[].class), any(), any(), anyCollection(), eq("COMPLETED"), any()))
+                .thenReturn(List.of(pendingId));
+
+        
+        List<BulkStatusResult> results = orderService.updateOrderStatuses(
+                List.of(pendingId, racedId, canceledId, completedId, missingId, pendingId), Order.Status.COMPLETED);
+
+        
+        assertEquals(List.of(
+                BulkStatusResult.Outcome.UPDATED,
+                BulkStatusResult.Outcome.CONFLICT,
+                BulkStatusResult.Outcome.INVALID_TRANSITION,
+                BulkStatusResult.Outcome.UNCHANGED,
+                BulkStatusResult.Outcome.NOT_FOUND), results.stream().map(BulkStatusResult::outcome).toList());
+        assertEquals("Order status cannot change from CANCELED to COMPLETED.", results.get(2).message());
+        verify(orderRepository, times(1)).updateStatuses(
+                aryEq(new UUID[]{pendingId, racedId}), any(), any(), eq(List.of("PENDING")), eq("COMPLETED"), any());
+        verify(orderRepository, never()).findById(any());
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(eventPublisher, times(1)).publishEvent(any(OrderEventBatch.class));
+        verify(eventPublisher, never()).publishEvent(any(OrderEvent.class));
+        verify(inventoryDeductionService, never()).reverse(anyCollection(), any());
+    }
+
+    @Test
+    void updateOrderStatuses_ShouldReverseStockOfCanceledOrdersAtOnce() {
+        
+        UUID firstId = UUID.randomUUID();
+        UUID secondId = UUID.randomUUID();
+        LocalDateTime oldest = LocalDateTime.now().minusHours(2);
+        LocalDateTime newest = LocalDateTime.now();
+        when(orderRepository.findStatusRows(anyCollection())).thenReturn(List.of(
+                new OrderStatusRow(firstId, restaurantId, tableId, Order.Status.PENDING, newest),
+                new OrderStatusRow(secondId, restaurantId, tableId, Order.Status.PENDING, oldest)));
+        when(orderRepository.updateStatuses(any(UUID[].class), any(), any(), anyCollection(), eq("CANCELED"), any()))
+                .thenReturn(List.of(firstId, secondId));
+
+        
+        orderService.updateOrderStatuses(List.of(firstId, secondId), Order.Status.CANCELED);
+
+        
+        verify(inventoryDeductionService, times(1)).reverse(Set.of(firstId, secondId), oldest);
+        // The update is confined to the months the orders were created in
+        verify(orderRepository, times(1)).updateStatuses(any(UUID[].class), eq(oldest), eq(newest),
+                anyCollection(), eq("CANCELED"), any());
+    }
+
+    @Test
+    void updateOrderStatuses_ShouldSkipUpdate_WhenNoTransitionIsValid() {
+        
+        UUID canceledId = UUID.randomUUID();
+        when(orderRepository.findStatusRows(anyCollection())).thenReturn(List.of(
+                new OrderStatusRow(canceledId, restaurantId, tableId, Order.Status.CANCELED, LocalDateTime.now())));
+
+        
+        List<BulkStatusResult> results = orderService.updateOrderStatuses(List.of(canceledId), Order.Status.PENDING);
+
+        
+        assertEquals(BulkStatusResult.Outcome.INVALID_TRANSITION, results.get(0).outcome());
+        verify(orderRepository, never()).updateStatuses(any(), any(), any(), anyCollection(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void updateOrderStatuses_ShouldThrowException_WhenNoOrderIdsAreGiven() {
+        
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                orderService.updateOrderStatuses(List.of(), Order.Status.COMPLETED));
+
+        
+        assertEquals("Between 1 and 500 order IDs are required.", exception.getMessage());
     }
 
     @Test
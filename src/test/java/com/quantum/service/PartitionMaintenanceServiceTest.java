@@ -0,0 +1,87 @@
+package com.quantum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PartitionMaintenanceServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private Clock clock;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        clock = Clock.fixed(Instant.parse("2024-05-17T10:00:00Z"), ZoneOffset.UTC);
+    }
+
+    @Test
+    void createFuturePartitions_ShouldCoverCurrentMonthUpToMonthsAhead() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any(), any())).thenReturn(1);
+        PartitionMaintenanceService service = new PartitionMaintenanceService(jdbcTemplate, true, 3, 0, clock);
+
+        int created = service.createFuturePartitions();
+
+        assertEquals(4, created);
+        for (String table : PartitionMaintenanceService.PARTITIONED_TABLES) {
+            verify(jdbcTemplate).queryForObject("SELECT create_monthly_partitions(?, ?, ?)", Integer.class,
+                    table, Date.valueOf(LocalDate.of(2024, 5, 1)), Date.valueOf(LocalDate.of(2024, 8, 1)));
+        }
+    }
+
+    @Test
+    void attachedPartitions_ShouldCountTheChildrenOfTheTable() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq("orders"))).thenReturn(5);
+        PartitionMaintenanceService service = new PartitionMaintenanceService(jdbcTemplate, true, 3, 0, clock);
+
+        assertEquals(5, service.attachedPartitions("orders"));
+        verify(jdbcTemplate).queryForObject(contains("pg_inherits"), eq(Integer.class), eq("orders"));
+    }
+
+    @Test
+    void detachColdPartitions_ShouldUseTheSameCutoffForEveryTable() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(), any()))
+                .thenReturn(List.of("orders_p202301"), List.of("order_items_p202301"), List.of(), List.of());
+        PartitionMaintenanceService service = new PartitionMaintenanceService(jdbcTemplate, true, 3, 12, clock);
+
+        List<String> detached = service.detachColdPartitions();
+
+        assertEquals(List.of("orders_p202301", "order_items_p202301"), detached);
+        for (String table : PartitionMaintenanceService.PARTITIONED_TABLES) {
+            verify(jdbcTemplate).queryForList("SELECT detach_monthly_partitions_before(?, ?)", String.class,
+                    table, Date.valueOf(LocalDate.of(2023, 5, 1)));
+        }
+    }
+
+    @Test
+    void detachColdPartitions_ShouldKeepEverything_WhenRetentionIsDisabled() {
+        PartitionMaintenanceService service = new PartitionMaintenanceService(jdbcTemplate, true, 3, 0, clock);
+
+        assertTrue(service.detachColdPartitions().isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void maintainPartitions_ShouldDoNothing_WhenDisabled() {
+        PartitionMaintenanceService service = new PartitionMaintenanceService(jdbcTemplate, false, 3, 12, clock);
+
+        service.maintainPartitions();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,144 @@
+package com.quantum.service;
+
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.PaymentResult;
+import com.quantum.model.Order;
+import com.quantum.model.Payment;
+import com.quantum.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.stubbing.Answer;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PaymentResultProcessorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private PaymentResultProcessor paymentResultProcessor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        paymentResultProcessor = new PaymentResultProcessor(jdbcTemplate, orderRepository, eventPublisher, 2);
+    }
+
+    @Test
+    void accept_ShouldStoreTheDeliveryInOneStatement_BeforeReturning() {
+        paymentResultProcessor.accept(List.of(completed(UUID.randomUUID()),
+                new PaymentResult(UUID.randomUUID(), Payment.PaymentStatus.FAILED, null, "Declined")));
+
+        verify(jdbcTemplate, times(1)).update(contains("INSERT INTO payment_gateway_results"),
+                any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    void applyPendingResults_ShouldApplyBatchesUntilOneComesBackShort() {
+        stubApply().thenAnswer(applied(2)).thenAnswer(applied(2)).thenAnswer(applied(1));
+
+        int applied = paymentResultProcessor.applyPendingResults();
+
+        assertEquals(5, applied);
+        verify(jdbcTemplate, times(3)).query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+        verifyNoInteractions(orderRepository, eventPublisher);
+    }
+
+    @Test
+    void applyPendingResults_ShouldPublishTheReopenedOrders() {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setStatus(Order.Status.PENDING);
+        stubApply().thenAnswer(applied(1, order.getId()));
+        when(orderRepository.findAllById(List.of(order.getId()))).thenReturn(List.of(order));
+
+        paymentResultProcessor.applyPendingResults();
+
+        ArgumentCaptor<OrderEvent> event = ArgumentCaptor.forClass(OrderEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(OrderEvent.Type.STATUS_CHANGED, event.getValue().type());
+        assertEquals(Order.Status.PENDING, event.getValue().status());
+    }
+
+    @Test
+    void applyPendingResults_ShouldStopAtABatchThatFailed_AndRetryItOnTheNextFlush() {
+        stubApply().thenThrow(new DataAccessResourceFailureException("down")).thenAnswer(applied(1));
+
+        assertEquals(0, paymentResultProcessor.applyPendingResults());
+        assertEquals(1, paymentResultProcessor.applyPendingResults());
+    }
+
+    @Test
+    void accept_ShouldRejectTheWholeDelivery_WhenAResultIsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> paymentResultProcessor.accept(List.of(
+                completed(UUID.randomUUID()),
+                new PaymentResult(UUID.randomUUID(), Payment.PaymentStatus.PENDING, null, null))));
+        assertThrows(IllegalArgumentException.class, () -> paymentResultProcessor.accept(List.of(
+                new PaymentResult(null, Payment.PaymentStatus.COMPLETED, null, null))));
+        assertThrows(IllegalArgumentException.class, () -> paymentResultProcessor.accept(List.of(
+                new PaymentResult(UUID.randomUUID(), Payment.PaymentStatus.COMPLETED, "x".repeat(101), null))));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void applyPendingResults_ShouldOnlyReopenCompletedOrders() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        Connection connection = mock(Connection.class);
+        when(statement.getConnection()).thenReturn(connection);
+        stubApply().thenAnswer(invocation -> {
+            invocation.getArgument(1, PreparedStatementSetter.class).setValues(statement);
+            return applied(0).answer(invocation);
+        });
+
+        paymentResultProcessor.applyPendingResults();
+
+        verify(connection).createArrayOf("varchar", new String[]{Order.Status.COMPLETED.name()});
+        verify(statement).setString(3, Order.Status.PENDING.name());
+    }
+
+    @SuppressWarnings("unchecked")
+    private OngoingStubbing<List<?>> stubApply() {
+        return when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)));
+    }
+
+    // Maps the single row the apply statement returns
+    private static Answer<List<?>> applied(int claimed, UUID... reopened) {
+        return invocation -> {
+            ResultSet row = mock(ResultSet.class);
+            Array array = mock(Array.class);
+            when(row.getInt("claimed")).thenReturn(claimed);
+            when(row.getArray("reopened")).thenReturn(array);
+            when(array.getArray()).thenReturn(reopened);
+            return List.of(invocation.getArgument(2, RowMapper.class).mapRow(row, 0));
+        };
+    }
+
+    private static PaymentResult completed(UUID paymentId) {
+        return new PaymentResult(paymentId, Payment.PaymentStatus.COMPLETED, "REF-" + paymentId, null);
+    }
+}
@@ -1,21 +1,33 @@
 package com.quantum.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import com.quantum.dto.OrderEvent;
+import com.quantum.dto.PaymentLeg;
+import com.quantum.dto.PaymentSubmission;
 import com.quantum.model.Order;
 import com.quantum.model.Payment;
 import com.quantum.repository.OrderRepository;
 import com.quantum.repository.PaymentRepository;
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 class PaymentServiceTest {
 
@@ -25,6 +37,15 @@ class PaymentServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 3);
+
     @InjectMocks
     private PaymentService paymentService;
 
@@ -36,6 +57,7 @@ class PaymentServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(paymentGateway.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
         orderId = UUID.randomUUID();
         paymentId = UUID.randomUUID();
 
@@ -57,21 +79,18 @@ class PaymentServiceTest {
     void createPayment_ShouldReturnSavedPayment_WhenPartialPayment() {
         // Arrange
         double partialPaymentAmount = 20.0; // Less than the remaining 50.0
+        UUID partialPaymentId = UUID.randomUUID();
 
-        // Create a Payment object with the correct amount and status
-        Payment partialPayment = new Payment();
-        partialPayment.setId(UUID.randomUUID());
-        partialPayment.setOrder(order);
-        partialPayment.setAmount(partialPaymentAmount);
-        partialPayment.setPaymentMethod(Payment.PaymentMethod.CARD);
-        partialPayment.setPaymentStatus(Payment.PaymentStatus.PENDING); // Explicitly set status here
-        partialPayment.setPaymentDate(LocalDateTime.now());
-
+        when(orderRepository.applyPayment(eq(orderId), eq(partialPaymentAmount), anyCollection(),
+                eq(Order.Status.COMPLETED), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            order.setPaidAmount(order.getPaidAmount() + partialPaymentAmount);
+            return 1;
+        });
         when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
-            Payment paymentArg = invocation.getArgument(0);
-            paymentArg.setId(partialPayment.getId());
-            return paymentArg;
+        when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            payments.get(0).setId(partialPaymentId);
+            return payments;
         });
 
         // Act
@@ -79,20 +98,69 @@ class PaymentServiceTest {
 
         // Assert
         assertNotNull(savedPayment);
+        assertEquals(partialPaymentId, savedPayment.getId());
         assertEquals(partialPaymentAmount, savedPayment.getAmount());
         assertEquals(Payment.PaymentStatus.PENDING, savedPayment.getPaymentStatus());
-        assertEquals(70.0, order.getPaidAmount()); // 50 + 20
+        assertSame(order, savedPayment.getOrder());
         assertEquals(30.0, order.getRemainingAmount()); // Total 100 - Paid 70 = Remaining 30
-        verify(orderRepository, times(1)).save(order);
-        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(paymentRepository, times(1)).saveAll(anyList());
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(paymentGateway, times(1)).submit(
+                new PaymentSubmission(partialPaymentId, orderId, partialPaymentAmount, Payment.PaymentMethod.CARD));
     }
 
+    @Test
+    void createPayment_ShouldCompleteCashAtOnce_WithoutTheGateway() {
+        when(orderRepository.applyPayment(eq(orderId), eq(10.0), anyCollection(), any(), any())).thenReturn(1);
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Payment savedPayment = paymentService.createPayment(orderId, 10.0, Payment.PaymentMethod.CASH);
+
+        assertEquals(Payment.PaymentStatus.COMPLETED, savedPayment.getPaymentStatus());
+        verifyNoInteractions(paymentGateway);
+    }
+
+    @Test
+    void resubmitPending_ShouldHandPendingPaymentsToTheGatewayAgain() {
+        PaymentSubmission pending = new PaymentSubmission(paymentId, orderId, 50.0, Payment.PaymentMethod.CARD);
+        when(paymentRepository.findSubmissionsByStatus(Payment.PaymentStatus.PENDING, Payment.PaymentMethod.CASH))
+                .thenReturn(List.of(pending));
+        when(paymentGateway.submit(pending)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+
+        paymentService.resubmitPending();
+
+        verify(paymentGateway, times(1)).submit(pending);
+    }
+
+    @Test
+    void createPayment_ShouldPublishCompletion_WhenPaymentSettlesTheBalance() {
+        order.setStatus(Order.Status.PENDING);
+        when(orderRepository.applyPayment(eq(orderId), eq(50.0), eq(Set.of(Order.Status.PENDING)),
+                eq(Order.Status.COMPLETED), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            order.setPaidAmount(100.0);
+            order.setStatus(Order.Status.COMPLETED);
+            return 1;
+        });
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        paymentService.createPayment(orderId, 50.0, Payment.PaymentMethod.CASH);
+
+        ArgumentCaptor<OrderEvent> event = ArgumentCaptor.forClass(OrderEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(OrderEvent.Type.STATUS_CHANGED, event.getValue().type());
+        assertEquals(Order.Status.COMPLETED, event.getValue().status());
+    }
 
     @Test
     void createPayment_ShouldThrowException_WhenPaymentAmountExceedsRemaining() {
         // Arrange
         double overPaymentAmount = 60.0; // Remaining is 50.0
-        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(orderRepository.applyPayment(eq(orderId), eq(overPaymentAmount), anyCollection(), any(), any()))
+                .thenReturn(0);
+        when(orderRepository.existsById(orderId)).thenReturn(true);
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -100,6 +168,74 @@ class PaymentServiceTest {
         });
 
         assertEquals("Payment amount must be positive and not exceed the remaining balance.", exception.getMessage());
-        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createPayment_ShouldThrowException_WhenAmountIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentService.createPayment(orderId, 0.0, Payment.PaymentMethod.CARD));
+
+        verify(orderRepository, never()).applyPayment(any(), anyDouble(), anyCollection(), any(), any());
+    }
+
+    @Test
+    void createPayment_ShouldThrowNotFound_WhenOrderDoesNotExist() {
+        when(orderRepository.applyPayment(eq(orderId), anyDouble(), anyCollection(), any(), any())).thenReturn(0);
+        when(orderRepository.existsById(orderId)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class,
+                () -> paymentService.createPayment(orderId, 10.0, Payment.PaymentMethod.CARD));
+        verify(paymentRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createSplitPayments_ShouldBookAllLegsWithOneOrderUpdate() {
+        when(orderRepository.applyPayment(eq(orderId), eq(50.0), anyCollection(), eq(Order.Status.COMPLETED),
+                any(LocalDateTime.class))).thenAnswer(invocation -> {
+            order.setPaidAmount(100.0);
+            order.setStatus(Order.Status.COMPLETED);
+            return 1;
+        });
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Payment> payments = paymentService.createSplitPayments(orderId, List.of(
+                new PaymentLeg(20.0, Payment.PaymentMethod.CARD),
+                new PaymentLeg(17.5, Payment.PaymentMethod.CARD),
+                new PaymentLeg(12.5, Payment.PaymentMethod.CASH)));
+
+        assertEquals(List.of(20.0, 17.5, 12.5), payments.stream().map(Payment::getAmount).toList());
+        assertEquals(Payment.PaymentMethod.CASH, payments.get(2).getPaymentMethod());
+        assertEquals(List.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PENDING, Payment.PaymentStatus.COMPLETED),
+                payments.stream().map(Payment::getPaymentStatus).toList());
+        verify(paymentGateway, times(2)).submit(any());
+        verify(orderRepository, times(1)).applyPayment(any(), anyDouble(), anyCollection(), any(), any());
+        verify(paymentRepository, times(1)).saveAll(anyList());
+        verify(eventPublisher, times(1)).publishEvent(any(OrderEvent.class));
+    }
+
+    @Test
+    void createSplitPayments_ShouldRecordNothing_WhenLegsExceedTheBalance() {
+        when(orderRepository.applyPayment(eq(orderId), eq(60.0), anyCollection(), any(), any())).thenReturn(0);
+        when(orderRepository.existsById(orderId)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> paymentService.createSplitPayments(orderId, List.of(
+                new PaymentLeg(30.0, Payment.PaymentMethod.CARD),
+                new PaymentLeg(30.0, Payment.PaymentMethod.CARD))));
+
+        verify(paymentRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createSplitPayments_ShouldRejectInvalidLegs_BeforeTouchingTheOrder() {
+        assertThrows(IllegalArgumentException.class, () -> paymentService.createSplitPayments(orderId, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> paymentService.createSplitPayments(orderId, List.of(
+                new PaymentLeg(30.0, Payment.PaymentMethod.CARD),
+                new PaymentLeg(-5.0, Payment.PaymentMethod.CARD))));
+        assertThrows(IllegalArgumentException.class, () -> paymentService.createSplitPayments(orderId, List.of(
+                new PaymentLeg(30.0, null))));
+
+        verifyNoInteractions(orderRepository, paymentRepository);
     }
 }
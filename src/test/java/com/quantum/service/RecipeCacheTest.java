@@ -0,0 +1,116 @@
+package com.quantum.service;
+
+import com.quantum.dto.RecipeLine;
+import com.quantum.model.MenuItem;
+import com.quantum.model.OrderItem;
+import com.quantum.repository.IngredientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class RecipeCacheTest {
+
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    private RecipeCache recipeCache;
+
+    private UUID burgerId;
+    private UUID friesId;
+    private UUID bunId;
+    private UUID pattyId;
+    private UUID potatoId;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        recipeCache = new RecipeCache(ingredientRepository);
+        burgerId = UUID.randomUUID();
+        friesId = UUID.randomUUID();
+        bunId = UUID.randomUUID();
+        pattyId = UUID.randomUUID();
+        potatoId = UUID.randomUUID();
+    }
+
+    @Test
+    void stockUsage_ShouldSumIngredientsAcrossOrderItems() {
+        when(ingredientRepository.findRecipeLines(anyCollection())).thenReturn(List.of(
+                new RecipeLine(burgerId, bunId, 1.0),
+                new RecipeLine(burgerId, pattyId, 0.2),
+                new RecipeLine(friesId, potatoId, 0.3)));
+
+        List<StockTransactionService.StockUsage> usages = recipeCache.stockUsage(
+                List.of(orderItem(burgerId, 2), orderItem(friesId, 1), orderItem(burgerId, 1)), "order");
+
+        assertEquals(List.of(
+                new StockTransactionService.StockUsage(bunId, 3.0, "order"),
+                new StockTransactionService.StockUsage(pattyId, 0.2 * 2 + 0.2, "order"),
+                new StockTransactionService.StockUsage(potatoId, 0.3, "order")), usages);
+        verify(ingredientRepository, times(1)).findRecipeLines(anyCollection());
+    }
+
+    @Test
+    void stockUsage_ShouldServeRepeatedOrdersFromCache() {
+        when(ingredientRepository.findRecipeLines(anyCollection()))
+                .thenReturn(List.of(new RecipeLine(burgerId, bunId, 1.0)));
+
+        recipeCache.stockUsage(List.of(orderItem(burgerId, 1)), "first");
+        List<StockTransactionService.StockUsage> usages = recipeCache.stockUsage(List.of(orderItem(burgerId, 4)), "second");
+
+        assertEquals(List.of(new StockTransactionService.StockUsage(bunId, 4.0, "second")), usages);
+        verify(ingredientRepository, times(1)).findRecipeLines(anyCollection());
+        assertEquals(1, recipeCache.cachedRecipeCount());
+    }
+
+    @Test
+    void invalidate_ShouldReloadTheChangedRecipe() {
+        when(ingredientRepository.findRecipeLines(anyCollection()))
+                .thenReturn(List.of(new RecipeLine(burgerId, bunId, 1.0)))
+                .thenReturn(List.of(new RecipeLine(burgerId, bunId, 2.0)));
+        recipeCache.stockUsage(List.of(orderItem(burgerId, 1)), "order");
+
+        recipeCache.invalidate(burgerId);
+        List<StockTransactionService.StockUsage> usages = recipeCache.stockUsage(List.of(orderItem(burgerId, 1)), "order");
+
+        assertEquals(List.of(new StockTransactionService.StockUsage(bunId, 2.0, "order")), usages);
+        verify(ingredientRepository, times(2)).findRecipeLines(anyCollection());
+    }
+
+    @Test
+    void stockUsage_ShouldRejectANonPositiveOrderItemQuantity_EvenWhenOtherItemsMakeUpForIt() {
+        when(ingredientRepository.findRecipeLines(anyCollection()))
+                .thenReturn(List.of(new RecipeLine(burgerId, bunId, 1.0)));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                recipeCache.stockUsage(List.of(orderItem(burgerId, 3), orderItem(burgerId, -1)), "order"));
+
+        assertEquals("Quantity must be positive and not exceed available stock.", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () ->
+                recipeCache.stockUsage(List.of(orderItem(burgerId, 0)), "order"));
+    }
+
+    @Test
+    void stockUsage_ShouldBeEmpty_WhenMenuItemHasNoRecipe() {
+        when(ingredientRepository.findRecipeLines(anyCollection())).thenReturn(List.of());
+
+        assertTrue(recipeCache.stockUsage(List.of(orderItem(burgerId, 2)), "order").isEmpty());
+        assertTrue(recipeCache.stockUsage(List.of(), "order").isEmpty());
+    }
+
+    private OrderItem orderItem(UUID menuItemId, int quantity) {
+        MenuItem menuItem = new MenuItem();
+        menuItem.setId(menuItemId);
+        OrderItem orderItem = new OrderItem();
+        orderItem.setMenuItem(menuItem);
+        orderItem.setQuantity(quantity);
+        return orderItem;
+    }
+}
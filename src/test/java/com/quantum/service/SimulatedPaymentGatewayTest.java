@@ -0,0 +1,73 @@
+package com.quantum.service;
+
+import com.quantum.dto.PaymentResult;
+import com.quantum.dto.PaymentSubmission;
+import com.quantum.model.Payment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SimulatedPaymentGatewayTest {
+
+    @Mock
+    private PaymentResultProcessor resultProcessor;
+
+    private SimulatedPaymentGateway gateway;
+
+    @AfterEach
+    void tearDown() {
+        if (gateway != null) {
+            gateway.shutdown();
+        }
+    }
+
+    @Test
+    void submit_ShouldReportCompletion_AfterTheLatency() {
+        MockitoAnnotations.openMocks(this);
+        gateway = new SimulatedPaymentGateway(resultProcessor, 20, 10, 0.0);
+        UUID paymentId = UUID.randomUUID();
+
+        assertTrue(gateway.submit(submission(paymentId)).isDone());
+
+        List<PaymentResult> result = reported();
+        assertEquals(paymentId, result.get(0).paymentId());
+        assertEquals(Payment.PaymentStatus.COMPLETED, result.get(0).status());
+        assertNotNull(result.get(0).reference());
+    }
+
+    @Test
+    void submit_ShouldReportFailure_WhenEveryPaymentFails() {
+        MockitoAnnotations.openMocks(this);
+        gateway = new SimulatedPaymentGateway(resultProcessor, 0, 0, 1.0);
+
+        gateway.submit(submission(UUID.randomUUID()));
+
+        PaymentResult result = reported().get(0);
+        assertEquals(Payment.PaymentStatus.FAILED, result.status());
+        assertEquals(SimulatedPaymentGateway.DECLINED, result.failureReason());
+    }
+
+    @Test
+    void constructor_ShouldRejectAFailureRateOutsideZeroToOne() {
+        assertThrows(IllegalArgumentException.class, () -> new SimulatedPaymentGateway(resultProcessor, 0, 0, 1.5));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PaymentResult> reported() {
+        ArgumentCaptor<List<PaymentResult>> results = ArgumentCaptor.forClass(List.class);
+        verify(resultProcessor, timeout(2000)).accept(results.capture());
+        return results.getValue();
+    }
+
+    private static PaymentSubmission submission(UUID paymentId) {
+        return new PaymentSubmission(paymentId, UUID.randomUUID(), 25.0, Payment.PaymentMethod.CARD);
+    }
+}
@@ -0,0 +1,173 @@
+package com.quantum.service;
+
+import com.quantum.model.InventoryItem;
+import com.quantum.model.Restaurant;
+import com.quantum.model.StockTransaction;
+import com.quantum.repository.InventoryItemRepository;
+import com.quantum.repository.StockTransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fires parallel stock movements at the same inventory items and checks that no update is lost:
+ * stock is never oversold and every item's quantity equals the sum of its ledger.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(StockTransactionService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int MOVEMENTS = 80;
+
+    @Autowired
+    private StockTransactionService stockTransactionService;
+
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+
+    @Autowired
+    private StockTransactionRepository stockTransactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private UUID flourId;
+    private UUID sugarId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Restaurant restaurant = new Restaurant();
+            restaurant.setName("Concurrency Bakery");
+            entityManager.persist(restaurant);
+
+            flourId = item(restaurant, "Flour");
+            sugarId = item(restaurant, "Sugar");
+        });
+    }
+
+    @Test
+    void useStock_ShouldNeverOversell_UnderParallelUsage() throws Exception {
+        stockTransactionService.addStock(flourId, 50.0, "Delivery");
+
+        List<Throwable> rejected = runInParallel(movement -> () ->
+                stockTransactionService.useStock(flourId, 1.0, "Bread"));
+
+        assertEquals(MOVEMENTS - 50, rejected.size());
+        assertTrue(rejected.stream().allMatch(IllegalArgumentException.class::isInstance));
+        assertEquals(0.0, quantity(flourId), 0.0001);
+        assertEquals(51, stockTransactionRepository.findByInventoryItemId(flourId).size());
+        assertEquals(quantity(flourId), ledgerSum(flourId), 0.0001);
+    }
+
+    @Test
+    void stockMovements_ShouldKeepEveryQuantityEqualToItsLedger_UnderParallelUpdates() throws Exception {
+        stockTransactionService.addStock(flourId, 40.0, "Delivery");
+        stockTransactionService.addStock(sugarId, 40.0, "Delivery");
+
+        List<Throwable> rejected = runInParallel(movement -> switch (movement % 5) {
+            case 0 -> () -> stockTransactionService.useStock(flourId, 1.5, "Bread");
+            case 1 -> () -> stockTransactionService.addStock(sugarId, 1.0, "Delivery");
+            case 2 -> () -> {
+                stockTransactionService.useStockBatch(List.of(
+                        new StockTransactionService.StockUsage(flourId, 1.0, "Cake"),
+                        new StockTransactionService.StockUsage(sugarId, 2.0, "Cake"),
+                        new StockTransactionService.StockUsage(flourId, 0.5, "Cake")));
+                return null;
+            };
+            case 3 -> () -> stockTransactionService.tryUseStockBatch(List.of(
+                    new StockTransactionService.StockUsage(sugarId, 3.0, "Cookies"),
+                    new StockTransactionService.StockUsage(flourId, 1.0, "Cookies")));
+            default -> () -> stockTransactionService.adjustStock(flourId, 12.0, "Count");
+        });
+
+        assertTrue(rejected.stream().allMatch(failure -> failure instanceof IllegalArgumentException
+                || failure instanceof OptimisticLockingFailureException), () -> "Unexpected failures: " + rejected);
+        for (UUID itemId : List.of(flourId, sugarId)) {
+            assertTrue(quantity(itemId) >= 0);
+            assertEquals(quantity(itemId), ledgerSum(itemId), 0.0001);
+        }
+    }
+
+    private UUID item(Restaurant restaurant, String name) {
+        LocalDateTime now = LocalDateTime.now();
+        InventoryItem item = new InventoryItem();
+        item.setRestaurant(restaurant);
+        item.setName(name);
+        item.setCategory("Dry goods");
+        item.setUnit("kg");
+        item.setQuantity(0.0);
+        item.setCreatedAt(now);
+        item.setUpdatedAt(now);
+        entityManager.persist(item);
+        return item.getId();
+    }
+
+    private double quantity(UUID itemId) {
+        return inventoryItemRepository.findById(itemId).orElseThrow().getQuantity();
+    }
+
+    private double ledgerSum(UUID itemId) {
+        return stockTransactionRepository.findByInventoryItemId(itemId).stream()
+                .mapToDouble(StockTransaction::getQuantity)
+                .sum();
+    }
+
+    private List<Throwable> runInParallel(IntFunction<Callable<?>> movements) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < MOVEMENTS; i++) {
+                Callable<?> movement = movements.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return movement.call();
+                }));
+            }
+            start.countDown();
+
+            List<Throwable> failures = new ArrayList<>();
+            for (Future<?> future : futures) {
+                try {
+                    future.get(60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
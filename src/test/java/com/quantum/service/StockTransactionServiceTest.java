@@ -8,6 +8,8 @@ import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -15,10 +17,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,12 +39,14 @@ public class StockTransactionServiceTest {
     private StockTransactionService stockTransactionService;
 
     private UUID inventoryItemId;
+    private UUID orderId;
     private InventoryItem inventoryItem;
     private StockTransaction stockTransaction;
 
     @BeforeEach
     void setUp() {
         inventoryItemId = UUID.randomUUID();
+        orderId = UUID.randomUUID();
 
         inventoryItem = new InventoryItem();
         inventoryItem.setId(inventoryItemId);
@@ -58,9 +65,12 @@ public class StockTransactionServiceTest {
     void addStock_ShouldIncreaseQuantity_WhenItemExists() {
         // Arrange
         double quantityToAdd = 10.0;
-        when(inventoryItemRepository.findById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
-        when(stockTransactionRepository.save(any(StockTransaction.class))).thenReturn(stockTransaction);
-        when(inventoryItemRepository.save(any(InventoryItem.class))).thenReturn(inventoryItem);
+        when(inventoryItemRepository.addQuantity(eq(inventoryItemId), eq(quantityToAdd), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    inventoryItem.setQuantity(inventoryItem.getQuantity() + quantityToAdd);
+                    return 1;
+                });
+        when(inventoryItemRepository.findCurrentById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
 
         // Act
         InventoryItem updatedItem = stockTransactionService.addStock(inventoryItemId, quantityToAdd, "Stock addition");
@@ -68,14 +78,17 @@ public class StockTransactionServiceTest {
         // Assert
         assertNotNull(updatedItem);
         assertEquals(110.0, updatedItem.getQuantity());
-        verify(stockTransactionRepository, times(1)).save(any(StockTransaction.class));
-        verify(inventoryItemRepository, times(1)).save(inventoryItem);
+        ArgumentCaptor<StockTransaction> captor = ArgumentCaptor.forClass(StockTransaction.class);
+        verify(stockTransactionRepository, times(1)).save(captor.capture());
+        assertEquals(10.0, captor.getValue().getQuantity());
+        assertEquals("PURCHASE", captor.getValue().getType());
+        verify(inventoryItemRepository, never()).save(any(InventoryItem.class));
     }
 
     @Test
     void addStock_ShouldThrowException_WhenItemDoesNotExist() {
         // Arrange
-        when(inventoryItemRepository.findById(inventoryItemId)).thenReturn(Optional.empty());
+        when(inventoryItemRepository.addQuantity(eq(inventoryItemId), anyDouble(), any())).thenReturn(0);
 
         // Act & Assert
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () ->
@@ -86,22 +99,23 @@ public class StockTransactionServiceTest {
 
     @Test
     void addStock_ShouldThrowException_WhenQuantityIsInvalid() {
-        // Arrange
-        when(inventoryItemRepository.findById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
-
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
                 stockTransactionService.addStock(inventoryItemId, -10.0, "Invalid stock addition"));
         assertEquals("Quantity must be greater than zero.", exception.getMessage());
+        verifyNoInteractions(inventoryItemRepository, stockTransactionRepository);
     }
 
     @Test
     void useStock_ShouldDecreaseQuantity_WhenSufficientStockExists() {
         // Arrange
         double quantityToUse = 20.0;
-        when(inventoryItemRepository.findById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
-        when(stockTransactionRepository.save(any(StockTransaction.class))).thenReturn(stockTransaction);
-        when(inventoryItemRepository.save(any(InventoryItem.class))).thenReturn(inventoryItem);
+        when(inventoryItemRepository.useQuantity(eq(inventoryItemId), eq(quantityToUse), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    inventoryItem.setQuantity(inventoryItem.getQuantity() - quantityToUse);
+                    return 1;
+                });
+        when(inventoryItemRepository.findCurrentById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
 
         // Act
         InventoryItem updatedItem = stockTransactionService.useStock(inventoryItemId, quantityToUse, "Used in order");
@@ -109,14 +123,18 @@ public class StockTransactionServiceTest {
         // Assert
         assertNotNull(updatedItem);
         assertEquals(80.0, updatedItem.getQuantity());
-        verify(stockTransactionRepository, times(1)).save(any(StockTransaction.class));
-        verify(inventoryItemRepository, times(1)).save(inventoryItem);
+        ArgumentCaptor<StockTransaction> captor = ArgumentCaptor.forClass(StockTransaction.class);
+        verify(stockTransactionRepository, times(1)).save(captor.capture());
+        assertEquals(-20.0, captor.getValue().getQuantity());
+        assertEquals("USAGE", captor.getValue().getType());
+        verify(inventoryItemRepository, never()).save(any(InventoryItem.class));
     }
 
     @Test
     void useStock_ShouldThrowException_WhenItemDoesNotExist() {
         // Arrange
-        when(inventoryItemRepository.findById(inventoryItemId)).thenReturn(Optional.empty());
+        when(inventoryItemRepository.useQuantity(eq(inventoryItemId), anyDouble(), any())).thenReturn(0);
+        when(inventoryItemRepository.existsById(inventoryItemId)).thenReturn(false);
 
         // Act & Assert
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () ->
@@ -127,21 +145,156 @@ public class StockTransactionServiceTest {
     @Test
     void useStock_ShouldThrowException_WhenQuantityExceedsAvailableStock() {
         // Arrange
-        when(inventoryItemRepository.findById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
+        when(inventoryItemRepository.useQuantity(eq(inventoryItemId), eq(200.0), any())).thenReturn(0);
+        when(inventoryItemRepository.existsById(inventoryItemId)).thenReturn(true);
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
                 stockTransactionService.useStock(inventoryItemId, 200.0, "Exceeding stock"));
         assertEquals("Quantity must be positive and not exceed available stock.", exception.getMessage());
+        verify(stockTransactionRepository, never()).save(any(StockTransaction.class));
+    }
+
+    @Test
+    void useStockBatch_ShouldTakeEachItemsTotalWithOneUpdate_WithoutLoadingItems() {
+        // Arrange
+        UUID otherItemId = UUID.randomUUID();
+        List<StockTransactionService.StockUsage> usages = List.of(
+                new StockTransactionService.StockUsage(inventoryItemId, 30.0, "Burger", orderId),
+                new StockTransactionService.StockUsage(otherItemId, 5.0, "Burger", orderId),
+                new StockTransactionService.StockUsage(inventoryItemId, 20.0, "Fries", orderId));
+        when(inventoryItemRepository.useQuantity(any(), anyDouble(), any())).thenReturn(1);
+
+        // Act
+        stockTransactionService.useStockBatch(usages);
+
+        // Assert
+        verify(inventoryItemRepository, times(1)).useQuantity(eq(inventoryItemId), eq(50.0), any());
+        verify(inventoryItemRepository, times(1)).useQuantity(eq(otherItemId), eq(5.0), any());
+        // Rows are updated in id order, whatever the order of the lines
+        InOrder updates = inOrder(inventoryItemRepository);
+        for (UUID itemId : new TreeSet<>(List.of(inventoryItemId, otherItemId))) {
+            updates.verify(inventoryItemRepository).useQuantity(eq(itemId), anyDouble(), any());
+        }
+        verify(inventoryItemRepository, never()).findAllById(any());
+        verify(inventoryItemRepository, never()).findById(any());
+        ArgumentCaptor<List<StockTransaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stockTransactionRepository, times(1)).saveAll(captor.capture());
+        List<StockTransaction> transactions = captor.getValue();
+        assertEquals(3, transactions.size());
+        assertEquals(-30.0, transactions.get(0).getQuantity());
+        assertEquals("Burger", transactions.get(0).getNote());
+        assertEquals(orderId, transactions.get(0).getOrderId());
+        assertEquals(-20.0, transactions.get(2).getQuantity());
+        assertEquals("USAGE", transactions.get(2).getType());
+    }
+
+    @Test
+    void useStockBatch_ShouldThrowException_WhenCombinedUsageExceedsAvailableStock() {
+        // Arrange
+        List<StockTransactionService.StockUsage> usages = List.of(
+                new StockTransactionService.StockUsage(inventoryItemId, 60.0, "Burger"),
+                new StockTransactionService.StockUsage(inventoryItemId, 60.0, "Fries"));
+        when(inventoryItemRepository.useQuantity(eq(inventoryItemId), eq(120.0), any())).thenReturn(0);
+        when(inventoryItemRepository.existsById(inventoryItemId)).thenReturn(true);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                stockTransactionService.useStockBatch(usages));
+        assertEquals("Quantity must be positive and not exceed available stock.", exception.getMessage());
+        verify(stockTransactionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void useStockBatch_ShouldThrowException_WhenItemDoesNotExist() {
+        // Arrange
+        UUID missingItemId = UUID.randomUUID();
+        List<StockTransactionService.StockUsage> usages = List.of(
+                new StockTransactionService.StockUsage(missingItemId, 1.0, "Burger"));
+        when(inventoryItemRepository.useQuantity(eq(missingItemId), eq(1.0), any())).thenReturn(0);
+        when(inventoryItemRepository.existsById(missingItemId)).thenReturn(false);
+
+        // Act & Assert
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () ->
+                stockTransactionService.useStockBatch(usages));
+        assertEquals("Inventory item not found with ID: " + missingItemId, exception.getMessage());
+    }
+
+    @Test
+    void tryUseStockBatch_ShouldSkipRejectedLinesAndApplyTheRest() {
+        // Arrange: 100 in stock, the item's lines total 160 and only go through one by one
+        UUID missingItemId = UUID.randomUUID();
+        List<StockTransactionService.StockUsage> usages = List.of(
+                new StockTransactionService.StockUsage(inventoryItemId, 60.0, "Burger"),
+                new StockTransactionService.StockUsage(inventoryItemId, 60.0, "Fries"),
+                new StockTransactionService.StockUsage(missingItemId, 1.0, "Salad"),
+                new StockTransactionService.StockUsage(inventoryItemId, 40.0, "Soup"));
+        when(inventoryItemRepository.useQuantity(eq(inventoryItemId), anyDouble(), any())).thenAnswer(invocation -> {
+            double quantity = invocation.getArgument(1);
+            if (quantity > inventoryItem.getQuantity()) {
+                return 0;
+            }
+            inventoryItem.setQuantity(inventoryItem.getQuantity() - quantity);
+            return 1;
+        });
+        when(inventoryItemRepository.useQuantity(eq(missingItemId), anyDouble(), any())).thenReturn(0);
+        when(inventoryItemRepository.existsById(inventoryItemId)).thenReturn(true);
+        when(inventoryItemRepository.existsById(missingItemId)).thenReturn(false);
+
+        // Act
+        List<String> errors = stockTransactionService.tryUseStockBatch(usages);
+
+        // Assert
+        assertNull(errors.get(0));
+        assertEquals("Quantity must be positive and not exceed available stock.", errors.get(1));
+        assertEquals("Inventory item not found with ID: " + missingItemId, errors.get(2));
+        assertNull(errors.get(3));
+        assertEquals(0.0, inventoryItem.getQuantity());
+        ArgumentCaptor<List<StockTransaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stockTransactionRepository, times(1)).saveAll(captor.capture());
+        assertEquals(List.of("Burger", "Soup"), captor.getValue().stream().map(StockTransaction::getNote).toList());
+    }
+
+    @Test
+    void reverseOrderUsage_ShouldReverseAllOrdersInOneStatement() {
+        // Arrange
+        UUID otherOrderId = UUID.randomUUID();
+        LocalDateTime since = LocalDateTime.now().minusHours(1);
+        when(stockTransactionRepository.reverseOrderUsage(any(UUID[].class), eq(since), any(), anyString()))
+                .thenReturn(List.of(inventoryItemId));
+
+        // Act
+        List<UUID> reversedItems = stockTransactionService.reverseOrderUsage(List.of(orderId, otherOrderId), since);
+
+        // Assert
+        assertEquals(List.of(inventoryItemId), reversedItems);
+        verify(stockTransactionRepository, times(1)).reverseOrderUsage(
+                aryEq(new UUID[]{orderId, otherOrderId}), eq(since), any(), eq("Reversed for canceled order"));
+        verify(inventoryItemRepository, never()).findAllById(any());
+        verify(inventoryItemRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void reverseOrderUsage_ShouldDoNothing_WhenThereAreNoOrders() {
+        // Act
+        List<UUID> reversedItems = stockTransactionService.reverseOrderUsage(List.of(), LocalDateTime.now());
+
+        // Assert
+        assertTrue(reversedItems.isEmpty());
+        verifyNoInteractions(stockTransactionRepository);
     }
 
     @Test
     void adjustStock_ShouldAdjustQuantity_WhenItemExists() {
         // Arrange
         double newQuantity = 150.0;
-        when(inventoryItemRepository.findById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
-        when(stockTransactionRepository.save(any(StockTransaction.class))).thenReturn(stockTransaction);
-        when(inventoryItemRepository.save(any(InventoryItem.class))).thenReturn(inventoryItem);
+        when(inventoryItemRepository.findQuantityById(inventoryItemId)).thenReturn(Optional.of(100.0));
+        when(inventoryItemRepository.replaceQuantity(eq(inventoryItemId), eq(100.0), eq(newQuantity), any()))
+                .thenAnswer(invocation -> {
+                    inventoryItem.setQuantity(newQuantity);
+                    return 1;
+                });
+        when(inventoryItemRepository.findCurrentById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
 
         // Act
         InventoryItem adjustedItem = stockTransactionService.adjustStock(inventoryItemId, newQuantity, "Adjustment");
@@ -149,14 +302,33 @@ public class StockTransactionServiceTest {
         // Assert
         assertNotNull(adjustedItem);
         assertEquals(150.0, adjustedItem.getQuantity());
-        verify(stockTransactionRepository, times(1)).save(any(StockTransaction.class));
-        verify(inventoryItemRepository, times(1)).save(inventoryItem);
+        ArgumentCaptor<StockTransaction> captor = ArgumentCaptor.forClass(StockTransaction.class);
+        verify(stockTransactionRepository, times(1)).save(captor.capture());
+        assertEquals(50.0, captor.getValue().getQuantity());
+        assertEquals("ADJUSTMENT", captor.getValue().getType());
+    }
+
+    @Test
+    void adjustStock_ShouldRecordTheDifferenceToTheLatestQuantity_WhenStockChangedMeanwhile() {
+        // Arrange: a usage of 30 commits between the read and the update
+        when(inventoryItemRepository.findQuantityById(inventoryItemId)).thenReturn(Optional.of(100.0), Optional.of(70.0));
+        when(inventoryItemRepository.replaceQuantity(eq(inventoryItemId), eq(100.0), eq(90.0), any())).thenReturn(0);
+        when(inventoryItemRepository.replaceQuantity(eq(inventoryItemId), eq(70.0), eq(90.0), any())).thenReturn(1);
+        when(inventoryItemRepository.findCurrentById(inventoryItemId)).thenReturn(Optional.of(inventoryItem));
+
+        // Act
+        stockTransactionService.adjustStock(inventoryItemId, 90.0, "Count");
+
+        // Assert
+        ArgumentCaptor<StockTransaction> captor = ArgumentCaptor.forClass(StockTransaction.class);
+        verify(stockTransactionRepository, times(1)).save(captor.capture());
+        assertEquals(20.0, captor.getValue().getQuantity());
     }
 
     @Test
     void adjustStock_ShouldThrowException_WhenItemDoesNotExist() {
         // Arrange
-        when(inventoryItemRepository.findById(inventoryItemId)).thenReturn(Optional.empty());
+        when(inventoryItemRepository.findQuantityById(inventoryItemId)).thenReturn(Optional.empty());
 
         // Act & Assert
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () ->
@@ -0,0 +1,148 @@
+package com.quantum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TicketNumberAllocatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Clock clock;
+
+    // Stand-in for ticket_number_block: next_value per "restaurant|day"
+    private final Map<String, Integer> blocks = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        at("2024-05-17T10:00:00Z");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any(), any())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(2) + "|" + invocation.getArgument(3);
+            int reserve = invocation.getArgument(4);
+            synchronized (blocks) {
+                return blocks.merge(key, reserve, (current, added) -> current + added - 1);
+            }
+        });
+    }
+
+    @Test
+    void next_ShouldCountFromOnePerRestaurant() {
+        TicketNumberAllocator allocator = allocator(5);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertEquals(1, allocator.next(first));
+        assertEquals(2, allocator.next(first));
+        assertEquals(1, allocator.next(second));
+        assertEquals(3, allocator.next(first));
+    }
+
+    @Test
+    void next_ShouldReserveFromTheDatabaseOncePerBlock() {
+        TicketNumberAllocator allocator = allocator(5);
+        UUID restaurantId = UUID.randomUUID();
+
+        for (int expected = 1; expected <= 12; expected++) {
+            assertEquals(expected, allocator.next(restaurantId));
+        }
+
+        verify(jdbcTemplate, times(3)).queryForObject(anyString(), eq(Integer.class),
+                eq(restaurantId), eq(Date.valueOf(LocalDate.of(2024, 5, 17))), eq(6));
+    }
+
+    @Test
+    void next_ShouldNotReuseNumbers_AfterARestart() {
+        UUID restaurantId = UUID.randomUUID();
+        TicketNumberAllocator before = allocator(5);
+        before.next(restaurantId);
+        before.next(restaurantId);
+
+        TicketNumberAllocator after = allocator(5);
+
+        // The rest of the first block is skipped
+        assertEquals(6, after.next(restaurantId));
+    }
+
+    @Test
+    void next_ShouldRestartAtOne_OnANewBusinessDay() {
+        TicketNumberAllocator allocator = allocator(5);
+        UUID restaurantId = UUID.randomUUID();
+        allocator.next(restaurantId);
+
+        // Still the evening service of the 17th before the 04:00 rollover
+        at("2024-05-18T03:30:00Z");
+        assertEquals(2, allocator.next(restaurantId));
+
+        at("2024-05-18T04:00:00Z");
+        assertEquals(1, allocator.next(restaurantId));
+    }
+
+    @Test
+    void next_ShouldHandOutUniqueContiguousNumbers_UnderConcurrency() throws Exception {
+        TicketNumberAllocator allocator = allocator(7);
+        UUID restaurantId = UUID.randomUUID();
+        int threads = 8;
+        int perThread = 250;
+
+        List<Future<List<Integer>>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Integer> numbers = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        numbers.add(allocator.next(restaurantId));
+                    }
+                    return numbers;
+                }));
+            }
+            Set<Integer> all = new HashSet<>();
+            for (Future<List<Integer>> future : futures) {
+                all.addAll(future.get());
+            }
+
+            assertEquals(threads * perThread, all.size());
+            assertEquals(1, all.stream().mapToInt(Integer::intValue).min().orElseThrow());
+            assertEquals(threads * perThread, all.stream().mapToInt(Integer::intValue).max().orElseThrow());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TicketNumberAllocator allocator(int blockSize) {
+        return new TicketNumberAllocator(jdbcTemplate, TransactionOperations.withoutTransaction(), blockSize,
+                LocalTime.of(4, 0), clock);
+    }
+
+    private void at(String instant) {
+        when(clock.instant()).thenReturn(Instant.parse(instant));
+    }
+}